@@ -0,0 +1,91 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import frc.robot.AutoPaths;
+import frc.robot.commands.FollowTrajectoryCommand;
+import frc.robot.commands.GoToGoalCommand;
+import frc.robot.commands.SpinWheelCommand;
+import frc.robot.subsystems.SwerveModule;
+import frc.robot.subsystems.SwerveModuleIOSim;
+import frc.robot.trajectory.Trajectory;
+import frc.robot.trajectory.TrajectoryGenerator;
+
+/**
+ * What one loop of a command costs: its execute() and isFinished(), called directly so the
+ * scheduler's own bookkeeping is not included. See {@link SchedulerBenchmark} for that.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CommandBenchmark {
+  private GoToGoalCommand m_path;
+  private FollowTrajectoryCommand m_trajectory;
+  private SpinWheelCommand m_spin;
+  // The trajectory command's own clock, held halfway through the path so it never finishes.
+  private double m_trajectoryTime;
+
+  @Setup
+  public void setUp() {
+    SimSetup.start();
+    // Separate modules, because each command requires its module.
+    m_path = new GoToGoalCommand(new SwerveModule("PathModule", new SwerveModuleIOSim()));
+    // The autonomous routine's path, built in memory the same way the build deploys it.
+    Trajectory trajectory =
+        TrajectoryGenerator.generate(AutoPaths.all().get(AutoPaths.GO_TO_GOAL));
+    m_trajectory = new FollowTrajectoryCommand(
+        new SwerveModule("TrajectoryModule", new SwerveModuleIOSim()), trajectory,
+        () -> m_trajectoryTime);
+    m_spin = new SpinWheelCommand(new SwerveModule("SpinModule", new SwerveModuleIOSim()));
+    m_path.initialize();
+    m_trajectory.initialize();
+    m_trajectoryTime = trajectory.getDuration() / 2;
+    m_spin.initialize();
+  }
+
+  @TearDown
+  public void tearDown() {
+    SimSetup.stop();
+  }
+
+  /** The S-curve path follower, the heaviest command body. */
+  @Benchmark
+  public boolean followPath() {
+    m_path.execute();
+    return m_path.isFinished();
+  }
+
+  /** The precomputed trajectory the autonomous routine really runs: table lookups only. */
+  @Benchmark
+  public boolean followTrajectory() {
+    m_trajectory.execute();
+    return m_trajectory.isFinished();
+  }
+
+  /** A simple position command, as a baseline. */
+  @Benchmark
+  public void spinWheel(Blackhole blackhole) {
+    m_spin.execute();
+    blackhole.consume(m_spin.isFinished());
+  }
+}
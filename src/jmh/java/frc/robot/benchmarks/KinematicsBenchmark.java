@@ -0,0 +1,54 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frc.robot.Constants.SwerveConstants;
+import frc.robot.util.SwerveKinematics;
+
+/** The swerve math the drivetrain does every loop. Pure Java, so no simulator is needed. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class KinematicsBenchmark {
+  private final SwerveKinematics m_kinematics =
+      new SwerveKinematics(SwerveConstants.kModuleXMeters, SwerveConstants.kModuleYMeters);
+  private final double[] m_speeds = new double[SwerveConstants.kModuleXMeters.length];
+  private final double[] m_angles = new double[SwerveConstants.kModuleXMeters.length];
+  private final double[] m_chassis = new double[3];
+  // Not final, so the JIT cannot treat the inputs as constants and fold the math away.
+  private double m_vx = 1.5;
+  private double m_vy = 0.5;
+  private double m_omega = 2.0;
+
+  /** Robot speeds to module speeds and angles, then scaled to what the wheels can do. */
+  @Benchmark
+  public double[] toModuleStates() {
+    m_kinematics.toModuleStates(m_vx, m_vy, m_omega, m_speeds, m_angles);
+    m_kinematics.desaturate(m_speeds, SwerveConstants.kMaxSpeedMetersPerSecond);
+    return m_speeds;
+  }
+
+  /** Measured module speeds and angles back to robot speeds, for odometry. */
+  @Benchmark
+  public double[] toChassisSpeeds() {
+    m_kinematics.toChassisSpeeds(m_speeds, m_angles, m_chassis);
+    return m_chassis;
+  }
+}
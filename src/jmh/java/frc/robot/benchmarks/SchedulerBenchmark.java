@@ -0,0 +1,97 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.AutoPaths;
+import frc.robot.commands.FollowTrajectoryCommand;
+import frc.robot.commands.GoToGoalCommand;
+import frc.robot.subsystems.SwerveModule;
+import frc.robot.subsystems.SwerveModuleIOSim;
+import frc.robot.trajectory.Trajectory;
+import frc.robot.trajectory.TrajectoryGenerator;
+
+/**
+ * How the cost of one scheduler tick grows with the number of running commands.
+ *
+ * <p>Each command gets its own simulated module, because a command requires its module and
+ * two commands on the same module would cancel each other. So a tick runs every module's
+ * periodic() plus every command's execute() and isFinished(), just like
+ * {@code CommandScheduler.run()} on the robot. The simulated wheels only move in the fast
+ * control loop, which is not run here, so every tick does the same work.
+ *
+ * <p>Both path commands are measured: the live S-curve follower, and the precomputed
+ * trajectory that the autonomous routine really runs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SchedulerBenchmark {
+  // Paths this long never finish, so every tick does the same work.
+  private static final double ENDLESS_SEGMENT_ROTATIONS = 1e9;
+
+  @Param({"1", "4", "16", "64"})
+  public int commandCount;
+
+  @Param({"GoToGoal", "FollowTrajectory"})
+  public String commandType;
+
+  private CommandScheduler m_scheduler;
+  // The trajectory commands' clock, held halfway through the path so they never finish.
+  private double m_trajectoryTime;
+
+  @Setup
+  public void setUp() {
+    SimSetup.start();
+    m_scheduler = CommandScheduler.getInstance();
+    Trajectory trajectory =
+        TrajectoryGenerator.generate(AutoPaths.all().get(AutoPaths.GO_TO_GOAL));
+    for (int i = 0; i < commandCount; i++) {
+      SwerveModule module = new SwerveModule("Scheduled" + i, new SwerveModuleIOSim());
+      m_scheduler.schedule(createCommand(module, trajectory));
+    }
+    // Every command has started at time 0; from now on they are all mid-path.
+    m_trajectoryTime = trajectory.getDuration() / 2;
+  }
+
+  private Command createCommand(SwerveModule module, Trajectory trajectory) {
+    if (commandType.equals("FollowTrajectory")) {
+      return new FollowTrajectoryCommand(module, trajectory, () -> m_trajectoryTime);
+    }
+    return new GoToGoalCommand(
+        module, ENDLESS_SEGMENT_ROTATIONS, GoToGoalCommand.DRIVE_SPEED,
+        GoToGoalCommand.TURN_ROTATIONS);
+  }
+
+  @TearDown
+  public void tearDown() {
+    SimSetup.stop();
+  }
+
+  /** One robot loop's worth of scheduler work. */
+  @Benchmark
+  public void run() {
+    m_scheduler.run();
+  }
+}
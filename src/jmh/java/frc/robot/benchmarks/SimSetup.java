@@ -0,0 +1,39 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.benchmarks;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+
+/**
+ * Starts the simulated robot the way the unit tests do, so benchmarks measure the same code
+ * the robot runs but with the pure-Java motor and gyro simulations underneath.
+ */
+final class SimSetup {
+  private SimSetup() {}
+
+  /** Start the simulator with the clock paused and the robot enabled in autonomous. */
+  static void start() {
+    // 500 ms timeout, 0 = use the simulator HAL.
+    HAL.initialize(500, 0);
+    // A paused clock keeps every iteration doing the same work.
+    SimHooks.pauseTiming();
+    DriverStationSim.resetData();
+    DriverStationSim.setAutonomous(true);
+    DriverStationSim.setEnabled(true);
+    DriverStationSim.notifyNewData();
+  }
+
+  /** Leave the shared command scheduler empty again. */
+  static void stop() {
+    CommandScheduler scheduler = CommandScheduler.getInstance();
+    scheduler.cancelAll();
+    scheduler.unregisterAllSubsystems();
+    DriverStationSim.resetData();
+    SimHooks.resumeTiming();
+  }
+}
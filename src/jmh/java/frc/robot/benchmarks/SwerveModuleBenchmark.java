@@ -0,0 +1,90 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import frc.robot.subsystems.SwerveModule;
+import frc.robot.subsystems.SwerveModuleIOSim;
+
+/**
+ * What one swerve module costs per call: reading the sensors, the getters commands use,
+ * sending a new target, and queueing its telemetry.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SwerveModuleBenchmark {
+  private SwerveModule m_module;
+  private double m_angle;
+
+  @Setup
+  public void setUp() {
+    SimSetup.start();
+    m_module = new SwerveModule("Benchmark", new SwerveModuleIOSim());
+  }
+
+  @TearDown
+  public void tearDown() {
+    SimSetup.stop();
+  }
+
+  /** Take the loop's sensor snapshot from the IO layer. */
+  @Benchmark
+  public void refreshSensors() {
+    m_module.refreshSensors();
+  }
+
+  /** The getters a command reads every loop, after the snapshot was taken. */
+  @Benchmark
+  public void readAccessors(Blackhole blackhole) {
+    blackhole.consume(m_module.getDrivePosition());
+    blackhole.consume(m_module.getDriveVelocity());
+    blackhole.consume(m_module.getRotations());
+    blackhole.consume(m_module.getSteerVelocity());
+    blackhole.consume(m_module.getWheelSpeedMetersPerSecond());
+  }
+
+  /** The module's whole periodic(), as the scheduler calls it. */
+  @Benchmark
+  public void periodic() {
+    m_module.periodic();
+  }
+
+  /** Send a new speed and angle, changing the angle so no work is skipped as a repeat. */
+  @Benchmark
+  public void setDesiredState() {
+    m_angle = m_angle > 0.5 ? 0 : m_angle + 0.01;
+    m_module.setDesiredState(1.0, m_angle);
+  }
+
+  /** One tick of the 200 Hz control callback. */
+  @Benchmark
+  public void fastPeriodic() {
+    m_module.fastPeriodic();
+  }
+
+  /** Queue the module's dashboard values. */
+  @Benchmark
+  public void publishTelemetry() {
+    m_module.publishTelemetry();
+  }
+}
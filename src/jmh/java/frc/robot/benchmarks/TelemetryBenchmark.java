@@ -0,0 +1,101 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frc.robot.subsystems.GyroIOSim;
+import frc.robot.subsystems.SwerveDrivetrain;
+import frc.robot.subsystems.SwerveModuleIOSim;
+import frc.robot.util.Telemetry;
+
+/**
+ * What publishing to the dashboard costs the robot loop. The loop only copies values into
+ * the telemetry buffer; the background thread that sends them is not measured here.
+ *
+ * <p>The buffer holds 8192 values and is emptied every 10 ms. Called back to back, puts would
+ * fill it almost at once and then only measure the "buffer full, drop the value" shortcut.
+ * So each measurement is one timed batch that fits in the buffer, with a pause before it for
+ * the background thread to catch up, like the gap between robot loops. Divide the reported
+ * time by the batch size for the cost of one call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class TelemetryBenchmark {
+  private static final int VALUES_PER_BATCH = 4000;
+  // The drivetrain publishes about 50 values a loop, so 100 loops fit too.
+  private static final int LOOPS_PER_BATCH = 100;
+  // Longer than the background thread's 10 ms flush period.
+  private static final long DRAIN_WAIT_MILLIS = 25;
+
+  private Telemetry m_telemetry;
+  private int m_channel;
+  private SwerveDrivetrain m_drivetrain;
+  private long m_droppedAtStart;
+  private double m_value;
+
+  @Setup
+  public void setUp() {
+    SimSetup.start();
+    m_telemetry = Telemetry.getInstance();
+    m_channel = m_telemetry.addDouble("/Benchmark/Value");
+    m_drivetrain = new SwerveDrivetrain(
+        new GyroIOSim(), SwerveDrivetrain.createModules(i -> new SwerveModuleIOSim()));
+    m_droppedAtStart = m_telemetry.getDroppedValues();
+  }
+
+  /**
+   * Give the background thread time to empty the buffer before each batch. It only takes
+   * values up to the end of a loop, so end one first, as the robot does after every loop.
+   */
+  @Setup(Level.Iteration)
+  public void waitForFlush() throws InterruptedException {
+    m_telemetry.endLoop();
+    Thread.sleep(DRAIN_WAIT_MILLIS);
+  }
+
+  @TearDown
+  public void tearDown() {
+    SimSetup.stop();
+    if (m_telemetry.getDroppedValues() != m_droppedAtStart) {
+      throw new IllegalStateException(
+          "Telemetry values were dropped, so the timings measured the wrong path");
+    }
+  }
+
+  /** Queue a single number. */
+  @Benchmark
+  @Warmup(iterations = 50, batchSize = VALUES_PER_BATCH)
+  @Measurement(iterations = 100, batchSize = VALUES_PER_BATCH)
+  public void putValue() {
+    m_telemetry.put(m_channel, m_value++);
+  }
+
+  /** Queue everything the drivetrain and its modules publish each loop. */
+  @Benchmark
+  @Warmup(iterations = 50, batchSize = LOOPS_PER_BATCH)
+  @Measurement(iterations = 100, batchSize = LOOPS_PER_BATCH)
+  public void publishDrivetrain() {
+    for (int i = 0; i < m_drivetrain.getModuleCount(); i++) {
+      m_drivetrain.getModule(i).publishTelemetry();
+    }
+    m_drivetrain.publishTelemetry();
+  }
+}
@@ -0,0 +1,31 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import frc.robot.commands.GoToGoalCommand;
+import frc.robot.trajectory.PathProfile;
+
+/**
+ * The list of autonomous paths. Each one is turned into a trajectory file at build time by
+ * {@link frc.robot.trajectory.TrajectoryGenerator}. Add new paths here.
+ */
+public final class AutoPaths {
+  /** The name of the S-curve path used by autonomous. */
+  public static final String GO_TO_GOAL = "GoToGoal";
+
+  private AutoPaths() {}
+
+  /** Every path, by name. */
+  public static Map<String, PathProfile> all() {
+    Map<String, PathProfile> paths = new LinkedHashMap<>();
+    paths.put(GO_TO_GOAL, GoToGoalCommand.createProfile(
+        GoToGoalCommand.SEGMENT_ROTATIONS, GoToGoalCommand.DRIVE_SPEED,
+        GoToGoalCommand.TURN_ROTATIONS));
+    return paths;
+  }
+}
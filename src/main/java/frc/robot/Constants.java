@@ -11,4 +11,108 @@ public final class Constants {
   public static class OperatorConstants {
     public static final int kDriverControllerPort = 0;
   }
+
+  public static class LoopConstants {
+    // The fast control loop runs 4 times per 20 ms robot loop (200 Hz).
+    public static final double kFastLoopPeriodSeconds = 0.005;
+    // Start the fast loop half a period after the robot loop, so the two never start at the
+    // same moment and the fast ticks are spread evenly between robot loops.
+    public static final double kFastLoopOffsetSeconds = 0.0025;
+  }
+
+  public static class SwerveConstants {
+    // How many times per second the odometry thread samples the wheel positions.
+    public static final double kOdometryFrequencyHz = 250.0;
+
+    // CAN IDs of each module's motors, in the order front-left, front-right, back-left,
+    // back-right. Module 0 is the original lesson module on IDs 7 and 8.
+    public static final int[] kDriveMotorIds = {7, 1, 3, 5};
+    public static final int[] kSteerMotorIds = {8, 2, 4, 6};
+
+    // Where each module sits, measured from the center of the robot in meters.
+    // Positive x is toward the front of the robot, positive y is toward the left side.
+    public static final double[] kModuleXMeters = {0.28, 0.28, -0.28, -0.28};
+    public static final double[] kModuleYMeters = {0.28, -0.28, 0.28, -0.28};
+
+    // CAN ID of the Pigeon 2 gyro, which tells us which way the robot is facing.
+    public static final int kPigeonId = 20;
+
+    // Gear ratios: motor rotations for one rotation of the wheel (drive) or module (steer).
+    public static final double kDriveGearRatio = 6.75;
+    public static final double kSteerGearRatio = 12.8;
+    public static final double kWheelDiameterMeters = 0.1016; // 4 inch wheels
+
+    // Drive motor rotations needed to roll the robot forward one meter.
+    public static final double kDriveRotationsPerMeter =
+        kDriveGearRatio / (Math.PI * kWheelDiameterMeters);
+
+    // Top speeds used to scale the joystick.
+    public static final double kMaxSpeedMetersPerSecond = 4.5;
+    public static final double kMaxAngularSpeedRadiansPerSecond = 2 * Math.PI;
+
+    // Drive motor closed-loop gains, in volts per motor rotation (per second) units.
+    // kS = volts to overcome friction, kV = volts per rotation per second, kA = volts per
+    // rotation per second squared, kP = extra volts per rotation per second of error.
+    public static final double kDriveKS = 0.15;
+    public static final double kDriveKV = 0.12;
+    public static final double kDriveKA = 0.01;
+    public static final double kDriveKP = 0.1;
+
+    // Extra gains for Motion Magic distance moves, which correct position error instead of
+    // speed error: kP is volts per rotation of error, kD is volts per rotation per second.
+    public static final double kDrivePositionKP = 2.0;
+    public static final double kDrivePositionKD = 0.05;
+
+    // Motion Magic limits for distance moves, in drive motor rotations per second (squared).
+    public static final double kDriveCruiseVelocity =
+        kMaxSpeedMetersPerSecond * kDriveRotationsPerMeter;
+    public static final double kDriveAcceleration = 2 * kDriveCruiseVelocity;
+
+    // A distance move is done when the wheel is this close to the target and nearly stopped.
+    public static final double kDrivePositionToleranceRotations = 0.1;
+    public static final double kDriveVelocityToleranceRotationsPerSecond = 1.0;
+
+    // Steering gains, in volts per module rotation units. The feedforward (kS, kV, kA) gives
+    // the motor the voltage the planned move needs; kP and kD only fix what is left over.
+    public static final double kSteerKS = 0.1;
+    public static final double kSteerKV = 1.5;
+    public static final double kSteerKA = 0.003;
+    public static final double kSteerKP = 20;
+    public static final double kSteerKD = 0.2;
+
+    // Motion Magic Expo limits for steering moves: the planned move assumes the steering needs
+    // this many volts per rotation per second (kV) and per rotation per second squared (kA).
+    // Slightly higher than the real gains, so the plan never asks for more than the battery has.
+    public static final double kSteerExpoKV = 1.6;
+    public static final double kSteerExpoKA = 0.05;
+
+    // A steering move is done when the module is this close to the target and nearly stopped.
+    public static final double kSteerPositionToleranceRotations = 0.01;
+    public static final double kSteerVelocityToleranceRotationsPerSecond = 0.05;
+
+    // Simulation only: how hard each wheel and module is to spin up (moment of inertia, kg*m^2).
+    public static final double kSimDriveInertia = 0.025;
+    public static final double kSimSteerInertia = 0.004;
+
+    // Joystick values smaller than this are treated as zero, so a resting stick does not creep.
+    public static final double kJoystickDeadband = 0.1;
+  }
+
+  public static class PoseConstants {
+    // How much odometry to remember for late camera frames: 1.5 s of 250 Hz samples.
+    public static final int kHistoryCapacity =
+        (int) Math.ceil(1.5 * SwerveConstants.kOdometryFrequencyHz);
+    // How far each camera frame moves the estimate toward what the camera saw:
+    // 0 ignores the camera, 1 jumps straight to it. Small values average out camera noise.
+    public static final double kVisionTranslationWeight = 0.1;
+    public static final double kVisionHeadingWeight = 0.05;
+    // Frames older than this are ignored, even if the history still reaches back that far.
+    public static final double kVisionMaxAgeSeconds = 0.5;
+
+    // Simulation only: the pretend camera's frame rate, processing delay and noise.
+    public static final double kSimCameraFrameRateHz = 30.0;
+    public static final double kSimCameraLatencySeconds = 0.05;
+    public static final double kSimCameraNoiseMeters = 0.02;
+    public static final double kSimCameraNoiseRadians = 0.01;
+  }
 }
@@ -4,9 +4,20 @@
 
 package frc.robot;
 
+import com.ctre.phoenix6.SignalLogger;
+
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.Constants.LoopConstants;
+import frc.robot.replay.InputLogWriter;
+import frc.robot.util.BackgroundExecutor;
+import frc.robot.util.LoopBudgetManager;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.SignalRateManager;
+import frc.robot.util.SignalRateManager.Mode;
+import frc.robot.util.Telemetry;
 
 /**
  * WPILib calls these methods as the robot switches modes (disabled, auto, teleop, test).
@@ -23,8 +34,34 @@ public class Robot extends TimedRobot {
   public Robot() {
     // Instantiate our RobotContainer.  This will perform all our button bindings, and put our
     // autonomous chooser on the dashboard.
-    m_robotContainer = new RobotContainer();
+    this(new RobotContainer());
+  }
 
+  /**
+   * Build the robot around a container that was already made. Tests use this to run the robot
+   * with simulated hardware, and {@link frc.robot.replay.ReplayEngine} to replay a match log.
+   */
+  public Robot(RobotContainer robotContainer) {
+    m_robotContainer = robotContainer;
+
+    // Run the fast control callbacks at 200 Hz, shifted so they fall between robot loops.
+    // Commands stay at 50 Hz; only the small low-level callbacks run this often.
+    addPeriodic(
+        m_robotContainer.getFastControlLoop()::run,
+        LoopConstants.kFastLoopPeriodSeconds,
+        LoopConstants.kFastLoopOffsetSeconds);
+
+    // The command scheduler moves the motors, so it runs every loop no matter what. Finished
+    // background work is handed over just before it, so commands waiting on it see it this
+    // loop. The timing reports are diagnostics and can wait when the loop is short on time.
+    LoopBudgetManager loopBudget = m_robotContainer.getLoopBudget();
+    loopBudget.registerCritical(
+        "BackgroundExecutor.deliverResults", BackgroundExecutor.getInstance()::deliverResults);
+    loopBudget.registerCritical("CommandScheduler.run", CommandScheduler.getInstance()::run);
+    loopBudget.registerDeferrable(
+        "LoopProfiler.publish", LoopProfiler.getInstance()::publishIfDue);
+    loopBudget.registerDeferrable(
+        "SignalRateManager.publish", SignalRateManager.getInstance()::publishIfDue);
   }
 
   /**
@@ -36,20 +73,56 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void robotPeriodic() {
-    // Runs the command scheduler so button presses and commands are processed.
-    CommandScheduler.getInstance().run();
+    // Give every telemetry value from this loop the same timestamp.
+    Telemetry.getInstance().setLoopTimestamp(RobotController.getFPGATime());
+    // Save the time and driver inputs first; the subsystems add their sensors as they run.
+    InputLogWriter inputLog = m_robotContainer.getInputLog();
+    if (inputLog != null) {
+      inputLog.beginLoop();
+    }
+
+    // Runs the command scheduler so button presses and commands are processed, then as much
+    // of the telemetry and diagnostics as there is time for.
+    m_robotContainer.getLoopBudget().run();
+    if (inputLog != null) {
+      inputLog.endLoop();
+    }
+    // Everything this loop will publish is in: let the telemetry thread send it.
+    Telemetry.getInstance().endLoop();
+  }
+
+  /** The container that holds the subsystems and commands. */
+  RobotContainer getRobotContainer() {
+    return m_robotContainer;
+  }
+
+  /** The autonomous command scheduled in {@link #autonomousInit()}, or null. */
+  Command getAutonomousCommand() {
+    return m_autonomousCommand;
   }
 
   /** This function is called once each time the robot enters Disabled mode. */
   @Override
-  public void disabledInit() {}
+  public void disabledInit() {
+    // Slow down the CAN values that are only needed while driving.
+    SignalRateManager.getInstance().setMode(Mode.DISABLED);
+    // A match just ended (or has not started): a good moment to get the input log onto disk.
+    InputLogWriter inputLog = m_robotContainer.getInputLog();
+    if (inputLog != null) {
+      inputLog.flush();
+    }
+  }
 
   @Override
-  public void disabledPeriodic() {}
+  public void disabledPeriodic() {
+    // Use the idle time before a match to get the control code compiled by the JIT.
+    m_robotContainer.getWarmUp().run();
+  }
 
   /** Called one time when autonomous mode starts. */
   @Override
   public void autonomousInit() {
+    SignalRateManager.getInstance().setMode(Mode.AUTONOMOUS);
     m_autonomousCommand = m_robotContainer.getAutonomousCommand();
 
     // Schedule the chosen autonomous command if one is set.
@@ -64,6 +137,7 @@ public class Robot extends TimedRobot {
 
   @Override
   public void teleopInit() {
+    SignalRateManager.getInstance().setMode(Mode.TELEOP);
     // Stop the autonomous command so driver control can take over cleanly.
     if (m_autonomousCommand != null) {
       m_autonomousCommand.cancel();
@@ -76,10 +150,19 @@ public class Robot extends TimedRobot {
 
   @Override
   public void testInit() {
+    SignalRateManager.getInstance().setMode(Mode.TEST);
+    // Record every motor signal for the SysId tests, at the rates set for test mode.
+    SignalLogger.start();
     // Stop every running command so test mode starts from a clean state.
     CommandScheduler.getInstance().cancelAll();
   }
 
+  @Override
+  public void testExit() {
+    // Close the log so Tuner X can read it.
+    SignalLogger.stop();
+  }
+
   /** This function is called periodically during test mode. */
   @Override
   public void testPeriodic() {}
@@ -88,7 +171,12 @@ public class Robot extends TimedRobot {
   @Override
   public void simulationInit() {}
 
-  /** This function is called periodically whilst in simulation. */
+  /**
+   * This function is called periodically whilst in simulation.
+   * The battery model lives in the drivetrain's simulationPeriodic(), which the command
+   * scheduler calls for us, and the simulated wheels and gyro move in the fast control loop,
+   * so nothing is needed here.
+   */
   @Override
   public void simulationPeriodic() {}
 }
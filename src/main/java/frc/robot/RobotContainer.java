@@ -5,17 +5,47 @@
 package frc.robot;
 
 import frc.robot.Constants.OperatorConstants;
+import frc.robot.Constants.SwerveConstants;
 import frc.robot.commands.ExampleCommand;
+import frc.robot.commands.FollowTrajectoryCommand;
 import frc.robot.commands.GoToGoalCommand;
 import frc.robot.commands.RotateSteeringCommand;
 import frc.robot.commands.RotateToAngleCommand;
 import frc.robot.commands.SpinWheelCommand;
+import frc.robot.replay.InputLogRecord;
+import frc.robot.replay.InputLogWriter;
+import frc.robot.replay.RecordingGyroIO;
+import frc.robot.replay.RecordingSwerveModuleIO;
+import frc.robot.replay.RecordingVisionIO;
 import frc.robot.subsystems.ExampleSubsystem;
+import frc.robot.subsystems.GyroIO;
+import frc.robot.subsystems.GyroIOPigeon2;
+import frc.robot.subsystems.OdometryThread;
+import frc.robot.subsystems.PoseEstimator;
+import frc.robot.subsystems.SwerveDrivetrain;
 import frc.robot.subsystems.SwerveModule;
+import frc.robot.subsystems.SwerveModuleIO;
+import frc.robot.subsystems.SwerveModuleIOTalonFX;
+import frc.robot.subsystems.Vision;
+import frc.robot.subsystems.VisionIO;
+import frc.robot.subsystems.VisionIOSim;
+import frc.robot.trajectory.Trajectory;
+import frc.robot.trajectory.TrajectoryLibrary;
+import frc.robot.util.FastControlLoop;
+import frc.robot.util.LoopBudgetManager;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.SignalRateManager;
+import java.util.function.IntFunction;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.RunCommand;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
+import edu.wpi.first.wpilibj2.command.button.RobotModeTriggers;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
+import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine.Direction;
 
 /**
  * This class pulls together the main parts of the robot program.
@@ -24,7 +54,25 @@ import edu.wpi.first.wpilibj2.command.button.Trigger;
 public class RobotContainer {
   // The robot's subsystems and commands are defined here...
   private final ExampleSubsystem m_exampleSubsystem = new ExampleSubsystem();
-  private final SwerveModule m_swerveModule = new SwerveModule();
+  private final SwerveDrivetrain m_drivetrain;
+  // The front-left module. The single-wheel lesson commands below use this one.
+  private final SwerveModule m_swerveModule;
+  // Where the robot is on the field, from odometry plus the camera.
+  private final PoseEstimator m_poseEstimator;
+  private final Vision m_vision;
+  // Fast control callbacks, run by Robot between the 50 Hz robot loops.
+  private final FastControlLoop m_fastControlLoop = new FastControlLoop();
+  // Runs the loop's work and holds back telemetry when the loop is short on time.
+  private final LoopBudgetManager m_loopBudget = new LoopBudgetManager();
+
+  // Paths worked out at build time, memory-mapped from the deploy folder at boot.
+  private final TrajectoryLibrary m_trajectories = TrajectoryLibrary.loadDeployed();
+  // Built once at boot, so nothing has to be made when autonomous starts.
+  private final Command m_autonomousCommand;
+  // Runs the control code on pretend modules while disabled, so it is fast by autonomous.
+  private final WarmUp m_warmUp;
+  // Saves every loop's sensor and driver inputs so the match can be replayed. May be null.
+  private final InputLogWriter m_inputLog;
 
   // Replace with CommandPS4Controller or CommandJoystick if needed
   private final CommandXboxController m_driverController =
@@ -32,41 +80,240 @@ public class RobotContainer {
 
   /** The container for the robot. Contains subsystems, OI devices, and commands. */
   public RobotContainer() {
+    this(
+        i -> new SwerveModuleIOTalonFX(
+            SwerveConstants.kDriveMotorIds[i], SwerveConstants.kSteerMotorIds[i]),
+        new GyroIOPigeon2(SwerveConstants.kPigeonId),
+        InputLogWriter.createInLogDirectory(SwerveConstants.kModuleXMeters.length));
+
+    // All modules are built now, so the fast wheel-position sampling can begin.
+    OdometryThread.getInstance().start();
+    // Every CAN device is built too: set the signal rates and turn off unused signals.
+    SignalRateManager.getInstance().start();
+  }
+
+  /**
+   * Build the robot with any hardware. Tests use this to run the real robot code on
+   * pure-Java simulated motors and gyro.
+   *
+   * @param moduleIOFactory Makes the IO for swerve module number i.
+   * @param gyroIO The gyro to use.
+   */
+  public RobotContainer(IntFunction<SwerveModuleIO> moduleIOFactory, GyroIO gyroIO) {
+    this(moduleIOFactory, gyroIO, null);
+  }
+
+  /**
+   * Build the robot with any hardware, saving everything it reads to an input log.
+   *
+   * @param moduleIOFactory Makes the IO for swerve module number i.
+   * @param gyroIO The gyro to use.
+   * @param inputLog Where to record the inputs, or null to not record.
+   */
+  public RobotContainer(
+      IntFunction<SwerveModuleIO> moduleIOFactory, GyroIO gyroIO, InputLogWriter inputLog) {
+    this(moduleIOFactory, gyroIO, null, inputLog);
+  }
+
+  /**
+   * Build the robot with any hardware, including the camera.
+   *
+   * @param moduleIOFactory Makes the IO for swerve module number i.
+   * @param gyroIO The gyro to use.
+   * @param visionIO The camera to use, or null for the usual one: a simulated camera that
+   *     sees the simulated robot's true pose, or none on the real robot.
+   * @param inputLog Where to record the inputs, or null to not record.
+   */
+  public RobotContainer(
+      IntFunction<SwerveModuleIO> moduleIOFactory, GyroIO gyroIO, VisionIO visionIO,
+      InputLogWriter inputLog) {
+    m_inputLog = inputLog;
+    IntFunction<SwerveModuleIO> moduleIOs = moduleIOFactory;
+    GyroIO gyro = gyroIO;
+    if (inputLog != null) {
+      // Wrap the hardware so every value it reads is also copied into the log.
+      InputLogRecord record = inputLog.getRecord();
+      moduleIOs = i -> new RecordingSwerveModuleIO(moduleIOFactory.apply(i), record.modules[i]);
+      gyro = new RecordingGyroIO(gyroIO, record.gyro);
+    }
+    m_drivetrain = new SwerveDrivetrain(gyro, SwerveDrivetrain.createModules(moduleIOs));
+    m_swerveModule = m_drivetrain.getModule(0);
+    // Built after the drivetrain, and the camera after the estimator, so each one runs after
+    // the readings it needs. The robot has no camera yet, so only simulation gets one.
+    m_poseEstimator = new PoseEstimator(m_drivetrain);
+    VisionIO camera = visionIO;
+    if (camera == null) {
+      camera = RobotBase.isSimulation()
+          ? new VisionIOSim(m_drivetrain.getSimulatedPoseHistory(), Timer::getFPGATimestamp)
+          : new VisionIO() {};
+    }
+    if (inputLog != null) {
+      camera = new RecordingVisionIO(camera, inputLog.getRecord().vision);
+    }
+    m_vision = new Vision(camera, m_poseEstimator);
+
+    // Dashboard values are the first thing to give up when a loop runs long.
+    for (int i = 0; i < m_drivetrain.getModuleCount(); i++) {
+      SwerveModule module = m_drivetrain.getModule(i);
+      m_loopBudget.registerDeferrable(module.getName() + ".telemetry", module::publishTelemetry);
+    }
+    m_loopBudget.registerDeferrable("SwerveDrivetrain.telemetry", m_drivetrain::publishTelemetry);
+    m_loopBudget.registerDeferrable("PoseEstimator.telemetry", m_poseEstimator::publishTelemetry);
+    m_loopBudget.registerDeferrable("Vision.telemetry", m_vision::publishTelemetry);
+    for (int i = 0; i < m_drivetrain.getModuleCount(); i++) {
+      SwerveModule module = m_drivetrain.getModule(i);
+      if (RobotBase.isSimulation()) {
+        // The simulated wheels move in the same 5 ms steps, just before the module looks.
+        m_fastControlLoop.register(module::simulationFastPeriodic);
+      }
+      m_fastControlLoop.register(module::fastPeriodic);
+    }
+    if (RobotBase.isSimulation()) {
+      // Once every wheel has moved, work out where the simulated robot really is.
+      m_fastControlLoop.register(m_drivetrain::simulationFastPeriodic);
+    }
+
     // Configure the trigger bindings
     configureBindings();
+
+    m_autonomousCommand = LoopProfiler.profile(createAutonomousCommand());
+    m_warmUp = new WarmUp(m_trajectories);
+  }
+
+  /**
+   * Use the precomputed GoToGoal trajectory if it was deployed. If it is missing (for example,
+   * the trajectories were never generated), fall back to working the path out live.
+   */
+  private Command createAutonomousCommand() {
+    Trajectory trajectory = m_trajectories.get(AutoPaths.GO_TO_GOAL);
+    if (trajectory != null) {
+      return new FollowTrajectoryCommand(m_swerveModule, trajectory).withName("GoToGoal");
+    }
+    DriverStation.reportWarning(
+        "No " + AutoPaths.GO_TO_GOAL + " trajectory deployed; computing the path live", false);
+    return new GoToGoalCommand(m_swerveModule);
+  }
+
+  /** The fast control loop that {@link Robot} runs between robot loops. */
+  public FastControlLoop getFastControlLoop() {
+    return m_fastControlLoop;
+  }
+
+  /** The loop budget manager that {@link Robot} runs every loop. */
+  public LoopBudgetManager getLoopBudget() {
+    return m_loopBudget;
+  }
+
+  /** The JIT warm-up that {@link Robot} runs while disabled. */
+  public WarmUp getWarmUp() {
+    return m_warmUp;
+  }
+
+  /** The input log that {@link Robot} fills every loop, or null if nothing is recorded. */
+  public InputLogWriter getInputLog() {
+    return m_inputLog;
+  }
+
+  /** The drivetrain, so tests can check where the wheels ended up. */
+  public SwerveDrivetrain getDrivetrain() {
+    return m_drivetrain;
+  }
+
+  /** The robot's estimated field pose. */
+  public PoseEstimator getPoseEstimator() {
+    return m_poseEstimator;
+  }
+
+  /** The camera subsystem that feeds the pose estimator. */
+  public Vision getVision() {
+    return m_vision;
   }
 
   /**
    * Give back the command that runs during the autonomous period.
    * Executes a complex navigation routine with driving and turning.
+   * The command is wrapped by the {@link LoopProfiler} so its timing shows on the dashboard.
    *
    * @return the command to run in autonomous
    */
   public Command getAutonomousCommand() {
     // Execute goal-seeking autonomous routine
-    return new GoToGoalCommand(m_swerveModule);
+    return m_autonomousCommand;
   }
 
   /**
    * Match controller actions to commands.
    * A trigger checks something that can be true or false, like a button press.
    * When a trigger becomes true, the linked command starts running.
+   * Commands are wrapped with {@link LoopProfiler#profile} so we can see how long they take.
    */
   private void configureBindings() {
-    m_swerveModule.setDefaultCommand(
-        new RunCommand(() -> m_swerveModule.drive(m_driverController.getLeftY()), m_swerveModule));
+    // Drive field-relative: left stick moves the robot, right stick turns it.
+    // Pushing a stick forward gives a negative value, so we flip the sign.
+    m_drivetrain.setDefaultCommand(LoopProfiler.profile(
+        new RunCommand(
+            () -> m_drivetrain.drive(
+                -MathUtil.applyDeadband(
+                    m_driverController.getLeftY(), SwerveConstants.kJoystickDeadband)
+                    * SwerveConstants.kMaxSpeedMetersPerSecond,
+                -MathUtil.applyDeadband(
+                    m_driverController.getLeftX(), SwerveConstants.kJoystickDeadband)
+                    * SwerveConstants.kMaxSpeedMetersPerSecond,
+                -MathUtil.applyDeadband(
+                    m_driverController.getRightX(), SwerveConstants.kJoystickDeadband)
+                    * SwerveConstants.kMaxAngularSpeedRadiansPerSecond,
+                true),
+            m_drivetrain).withName("TeleopDrive")));
 
     // When exampleCondition becomes true, run ExampleCommand once.
     new Trigger(m_exampleSubsystem::exampleCondition)
         .onTrue(new ExampleCommand(m_exampleSubsystem));
 
+    // In test mode the face buttons run system identification instead (see below).
+    Trigger notTestMode = RobotModeTriggers.test().negate();
+
     // When X button is pressed, spin the wheel 10 rotations.
-    m_driverController.x().onTrue(new SpinWheelCommand(m_swerveModule));
+    m_driverController.x().and(notTestMode).onTrue(
+        LoopProfiler.profile(new SpinWheelCommand(m_swerveModule)));
 
     // While Y button is held, rotate the steering wheel at slow speed.
-    m_driverController.y().whileTrue(new RotateSteeringCommand(m_swerveModule));
+    m_driverController.y().and(notTestMode).whileTrue(
+        LoopProfiler.profile(new RotateSteeringCommand(m_swerveModule)));
 
     // When B button is pressed, rotate the steering wheel 90 degrees (0.25 rotations).
-    m_driverController.b().onTrue(new RotateToAngleCommand(m_swerveModule, 0.25));
+    m_driverController.b().and(notTestMode).onTrue(
+        LoopProfiler.profile(new RotateToAngleCommand(m_swerveModule, 0.25)));
+
+    configureSysIdBindings();
+  }
+
+  /**
+   * Test mode only: measure the feedforward gains of the front-left module.
+   * Hold a button to run one test; the data goes to the CTRE signal log for the SysId tool.
+   * A = slow ramp forward, B = slow ramp backward, X = step forward, Y = step backward.
+   * Hold the left bumper too to test the steering motor instead of the drive motor.
+   */
+  private void configureSysIdBindings() {
+    Trigger testMode = RobotModeTriggers.test();
+    Trigger drive = testMode.and(m_driverController.leftBumper().negate());
+    Trigger steer = testMode.and(m_driverController.leftBumper());
+
+    drive.and(m_driverController.a())
+        .whileTrue(m_swerveModule.sysIdDriveQuasistatic(Direction.kForward));
+    drive.and(m_driverController.b())
+        .whileTrue(m_swerveModule.sysIdDriveQuasistatic(Direction.kReverse));
+    drive.and(m_driverController.x())
+        .whileTrue(m_swerveModule.sysIdDriveDynamic(Direction.kForward));
+    drive.and(m_driverController.y())
+        .whileTrue(m_swerveModule.sysIdDriveDynamic(Direction.kReverse));
+
+    steer.and(m_driverController.a())
+        .whileTrue(m_swerveModule.sysIdSteerQuasistatic(Direction.kForward));
+    steer.and(m_driverController.b())
+        .whileTrue(m_swerveModule.sysIdSteerQuasistatic(Direction.kReverse));
+    steer.and(m_driverController.x())
+        .whileTrue(m_swerveModule.sysIdSteerDynamic(Direction.kForward));
+    steer.and(m_driverController.y())
+        .whileTrue(m_swerveModule.sysIdSteerDynamic(Direction.kReverse));
   }
 }
@@ -0,0 +1,314 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Constants.LoopConstants;
+import frc.robot.Constants.SwerveConstants;
+import frc.robot.commands.FollowTrajectoryCommand;
+import frc.robot.commands.GoToGoalCommand;
+import frc.robot.commands.RotateSteeringCommand;
+import frc.robot.commands.RotateToAngleCommand;
+import frc.robot.commands.SpinWheelCommand;
+import frc.robot.subsystems.SwerveModule;
+import frc.robot.subsystems.SwerveModuleIO;
+import frc.robot.trajectory.Trajectory;
+import frc.robot.trajectory.TrajectoryLibrary;
+import frc.robot.util.OdometrySampleBuffer;
+import frc.robot.util.SwerveKinematics;
+import frc.robot.util.Telemetry;
+
+/**
+ * Runs the robot's control code over and over while the robot is disabled, so it is fast by
+ * the time autonomous starts.
+ *
+ * <p>Java does not turn our code into fast machine code right away. The first few thousand
+ * times a method runs, the JVM loads its classes and interprets it slowly. Only after that
+ * does the JIT ("just in time") compiler build a fast version. Without warm-up, that slow
+ * start happens in the first seconds of autonomous and shows up as loop overruns.
+ *
+ * <p>Warm-up runs each command's initialize(), execute(), isFinished() and end() and the
+ * swerve kinematics many times. It uses its own hidden modules (see
+ * {@link SwerveModule#createHidden}), which are not on the dashboard, in the loop timing or in
+ * the command scheduler. Their IO is a tiny pretend wheel, so no motor ever moves and no time
+ * goes into a detailed motor model. Each call to {@link #run()} only uses a few milliseconds,
+ * so the disabled loop stays on time.
+ *
+ * <p>Hundreds of pretend loops run in those few milliseconds, so the real clock would barely
+ * move. The hidden modules and the trajectory follower use warm-up's own pretend clock
+ * instead, which moves 20 ms each loop. That way the wheels ramp up to speed and the commands
+ * reach the ends of their paths, their tolerance checks and their timeouts.
+ */
+public class WarmUp {
+  // How many loops to run. HotSpot fully compiles a method after roughly 10,000 calls.
+  private static final int TARGET_LOOPS = 15_000;
+  // How much of each 20 ms disabled loop warm-up may use.
+  private static final long BUDGET_NANOS = 5_000_000L;
+  // Restart a command that has not finished after this many loops (8 seconds of sim time).
+  private static final int MAX_COMMAND_LOOPS = 400;
+  // How many fast control ticks happen in one robot loop.
+  private static final int FAST_TICKS_PER_LOOP =
+      (int) Math.round(TimedRobot.kDefaultPeriod / LoopConstants.kFastLoopPeriodSeconds);
+
+  private final List<SwerveModule> m_modules = new ArrayList<>();
+
+  // The commands the robot really runs, each on its own warm-up module.
+  private final Command[] m_commands;
+  // How many loops each command has run since it started, or -1 if it is not running.
+  private final int[] m_commandLoops;
+
+  // A full set of modules driven through the kinematics, like the drivetrain does.
+  private final SwerveModule[] m_driveModules;
+  private final SwerveKinematics m_kinematics =
+      new SwerveKinematics(SwerveConstants.kModuleXMeters, SwerveConstants.kModuleYMeters);
+  private final double[] m_speeds;
+  private final double[] m_angles;
+  private final double[] m_chassisSpeeds = new double[3];
+
+  private final int m_progressChannel = Telemetry.getInstance().addDouble("/WarmUp/Progress");
+  private int m_loopsDone;
+  // The pretend time in seconds, moved forward by each loop and fast tick.
+  private double m_timeSeconds;
+  private final DoubleSupplier m_clockSeconds = () -> m_timeSeconds;
+  private long m_busyNanos;
+  private boolean m_skipped;
+
+  /**
+   * A pretend wheel for warm-up. Each motor simply moves toward what it was asked for at a
+   * limited speed. That is far cheaper than {@link frc.robot.subsystems.SwerveModuleIOSim}'s
+   * motor model, and still lets the commands see the wheel move and finish.
+   */
+  private static final class WarmUpModuleIO implements SwerveModuleIO {
+    // In motor rotations per second for the drive, module rotations per second for steering.
+    private static final double MAX_DRIVE_SPEED = SwerveConstants.kDriveCruiseVelocity;
+    private static final double MAX_STEER_SPEED = 2.0;
+
+    private final OdometrySampleBuffer m_odometryBuffer = new OdometrySampleBuffer(16);
+    private double m_time;
+
+    private double m_drivePosition;
+    private double m_driveVelocity;
+    // The drive position to move to, or NaN when the drive was given a speed instead.
+    private double m_driveTarget = Double.NaN;
+    private double m_driveCruiseVelocity = MAX_DRIVE_SPEED;
+    private double m_steerPosition;
+    private double m_steerVelocity;
+    // The steering position to move to, or NaN when the steering was given a speed instead.
+    private double m_steerTarget = Double.NaN;
+
+    @Override
+    public void updateInputs(SwerveModuleIOInputs inputs) {
+      inputs.drivePositionRotations = m_drivePosition;
+      inputs.driveVelocityRotationsPerSecond = m_driveVelocity;
+      inputs.steerPositionRotations = m_steerPosition;
+      inputs.steerVelocityRotationsPerSecond = m_steerVelocity;
+    }
+
+    @Override
+    public double readSteerPosition() {
+      return m_steerPosition;
+    }
+
+    @Override
+    public OdometrySampleBuffer getOdometryBuffer() {
+      return m_odometryBuffer;
+    }
+
+    @Override
+    public void setDriveDutyCycle(double output) {
+      setDriveVelocity(output * MAX_DRIVE_SPEED);
+    }
+
+    @Override
+    public void setDriveVoltage(double volts) {
+      setDriveVelocity(volts / 12.0 * MAX_DRIVE_SPEED);
+    }
+
+    @Override
+    public void setDrivePosition(double rotations, double cruiseVelocity) {
+      m_driveTarget = rotations;
+      m_driveCruiseVelocity = Math.min(Math.abs(cruiseVelocity), MAX_DRIVE_SPEED);
+    }
+
+    @Override
+    public void setDriveVelocity(double rotationsPerSecond) {
+      m_driveTarget = Double.NaN;
+      m_driveVelocity = rotationsPerSecond;
+    }
+
+    @Override
+    public void setSteerDutyCycle(double output) {
+      m_steerTarget = Double.NaN;
+      m_steerVelocity = output * MAX_STEER_SPEED;
+    }
+
+    @Override
+    public void setSteerVoltage(double volts) {
+      setSteerDutyCycle(volts / 12.0);
+    }
+
+    @Override
+    public void setSteerPosition(double rotations) {
+      m_steerTarget = rotations;
+    }
+
+    @Override
+    public void setSteerGains(double kP, double kD) {}
+
+    @Override
+    public void simulationPeriodic(double dtSeconds) {
+      if (!Double.isNaN(m_driveTarget)) {
+        m_driveVelocity = MathUtil.clamp(
+            (m_driveTarget - m_drivePosition) / dtSeconds,
+            -m_driveCruiseVelocity, m_driveCruiseVelocity);
+      }
+      if (!Double.isNaN(m_steerTarget)) {
+        m_steerVelocity = MathUtil.clamp(
+            (m_steerTarget - m_steerPosition) / dtSeconds, -MAX_STEER_SPEED, MAX_STEER_SPEED);
+      }
+      m_drivePosition += m_driveVelocity * dtSeconds;
+      m_steerPosition += m_steerVelocity * dtSeconds;
+      m_time += dtSeconds;
+      m_odometryBuffer.add(m_time, m_drivePosition, m_steerPosition);
+    }
+  }
+
+  /**
+   * Build the warm-up modules and commands. Nothing runs until {@link #run()} is called.
+   *
+   * @param trajectories The deployed trajectories, so the trajectory follower is warmed too.
+   */
+  public WarmUp(TrajectoryLibrary trajectories) {
+    List<Command> commands = new ArrayList<>();
+    commands.add(new GoToGoalCommand(createModule("GoToGoal")));
+    Trajectory trajectory = trajectories.get(AutoPaths.GO_TO_GOAL);
+    if (trajectory != null) {
+      commands.add(new FollowTrajectoryCommand(
+          createModule("FollowTrajectory"), trajectory, m_clockSeconds));
+    }
+    commands.add(new SpinWheelCommand(createModule("SpinWheel")));
+    commands.add(new RotateSteeringCommand(createModule("RotateSteering")));
+    commands.add(new RotateToAngleCommand(createModule("RotateToAngle"), 0.25));
+    m_commands = commands.toArray(new Command[0]);
+    m_commandLoops = new int[m_commands.length];
+    Arrays.fill(m_commandLoops, -1);
+
+    m_driveModules = new SwerveModule[m_kinematics.getModuleCount()];
+    for (int i = 0; i < m_driveModules.length; i++) {
+      m_driveModules[i] = createModule("Drive" + i);
+    }
+    m_speeds = new double[m_driveModules.length];
+    m_angles = new double[m_driveModules.length];
+  }
+
+  private SwerveModule createModule(String name) {
+    SwerveModule module =
+        SwerveModule.createHidden("WarmUp" + name, new WarmUpModuleIO(), m_clockSeconds);
+    m_modules.add(module);
+    return module;
+  }
+
+  /**
+   * Turn warm-up off, for example while replaying a log. A replay should only run the robot's
+   * own code, and warm-up's time budget would make each replay do a different amount of work.
+   */
+  public void skip() {
+    m_skipped = true;
+  }
+
+  /**
+   * True once enough loops have run for the JIT to have compiled the control code, or if
+   * warm-up was skipped.
+   */
+  public boolean isComplete() {
+    return m_skipped || m_loopsDone >= TARGET_LOOPS;
+  }
+
+  /**
+   * Do a few milliseconds of warm-up. Call this from disabledPeriodic(). It does nothing once
+   * warm-up is complete.
+   */
+  public void run() {
+    if (isComplete()) {
+      return;
+    }
+    long start = System.nanoTime();
+    do {
+      runLoop();
+    } while (!isComplete() && System.nanoTime() - start < BUDGET_NANOS);
+    m_busyNanos += System.nanoTime() - start;
+    Telemetry.getInstance().put(m_progressChannel, (double) m_loopsDone / TARGET_LOOPS);
+
+    if (isComplete()) {
+      // Leave every command ended, the same as when the robot is disabled.
+      for (int i = 0; i < m_commands.length; i++) {
+        if (m_commandLoops[i] >= 0) {
+          m_commands[i].end(true);
+        }
+      }
+      DataLogManager.log(String.format(
+          "Warm-up complete: %d loops in %.0f ms", m_loopsDone, m_busyNanos / 1e6));
+    }
+  }
+
+  /** One pretend robot loop, in the same order the real one runs. */
+  private void runLoop() {
+    double time = m_loopsDone * TimedRobot.kDefaultPeriod;
+    m_timeSeconds = time;
+    for (int i = 0; i < m_modules.size(); i++) {
+      m_modules.get(i).refreshSensors();
+    }
+
+    // The drivetrain's work: chassis speeds to wheel states and back, with a request that
+    // keeps changing so every branch gets used.
+    m_kinematics.toModuleStates(
+        2 * Math.sin(time), Math.cos(0.7 * time), 3 * Math.sin(0.3 * time), m_speeds, m_angles);
+    m_kinematics.desaturate(m_speeds, SwerveConstants.kMaxSpeedMetersPerSecond);
+    for (int i = 0; i < m_driveModules.length; i++) {
+      m_driveModules[i].setDesiredState(m_speeds[i], m_angles[i]);
+      m_speeds[i] = m_driveModules[i].getWheelSpeedMetersPerSecond();
+      m_angles[i] = m_driveModules[i].getRotations();
+    }
+    m_kinematics.toChassisSpeeds(m_speeds, m_angles, m_chassisSpeeds);
+
+    // The commands, called the way the scheduler calls them.
+    for (int i = 0; i < m_commands.length; i++) {
+      Command command = m_commands[i];
+      if (m_commandLoops[i] < 0) {
+        command.initialize();
+        m_commandLoops[i] = 0;
+      }
+      command.execute();
+      m_commandLoops[i]++;
+      boolean finished = command.isFinished();
+      if (finished || m_commandLoops[i] >= MAX_COMMAND_LOOPS) {
+        command.end(!finished);
+        m_commandLoops[i] = -1;
+      }
+    }
+
+    // Move the pretend wheels forward in fast ticks, like simulation does, so the commands
+    // see the wheels respond and finish.
+    for (int tick = 0; tick < FAST_TICKS_PER_LOOP; tick++) {
+      m_timeSeconds = time + LoopConstants.kFastLoopOffsetSeconds
+          + tick * LoopConstants.kFastLoopPeriodSeconds;
+      for (int i = 0; i < m_modules.size(); i++) {
+        m_modules.get(i).simulationFastPeriodic();
+      }
+      for (int i = 0; i < m_driveModules.length; i++) {
+        m_driveModules[i].fastPeriodic();
+      }
+    }
+    m_loopsDone++;
+  }
+}
@@ -4,19 +4,27 @@
 
 package frc.robot.commands;
 
+import frc.robot.Constants.SwerveConstants;
 import frc.robot.subsystems.SwerveModule;
 import edu.wpi.first.wpilibj2.command.Command;
 
 /**
  * Command that simultaneously drives forward and rotates the steering to create arc motion.
- * Combines drive and steering control in a single command to avoid subsystem requirement conflicts.
+ * Combines drive and steering control in a single command to avoid subsystem requirement
+ * conflicts.
+ *
+ * <p>The drive distance is handed to the motor controller as a Motion Magic request, the same
+ * way {@link DriveDistanceCommand} does it. The speed fraction only sets the cruise speed of
+ * that move. The motor controller speeds up, cruises and slows down on its own, so the wheel
+ * stops on the target instead of rolling past it while it waits for the next 20 ms loop. The
+ * cruise speed does not depend on the battery voltage or load, so the arc keeps its shape.
  */
 public class DriveAndTurnCommand extends Command {
   private final SwerveModule m_swerveModule;
   private final double m_driveRotations;
-  private final double m_driveSpeed;
+  private final double m_cruiseVelocity;
   private final double m_steerRotations;
-  private double m_startDrivePosition;
+  private double m_targetDrivePosition;
   private double m_targetSteerPosition;
 
   /**
@@ -24,13 +32,16 @@ public class DriveAndTurnCommand extends Command {
    *
    * @param swerveModule The subsystem used by this command.
    * @param driveRotations The number of drive rotations to complete.
-   * @param driveSpeed The speed to drive at (0.0 to 1.0).
+   * @param driveSpeed The speed to drive at (0.0 to 1.0), as a fraction of top speed.
    * @param steerRotations The number of steering rotations (can be positive or negative).
    */
-  public DriveAndTurnCommand(SwerveModule swerveModule, double driveRotations, double driveSpeed, double steerRotations) {
+  public DriveAndTurnCommand(
+      SwerveModule swerveModule, double driveRotations, double driveSpeed,
+      double steerRotations) {
     m_swerveModule = swerveModule;
     m_driveRotations = driveRotations;
-    m_driveSpeed = driveSpeed;
+    // Turn the fraction of top speed into drive motor rotations per second.
+    m_cruiseVelocity = driveSpeed * SwerveConstants.kDriveCruiseVelocity;
     m_steerRotations = steerRotations;
     addRequirements(swerveModule);
   }
@@ -38,17 +49,18 @@ public class DriveAndTurnCommand extends Command {
   // Called when the command is initially scheduled.
   @Override
   public void initialize() {
-    m_startDrivePosition = m_swerveModule.getDrivePosition();
+    m_targetDrivePosition = m_swerveModule.getDrivePosition() + m_driveRotations;
     double currentSteerPosition = m_swerveModule.getRotations();
     m_targetSteerPosition = currentSteerPosition + m_steerRotations;
+    m_swerveModule.setDrivePosition(m_targetDrivePosition, m_cruiseVelocity);
   }
 
   // Called every time the scheduler runs while the command is scheduled.
   @Override
   public void execute() {
-    // Drive at constant speed
-    m_swerveModule.drive(m_driveSpeed);
-    
+    // The motor controller does the profiling; we just keep the request active.
+    m_swerveModule.setDrivePosition(m_targetDrivePosition, m_cruiseVelocity);
+
     // Continuously update steering position target
     m_swerveModule.setSteeringPosition(m_targetSteerPosition);
   }
@@ -63,7 +75,6 @@ public class DriveAndTurnCommand extends Command {
   // Returns true when the command should end.
   @Override
   public boolean isFinished() {
-    double currentDrivePosition = m_swerveModule.getDrivePosition();
-    return (currentDrivePosition - m_startDrivePosition) >= m_driveRotations;
+    return m_swerveModule.isDriveSettledAt(m_targetDrivePosition);
   }
 }
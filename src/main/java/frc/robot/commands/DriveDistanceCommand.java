@@ -10,37 +10,45 @@ import edu.wpi.first.wpilibj2.command.Command;
 /**
  * Autonomous command that drives the robot forward a specified distance.
  * Uses the drive motor position to track progress.
+ *
+ * <p>The target position is handed to the motor controller as a Motion Magic request. The motor
+ * controller speeds up, cruises, and slows down on its own, so the wheel stops on the target
+ * instead of overshooting while it waits for the next 20 ms loop.
+ *
+ * <p>The fast odometry samples also tell us the exact moment the distance was reached,
+ * even if that happened between two 20 ms loops. See {@link #getCrossingTimestamp()}.
  */
 public class DriveDistanceCommand extends Command {
   private final SwerveModule m_swerveModule;
   private final double m_rotations;
-  private final double m_speed;
-  private double m_startPosition;
+  private double m_targetPosition;
+  private double m_crossingTimestamp = Double.NaN;
 
   /**
    * Creates a new DriveDistanceCommand.
    *
    * @param swerveModule The subsystem used by this command.
    * @param rotations The number of rotations to drive.
-   * @param speed The speed to drive at (0.0 to 1.0).
    */
-  public DriveDistanceCommand(SwerveModule swerveModule, double rotations, double speed) {
+  public DriveDistanceCommand(SwerveModule swerveModule, double rotations) {
     m_swerveModule = swerveModule;
     m_rotations = rotations;
-    m_speed = speed;
     addRequirements(swerveModule);
   }
 
   // Called when the command is initially scheduled.
   @Override
   public void initialize() {
-    m_startPosition = m_swerveModule.getDrivePosition();
+    m_targetPosition = m_swerveModule.getDrivePosition() + m_rotations;
+    m_crossingTimestamp = Double.NaN;
+    m_swerveModule.setDrivePosition(m_targetPosition);
   }
 
   // Called every time the scheduler runs while the command is scheduled.
   @Override
   public void execute() {
-    m_swerveModule.drive(m_speed);
+    // The motor controller does the profiling; we just keep the request active.
+    m_swerveModule.setDrivePosition(m_targetPosition);
   }
 
   // Called once the command ends or is interrupted.
@@ -52,7 +60,21 @@ public class DriveDistanceCommand extends Command {
   // Returns true when the command should end.
   @Override
   public boolean isFinished() {
-    double currentPosition = m_swerveModule.getDrivePosition();
-    return (currentPosition - m_startPosition) >= m_rotations;
+    double crossingTimestamp = m_swerveModule.getDriveCrossingTimestamp(m_targetPosition);
+    if (Double.isNaN(m_crossingTimestamp) && !Double.isNaN(crossingTimestamp)) {
+      m_crossingTimestamp = crossingTimestamp;
+    }
+
+    return m_swerveModule.isDriveSettledAt(m_targetPosition);
+  }
+
+  /**
+   * Get the FPGA time (seconds) when the target distance was reached, measured from the
+   * fast odometry samples.
+   *
+   * @return The crossing time, or NaN if the target has not been reached yet.
+   */
+  public double getCrossingTimestamp() {
+    return m_crossingTimestamp;
   }
 }
@@ -0,0 +1,75 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands;
+
+import frc.robot.subsystems.SwerveModule;
+import frc.robot.trajectory.PathProfile;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj2.command.Command;
+
+/**
+ * Command that drives a whole list of segments as one smooth motion.
+ *
+ * <p>Chaining {@link DriveAndTurnCommand}s makes the wheel brake at the end of every segment
+ * and speed up again at the start of the next one. Here the segments are joined into one
+ * {@link PathProfile}: the wheel speeds up once, keeps its speed through every joint, and only
+ * slows down as it gets close to the end of the whole path. The steering does not jump to a
+ * new angle at each joint either; it slides over while the wheel keeps rolling.
+ */
+public class FollowPathCommand extends Command {
+  private final SwerveModule m_swerveModule;
+  private final PathProfile m_profile;
+
+  private double m_startDrivePosition;
+  private double m_startSteerPosition;
+  private double m_commandedVelocity;
+
+  /**
+   * Creates a new FollowPathCommand.
+   *
+   * @param swerveModule The subsystem used by this command.
+   * @param profile The path to drive.
+   */
+  public FollowPathCommand(SwerveModule swerveModule, PathProfile profile) {
+    m_swerveModule = swerveModule;
+    m_profile = profile;
+    addRequirements(swerveModule);
+  }
+
+  // Called when the command is initially scheduled.
+  @Override
+  public void initialize() {
+    m_startDrivePosition = m_swerveModule.getDrivePosition();
+    m_startSteerPosition = m_swerveModule.getRotations();
+    // If the wheel is already rolling forward, carry that speed instead of starting from zero.
+    m_commandedVelocity = Math.max(0, m_swerveModule.getDriveVelocity());
+  }
+
+  // Called every time the scheduler runs while the command is scheduled.
+  @Override
+  public void execute() {
+    double traveled = m_swerveModule.getDrivePosition() - m_startDrivePosition;
+
+    m_commandedVelocity =
+        m_profile.getNextVelocity(m_commandedVelocity, traveled, TimedRobot.kDefaultPeriod);
+    m_swerveModule.setDriveVelocity(m_commandedVelocity);
+
+    m_swerveModule.setSteeringPosition(m_startSteerPosition + m_profile.getSteerTarget(traveled));
+  }
+
+  // Called once the command ends or is interrupted.
+  @Override
+  public void end(boolean interrupted) {
+    // Ask the motor controller to hold zero speed so the wheel brakes instead of coasting.
+    m_swerveModule.setDriveVelocity(0);
+  }
+
+  // Returns true when the command should end.
+  @Override
+  public boolean isFinished() {
+    double traveled = m_swerveModule.getDrivePosition() - m_startDrivePosition;
+    return traveled >= m_profile.getTotalRotations();
+  }
+}
@@ -0,0 +1,135 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands;
+
+import java.util.function.DoubleSupplier;
+
+import frc.robot.Constants.SwerveConstants;
+import frc.robot.subsystems.SwerveModule;
+import frc.robot.trajectory.Trajectory;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+
+/**
+ * Command that plays back a {@link Trajectory} that was worked out at build time.
+ *
+ * <p>Every loop it looks up where the wheel should be right now. The trajectory's speed is sent
+ * to the motor controller, plus a small correction if the wheel is ahead or behind. Because
+ * all of the path math was done ahead of time, the command starts instantly.
+ *
+ * <p>The command finishes once the trajectory is over and the wheel is within tolerance of its
+ * end. If the wheel still has not arrived shortly after that, the command gives up so the
+ * routine cannot hang, but it reports the miss on the Driver Station and through
+ * {@link #isTimedOut()}, because anything that runs next starts from the wrong place.
+ */
+public class FollowTrajectoryCommand extends Command {
+  // Extra drive speed (rotations per second) for each rotation the wheel is behind.
+  private static final double POSITION_KP = 5.0;
+  // If the wheel has not reached the end this long after the trajectory ends, stop anyway and
+  // report it.
+  private static final double FINISH_TIMEOUT_SECONDS = 0.5;
+
+  private final SwerveModule m_swerveModule;
+  private final Trajectory m_trajectory;
+  private final DoubleSupplier m_clockSeconds;
+  private double m_startTime;
+  private double m_startDrivePosition;
+  private double m_startSteerPosition;
+  private boolean m_timedOut;
+
+  /**
+   * Creates a new FollowTrajectoryCommand.
+   *
+   * @param swerveModule The subsystem used by this command.
+   * @param trajectory The precomputed path to follow.
+   */
+  public FollowTrajectoryCommand(SwerveModule swerveModule, Trajectory trajectory) {
+    this(swerveModule, trajectory, Timer::getFPGATimestamp);
+  }
+
+  /**
+   * Creates a FollowTrajectoryCommand that reads the time from its own clock. The tuning sweep
+   * uses this to run many simulated robots, each with its own time, at once.
+   *
+   * @param swerveModule The subsystem used by this command.
+   * @param trajectory The precomputed path to follow.
+   * @param clockSeconds Gives the current time in seconds.
+   */
+  public FollowTrajectoryCommand(
+      SwerveModule swerveModule, Trajectory trajectory, DoubleSupplier clockSeconds) {
+    m_swerveModule = swerveModule;
+    m_trajectory = trajectory;
+    m_clockSeconds = clockSeconds;
+    addRequirements(swerveModule);
+  }
+
+  /** Seconds since the command started. */
+  private double getTime() {
+    return m_clockSeconds.getAsDouble() - m_startTime;
+  }
+
+  // Called when the command is initially scheduled.
+  @Override
+  public void initialize() {
+    m_startDrivePosition = m_swerveModule.getDrivePosition();
+    m_startSteerPosition = m_swerveModule.getRotations();
+    m_timedOut = false;
+    m_startTime = m_clockSeconds.getAsDouble();
+  }
+
+  // Called every time the scheduler runs while the command is scheduled.
+  @Override
+  public void execute() {
+    double time = getTime();
+    double error = getPositionError(time);
+    m_swerveModule.setDriveVelocity(m_trajectory.getVelocity(time) + POSITION_KP * error);
+    m_swerveModule.setSteeringPosition(m_startSteerPosition + m_trajectory.getHeading(time));
+  }
+
+  /** How far the wheel is behind where the trajectory says it should be, in rotations. */
+  private double getPositionError(double time) {
+    double traveled = m_swerveModule.getDrivePosition() - m_startDrivePosition;
+    return m_trajectory.getPosition(time) - traveled;
+  }
+
+  // Called once the command ends or is interrupted.
+  @Override
+  public void end(boolean interrupted) {
+    // Ask the motor controller to hold zero speed so the wheel brakes instead of coasting.
+    m_swerveModule.setDriveVelocity(0);
+    if (m_timedOut) {
+      DriverStation.reportWarning(String.format(
+          "%s timed out %.2f rotations from the end of its trajectory",
+          getName(), getPositionError(getTime())), false);
+    }
+  }
+
+  // Returns true when the command should end.
+  @Override
+  public boolean isFinished() {
+    double time = getTime();
+    double duration = m_trajectory.getDuration();
+    if (time < duration) {
+      return false;
+    }
+    if (Math.abs(getPositionError(time)) < SwerveConstants.kDrivePositionToleranceRotations) {
+      return true;
+    }
+    if (time >= duration + FINISH_TIMEOUT_SECONDS) {
+      m_timedOut = true;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * True if the last run gave up because the wheel did not reach the end of the trajectory in
+   * time, instead of finishing on target.
+   */
+  public boolean isTimedOut() {
+    return m_timedOut;
+  }
+}
@@ -5,7 +5,8 @@
 package frc.robot.commands;
 
 import frc.robot.subsystems.SwerveModule;
-import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
+import frc.robot.trajectory.PathProfile;
+import frc.robot.trajectory.PathSegment;
 
 /**
  * Autonomous command that navigates in an S-curve pattern by driving and turning simultaneously.
@@ -15,8 +16,15 @@ import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
  * 3. Drive forward 20 rotations WHILE turning clockwise 90 degrees
  * 
  * All movements at 10% speed for safe, controlled motion.
+ *
+ * <p>The three segments are driven as one {@link FollowPathCommand}, so the wheel keeps rolling
+ * through the joints instead of stopping between segments.
  */
-public class GoToGoalCommand extends SequentialCommandGroup {
+public class GoToGoalCommand extends FollowPathCommand {
+  // The hand-picked values used on the field. The sweep tool in the tests tries others.
+  public static final double SEGMENT_ROTATIONS = 20;
+  public static final double DRIVE_SPEED = 0.1;
+  public static final double TURN_ROTATIONS = 0.25;
   
   /**
    * Creates a new GoToGoalCommand that executes an S-curve pattern.
@@ -24,15 +32,41 @@ public class GoToGoalCommand extends SequentialCommandGroup {
    * @param swerveModule The subsystem used by this command.
    */
   public GoToGoalCommand(SwerveModule swerveModule) {
-    addCommands(
-      // Segment 1: Drive 20 rotations while turning clockwise 90° (0.25 rotations)
-      new DriveAndTurnCommand(swerveModule, 20, 0.1, 0.25),
-      
-      // Segment 2: Drive 20 rotations while turning counterclockwise 90° (-0.25 rotations)
-      new DriveAndTurnCommand(swerveModule, 20, 0.1, -0.25),
-      
-      // Segment 3: Drive 20 rotations while turning clockwise 90° (0.25 rotations)
-      new DriveAndTurnCommand(swerveModule, 20, 0.1, 0.25)
-    );
+    this(swerveModule, SEGMENT_ROTATIONS, DRIVE_SPEED, TURN_ROTATIONS);
+  }
+
+  /**
+   * Creates the same S-curve with different numbers, for tuning.
+   *
+   * @param swerveModule The subsystem used by this command.
+   * @param segmentRotations How many drive rotations each of the three segments is.
+   * @param driveSpeed The speed to drive at (0.0 to 1.0), as a fraction of top speed.
+   * @param turnRotations How far each segment turns the steering, in rotations.
+   */
+  public GoToGoalCommand(
+      SwerveModule swerveModule, double segmentRotations, double driveSpeed,
+      double turnRotations) {
+    super(swerveModule, createProfile(segmentRotations, driveSpeed, turnRotations));
+  }
+
+  /**
+   * The S-curve as a path profile. Also used to precompute its trajectory file.
+   *
+   * @param segmentRotations How many drive rotations each of the three segments is.
+   * @param driveSpeed The speed to drive at (0.0 to 1.0), as a fraction of top speed.
+   * @param turnRotations How far each segment turns the steering, in rotations.
+   */
+  public static PathProfile createProfile(
+      double segmentRotations, double driveSpeed, double turnRotations) {
+    return new PathProfile(
+        driveSpeed,
+        // Segment 1: Drive 20 rotations while turning clockwise 90° (0.25 rotations)
+        new PathSegment(segmentRotations, turnRotations),
+
+        // Segment 2: Drive 20 rotations while turning counterclockwise 90° (-0.25 rotations)
+        new PathSegment(segmentRotations, -turnRotations),
+
+        // Segment 3: Drive 20 rotations while turning clockwise 90° (0.25 rotations)
+        new PathSegment(segmentRotations, turnRotations));
   }
 }
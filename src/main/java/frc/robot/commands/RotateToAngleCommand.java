@@ -9,13 +9,14 @@ import edu.wpi.first.wpilibj2.command.Command;
 
 /**
  * Command that rotates the steering wheel to a specific angle relative to current position.
- * Uses closed-loop position control with the steering motor's PID controller.
+ * The motor controller follows a Motion Magic Expo profile with feedforward, so the turn is
+ * fast and does not wobble. The command only ends once the wheel is on the angle AND has
+ * stopped turning, so the next command can trust that the turn is really finished.
  */
 public class RotateToAngleCommand extends Command {
   private final SwerveModule m_swerveModule;
   private final double m_rotationDelta;
   private double m_targetPosition;
-  private static final double POSITION_TOLERANCE = 0.05; // 5% of a rotation
 
   /**
    * Creates a new RotateToAngleCommand.
@@ -55,7 +56,6 @@ public class RotateToAngleCommand extends Command {
   // Returns true when the command should end.
   @Override
   public boolean isFinished() {
-    double currentPosition = m_swerveModule.getRotations();
-    return Math.abs(currentPosition - m_targetPosition) < POSITION_TOLERANCE;
+    return m_swerveModule.isSteeringSettledAt(m_targetPosition);
   }
 }
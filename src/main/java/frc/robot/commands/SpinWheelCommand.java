@@ -9,12 +9,12 @@ import edu.wpi.first.wpilibj2.command.Command;
 
 /**
  * Command that spins the swerve module drive wheel 10 rotations.
+ * The motor controller's Motion Magic profile drives the wheel to the target and stops it there.
  */
 public class SpinWheelCommand extends Command {
   private final SwerveModule m_swerveModule;
-  private double m_startPosition;
+  private double m_targetPosition;
   private static final double ROTATIONS_TO_SPIN = 10.0;
-  private static final double SPIN_SPEED = 0.3;
 
   /**
    * Creates a new SpinWheelCommand.
@@ -29,13 +29,13 @@ public class SpinWheelCommand extends Command {
   // Called when the command is initially scheduled.
   @Override
   public void initialize() {
-    m_startPosition = m_swerveModule.getDrivePosition();
+    m_targetPosition = m_swerveModule.getDrivePosition() + ROTATIONS_TO_SPIN;
   }
 
   // Called every time the scheduler runs while the command is scheduled.
   @Override
   public void execute() {
-    m_swerveModule.drive(SPIN_SPEED);
+    m_swerveModule.setDrivePosition(m_targetPosition);
   }
 
   // Called once the command ends or is interrupted.
@@ -47,7 +47,6 @@ public class SpinWheelCommand extends Command {
   // Returns true when the command should end.
   @Override
   public boolean isFinished() {
-    double currentPosition = m_swerveModule.getDrivePosition();
-    return (currentPosition - m_startPosition) >= ROTATIONS_TO_SPIN;
+    return m_swerveModule.isDriveSettledAt(m_targetPosition);
   }
 }
@@ -0,0 +1,215 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.replay;
+
+import java.nio.ByteBuffer;
+
+import frc.robot.subsystems.GyroIO.GyroIOInputs;
+import frc.robot.subsystems.SwerveModuleIO.SwerveModuleIOInputs;
+import frc.robot.subsystems.VisionIO.VisionIOInputs;
+
+/**
+ * Everything the robot code read from the outside world during one loop: the time, the
+ * driver station, the driver's controller, every module's and the gyro's inputs, and the
+ * camera frames.
+ *
+ * <p>One record is made at startup and filled again every loop, so recording allocates
+ * nothing. {@link #write} and {@link #read} turn it into bytes and back. Replaying a log means
+ * reading each record in turn and handing its values to the robot code instead of the
+ * hardware's.
+ */
+public final class InputLogRecord {
+  // The most joystick axes and POV hats the driver station supports.
+  public static final int MAX_AXES = 12;
+  public static final int MAX_POVS = 12;
+  // The most fast odometry samples stored per module per loop.
+  public static final int MAX_SAMPLES = 64;
+
+  // Bytes for the inputs of one module: ten doubles.
+  private static final int MODULE_INPUT_BYTES = 10 * Double.BYTES;
+  private static final int SAMPLE_BYTES = 3 * Double.BYTES;
+  // Bytes for one camera frame: its time and pose.
+  private static final int FRAME_BYTES = 4 * Double.BYTES;
+
+  /** One module's inputs and the fast odometry samples collected in that loop. */
+  public static final class ModuleRecord {
+    public final SwerveModuleIOInputs inputs = new SwerveModuleIOInputs();
+    public int sampleCount;
+    public final double[] sampleTimestamps = new double[MAX_SAMPLES];
+    public final double[] sampleDrivePositions = new double[MAX_SAMPLES];
+    public final double[] sampleSteerPositions = new double[MAX_SAMPLES];
+  }
+
+  /** FPGA time at the start of the loop, in seconds. */
+  public double timestampSeconds;
+
+  // Driver station state.
+  public boolean enabled;
+  public boolean autonomous;
+  public boolean test;
+  public boolean dsAttached;
+
+  // The driver's controller.
+  public int axisCount;
+  public final double[] axes = new double[MAX_AXES];
+  public int buttonCount;
+  public int buttons;
+  public int povCount;
+  public final int[] povs = new int[MAX_POVS];
+
+  public final ModuleRecord[] modules;
+  public final GyroIOInputs gyro = new GyroIOInputs();
+  public final VisionIOInputs vision = new VisionIOInputs();
+
+  /**
+   * @param moduleCount How many swerve modules each record holds.
+   */
+  public InputLogRecord(int moduleCount) {
+    modules = new ModuleRecord[moduleCount];
+    for (int i = 0; i < moduleCount; i++) {
+      modules[i] = new ModuleRecord();
+    }
+  }
+
+  /** The most bytes one record can take, so a buffer can always fit a whole record. */
+  public int getMaxBytes() {
+    int bytes = Double.BYTES + 1;
+    bytes += 1 + MAX_AXES * Float.BYTES + 1 + Integer.BYTES + 1 + MAX_POVS * Short.BYTES;
+    bytes += 1 + modules.length * (MODULE_INPUT_BYTES + 1 + MAX_SAMPLES * SAMPLE_BYTES);
+    bytes += 1 + Double.BYTES;
+    bytes += 1 + 1 + VisionIOInputs.MAX_FRAMES * FRAME_BYTES;
+    return bytes;
+  }
+
+  /** Add this record to the end of a buffer. */
+  public void write(ByteBuffer buffer) {
+    buffer.putDouble(timestampSeconds);
+    buffer.put((byte) ((enabled ? 1 : 0) | (autonomous ? 2 : 0) | (test ? 4 : 0)
+        | (dsAttached ? 8 : 0)));
+
+    buffer.put((byte) axisCount);
+    for (int i = 0; i < axisCount; i++) {
+      // The driver station only sends axes with float precision anyway.
+      buffer.putFloat((float) axes[i]);
+    }
+    buffer.put((byte) buttonCount);
+    buffer.putInt(buttons);
+    buffer.put((byte) povCount);
+    for (int i = 0; i < povCount; i++) {
+      buffer.putShort((short) povs[i]);
+    }
+
+    buffer.put((byte) modules.length);
+    for (ModuleRecord module : modules) {
+      writeInputs(buffer, module.inputs);
+      buffer.put((byte) module.sampleCount);
+      for (int i = 0; i < module.sampleCount; i++) {
+        buffer.putDouble(module.sampleTimestamps[i]);
+        buffer.putDouble(module.sampleDrivePositions[i]);
+        buffer.putDouble(module.sampleSteerPositions[i]);
+      }
+    }
+
+    buffer.put((byte) (gyro.connected ? 1 : 0));
+    buffer.putDouble(gyro.yawDegrees);
+
+    buffer.put((byte) (vision.connected ? 1 : 0));
+    buffer.put((byte) vision.frameCount);
+    for (int i = 0; i < vision.frameCount; i++) {
+      buffer.putDouble(vision.timestamps[i])
+          .putDouble(vision.x[i])
+          .putDouble(vision.y[i])
+          .putDouble(vision.headingRadians[i]);
+    }
+  }
+
+  /** Fill this record from the next bytes of a buffer. */
+  public void read(ByteBuffer buffer) {
+    timestampSeconds = buffer.getDouble();
+    int flags = buffer.get();
+    enabled = (flags & 1) != 0;
+    autonomous = (flags & 2) != 0;
+    test = (flags & 4) != 0;
+    dsAttached = (flags & 8) != 0;
+
+    axisCount = buffer.get();
+    for (int i = 0; i < axisCount; i++) {
+      axes[i] = buffer.getFloat();
+    }
+    buttonCount = buffer.get();
+    buttons = buffer.getInt();
+    povCount = buffer.get();
+    for (int i = 0; i < povCount; i++) {
+      povs[i] = buffer.getShort();
+    }
+
+    int moduleCount = buffer.get();
+    if (moduleCount != modules.length) {
+      throw new IllegalStateException(
+          "Record has " + moduleCount + " modules, expected " + modules.length);
+    }
+    for (ModuleRecord module : modules) {
+      readInputs(buffer, module.inputs);
+      module.sampleCount = buffer.get() & 0xFF;
+      for (int i = 0; i < module.sampleCount; i++) {
+        module.sampleTimestamps[i] = buffer.getDouble();
+        module.sampleDrivePositions[i] = buffer.getDouble();
+        module.sampleSteerPositions[i] = buffer.getDouble();
+      }
+    }
+
+    gyro.connected = buffer.get() != 0;
+    gyro.yawDegrees = buffer.getDouble();
+
+    vision.connected = buffer.get() != 0;
+    vision.frameCount = buffer.get();
+    for (int i = 0; i < vision.frameCount; i++) {
+      vision.timestamps[i] = buffer.getDouble();
+      vision.x[i] = buffer.getDouble();
+      vision.y[i] = buffer.getDouble();
+      vision.headingRadians[i] = buffer.getDouble();
+    }
+  }
+
+  /** Copy every value from one module inputs object to another. */
+  static void copy(SwerveModuleIOInputs from, SwerveModuleIOInputs to) {
+    to.drivePositionRotations = from.drivePositionRotations;
+    to.driveVelocityRotationsPerSecond = from.driveVelocityRotationsPerSecond;
+    to.driveCurrentAmps = from.driveCurrentAmps;
+    to.driveTemperatureCelsius = from.driveTemperatureCelsius;
+    to.driveAppliedVolts = from.driveAppliedVolts;
+    to.steerPositionRotations = from.steerPositionRotations;
+    to.steerVelocityRotationsPerSecond = from.steerVelocityRotationsPerSecond;
+    to.steerCurrentAmps = from.steerCurrentAmps;
+    to.steerTemperatureCelsius = from.steerTemperatureCelsius;
+    to.steerAppliedVolts = from.steerAppliedVolts;
+  }
+
+  private static void writeInputs(ByteBuffer buffer, SwerveModuleIOInputs inputs) {
+    buffer.putDouble(inputs.drivePositionRotations)
+        .putDouble(inputs.driveVelocityRotationsPerSecond)
+        .putDouble(inputs.driveCurrentAmps)
+        .putDouble(inputs.driveTemperatureCelsius)
+        .putDouble(inputs.driveAppliedVolts)
+        .putDouble(inputs.steerPositionRotations)
+        .putDouble(inputs.steerVelocityRotationsPerSecond)
+        .putDouble(inputs.steerCurrentAmps)
+        .putDouble(inputs.steerTemperatureCelsius)
+        .putDouble(inputs.steerAppliedVolts);
+  }
+
+  private static void readInputs(ByteBuffer buffer, SwerveModuleIOInputs inputs) {
+    inputs.drivePositionRotations = buffer.getDouble();
+    inputs.driveVelocityRotationsPerSecond = buffer.getDouble();
+    inputs.driveCurrentAmps = buffer.getDouble();
+    inputs.driveTemperatureCelsius = buffer.getDouble();
+    inputs.driveAppliedVolts = buffer.getDouble();
+    inputs.steerPositionRotations = buffer.getDouble();
+    inputs.steerVelocityRotationsPerSecond = buffer.getDouble();
+    inputs.steerCurrentAmps = buffer.getDouble();
+    inputs.steerTemperatureCelsius = buffer.getDouble();
+    inputs.steerAppliedVolts = buffer.getDouble();
+  }
+}
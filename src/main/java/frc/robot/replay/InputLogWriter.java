@@ -0,0 +1,221 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.OperatorConstants;
+
+/**
+ * Saves every loop's {@link InputLogRecord} to a small binary file, so the match can be
+ * replayed later with {@link ReplayEngine}.
+ *
+ * <p>The file starts with a header ({@link #MAGIC}, {@link #VERSION} and the module count),
+ * then one record per loop, each preceded by its length in bytes. Everything is little-endian.
+ *
+ * <p>Writing to the roboRIO's flash can stall for many milliseconds, so the robot loop never
+ * touches the file. It packs records into one of a few buffers made at startup, and a
+ * background thread writes full buffers to disk and hands them back. If the disk falls so far
+ * behind that no buffer is free, loops are dropped (and counted) instead of waiting.
+ */
+public final class InputLogWriter implements AutoCloseable {
+  /** "RLOG" in the file's first four bytes. */
+  public static final int MAGIC = 0x474F4C52;
+  // Version 2 added the camera frames.
+  public static final int VERSION = 2;
+
+  private static final int BUFFER_BYTES = 256 * 1024;
+  private static final int BUFFER_COUNT = 4;
+  // Handed to the writer thread to tell it to stop.
+  private static final ByteBuffer STOP = ByteBuffer.allocate(0);
+
+  private final InputLogRecord m_record;
+  private final int m_maxRecordBytes;
+  private final FileChannel m_channel;
+  private final ArrayBlockingQueue<ByteBuffer> m_freeBuffers =
+      new ArrayBlockingQueue<>(BUFFER_COUNT);
+  private final ArrayBlockingQueue<ByteBuffer> m_fullBuffers =
+      new ArrayBlockingQueue<>(BUFFER_COUNT + 1);
+  private final Thread m_thread;
+  // The buffer the main loop is filling, or null if it has none.
+  private ByteBuffer m_current;
+  private long m_droppedLoops;
+  private boolean m_closed;
+
+  private InputLogWriter(Path file, int moduleCount) throws IOException {
+    m_record = new InputLogRecord(moduleCount);
+    m_maxRecordBytes = Integer.BYTES + m_record.getMaxBytes();
+    m_channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+
+    ByteBuffer header = ByteBuffer.allocate(4 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    header.putInt(MAGIC).putInt(VERSION).putInt(moduleCount).putInt(0).flip();
+    while (header.hasRemaining()) {
+      m_channel.write(header);
+    }
+
+    for (int i = 0; i < BUFFER_COUNT; i++) {
+      m_freeBuffers.add(ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN));
+    }
+    m_thread = new Thread(this::writeLoop, "InputLogWriter");
+    m_thread.setDaemon(true);
+    m_thread.start();
+  }
+
+  /**
+   * Start a new input log.
+   *
+   * @param file Where to write it. An existing file is replaced.
+   * @param moduleCount How many swerve modules the robot has.
+   */
+  public static InputLogWriter create(Path file, int moduleCount) throws IOException {
+    return new InputLogWriter(file, moduleCount);
+  }
+
+  /**
+   * Start a new input log next to the DataLog files, named after the current time.
+   *
+   * @param moduleCount How many swerve modules the robot has.
+   * @return The writer, or null if the file could not be made. The robot still runs without it.
+   */
+  public static InputLogWriter createInLogDirectory(int moduleCount) {
+    String name = "inputs_"
+        + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".rlog";
+    Path file = Paths.get(DataLogManager.getLogDir(), name);
+    try {
+      return create(file, moduleCount);
+    } catch (IOException e) {
+      DriverStation.reportError("Could not start input log " + file + ": " + e, false);
+      return null;
+    }
+  }
+
+  /** The record the IO recorders fill in during the loop. */
+  public InputLogRecord getRecord() {
+    return m_record;
+  }
+
+  /** How many loops were not saved because the disk could not keep up. */
+  public long getDroppedLoops() {
+    return m_droppedLoops;
+  }
+
+  /**
+   * Save the time, driver station state and driver's controller for this loop. Call at the
+   * start of robotPeriodic(), before any command runs.
+   */
+  public void beginLoop() {
+    InputLogRecord record = m_record;
+    record.timestampSeconds = Timer.getFPGATimestamp();
+    record.enabled = DriverStation.isEnabled();
+    record.autonomous = DriverStation.isAutonomous();
+    record.test = DriverStation.isTest();
+    record.dsAttached = DriverStation.isDSAttached();
+
+    int port = OperatorConstants.kDriverControllerPort;
+    record.axisCount = Math.min(DriverStation.getStickAxisCount(port), InputLogRecord.MAX_AXES);
+    for (int i = 0; i < record.axisCount; i++) {
+      record.axes[i] = DriverStation.getStickAxis(port, i);
+    }
+    record.buttonCount = DriverStation.getStickButtonCount(port);
+    record.buttons = DriverStation.getStickButtons(port);
+    record.povCount = Math.min(DriverStation.getStickPOVCount(port), InputLogRecord.MAX_POVS);
+    for (int i = 0; i < record.povCount; i++) {
+      record.povs[i] = DriverStation.getStickPOV(port, i);
+    }
+  }
+
+  /**
+   * Pack this loop's record into the current buffer. Call at the end of robotPeriodic(), after
+   * the IO recorders have filled in the sensor values. Never waits for the disk.
+   */
+  public void endLoop() {
+    if (m_closed) {
+      return;
+    }
+    if (m_current == null) {
+      m_current = m_freeBuffers.poll();
+      if (m_current == null) {
+        m_droppedLoops++;
+        return;
+      }
+    }
+    int lengthPosition = m_current.position();
+    m_current.putInt(0);
+    m_record.write(m_current);
+    m_current.putInt(lengthPosition, m_current.position() - lengthPosition - Integer.BYTES);
+
+    if (m_current.remaining() < m_maxRecordBytes) {
+      handOff();
+    }
+  }
+
+  /**
+   * Send everything packed so far to the disk. Call when a little delay does not matter, like
+   * when the robot is disabled, so the end of a match is saved promptly.
+   */
+  public void flush() {
+    if (m_current != null && m_current.position() > 0) {
+      handOff();
+    }
+  }
+
+  private void handOff() {
+    // There is always room: only BUFFER_COUNT buffers exist.
+    m_fullBuffers.add(m_current);
+    m_current = null;
+  }
+
+  /** The background thread: write each full buffer to the file, then make it free again. */
+  private void writeLoop() {
+    try {
+      while (true) {
+        ByteBuffer buffer = m_fullBuffers.take();
+        if (buffer == STOP) {
+          return;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          m_channel.write(buffer);
+        }
+        buffer.clear();
+        m_freeBuffers.add(buffer);
+      }
+    } catch (IOException e) {
+      DriverStation.reportError("Input log write failed: " + e, false);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Save everything that is left and close the file. */
+  @Override
+  public void close() throws IOException {
+    if (m_closed) {
+      return;
+    }
+    flush();
+    m_closed = true;
+    m_fullBuffers.add(STOP);
+    try {
+      m_thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    m_channel.close();
+  }
+}
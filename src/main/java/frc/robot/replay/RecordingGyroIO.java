@@ -0,0 +1,34 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.replay;
+
+import frc.robot.subsystems.GyroIO;
+
+/** Wraps the real gyro IO and copies what it reads into the input log. */
+public class RecordingGyroIO implements GyroIO {
+  private final GyroIO m_io;
+  private final GyroIOInputs m_record;
+
+  /**
+   * @param io The IO that really talks to the gyro.
+   * @param record Where the gyro inputs are saved each loop.
+   */
+  public RecordingGyroIO(GyroIO io, GyroIOInputs record) {
+    m_io = io;
+    m_record = record;
+  }
+
+  @Override
+  public void updateInputs(GyroIOInputs inputs) {
+    m_io.updateInputs(inputs);
+    m_record.connected = inputs.connected;
+    m_record.yawDegrees = inputs.yawDegrees;
+  }
+
+  @Override
+  public void simulationPeriodic(double omegaRadiansPerSecond, double dtSeconds) {
+    m_io.simulationPeriodic(omegaRadiansPerSecond, dtSeconds);
+  }
+}
@@ -0,0 +1,118 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.replay;
+
+import frc.robot.subsystems.SwerveModuleIO;
+import frc.robot.util.OdometrySampleBuffer;
+
+/**
+ * Wraps a module's real IO and copies everything it reads into the input log.
+ *
+ * <p>The module cannot tell the difference: every call goes straight to the wrapped IO. The
+ * only extra step is in {@link #updateInputs}, which saves the inputs and this loop's fast
+ * odometry samples into the {@link InputLogRecord.ModuleRecord}, then passes the samples on
+ * through a buffer of its own.
+ */
+public class RecordingSwerveModuleIO implements SwerveModuleIO {
+  private final SwerveModuleIO m_io;
+  private final InputLogRecord.ModuleRecord m_record;
+  private final OdometrySampleBuffer m_buffer;
+
+  /**
+   * @param io The IO that really talks to the module.
+   * @param record Where this module's inputs are saved each loop.
+   */
+  public RecordingSwerveModuleIO(SwerveModuleIO io, InputLogRecord.ModuleRecord record) {
+    m_io = io;
+    m_record = record;
+    m_buffer = new OdometrySampleBuffer(io.getOdometryBuffer().getCapacity());
+  }
+
+  @Override
+  public void updateInputs(SwerveModuleIOInputs inputs) {
+    m_io.updateInputs(inputs);
+    InputLogRecord.copy(inputs, m_record.inputs);
+
+    // Take the samples out of the real buffer to save them, then put them in ours for the
+    // module. Both happen on the main thread, so ours never needs to be shared.
+    m_record.sampleCount = m_io.getOdometryBuffer().drainTo(
+        m_record.sampleTimestamps, m_record.sampleDrivePositions, m_record.sampleSteerPositions);
+    for (int i = 0; i < m_record.sampleCount; i++) {
+      m_buffer.add(m_record.sampleTimestamps[i], m_record.sampleDrivePositions[i],
+          m_record.sampleSteerPositions[i]);
+    }
+  }
+
+  @Override
+  public double readSteerPosition() {
+    // Only the fast loop uses this, and it only changes outputs, so it is not recorded.
+    return m_io.readSteerPosition();
+  }
+
+  @Override
+  public OdometrySampleBuffer getOdometryBuffer() {
+    return m_buffer;
+  }
+
+  @Override
+  public void setDriveDutyCycle(double output) {
+    m_io.setDriveDutyCycle(output);
+  }
+
+  @Override
+  public void setDriveVoltage(double volts) {
+    m_io.setDriveVoltage(volts);
+  }
+
+  @Override
+  public void setDrivePosition(double rotations, double cruiseVelocity) {
+    m_io.setDrivePosition(rotations, cruiseVelocity);
+  }
+
+  @Override
+  public void setDriveVelocity(double rotationsPerSecond) {
+    m_io.setDriveVelocity(rotationsPerSecond);
+  }
+
+  @Override
+  public void setSteerDutyCycle(double output) {
+    m_io.setSteerDutyCycle(output);
+  }
+
+  @Override
+  public void setSteerVoltage(double volts) {
+    m_io.setSteerVoltage(volts);
+  }
+
+  @Override
+  public void setSteerPosition(double rotations) {
+    m_io.setSteerPosition(rotations);
+  }
+
+  @Override
+  public void setSteerGains(double kP, double kD) {
+    m_io.setSteerGains(kP, kD);
+  }
+
+  @Override
+  public void simulationPeriodic(double dtSeconds) {
+    m_io.simulationPeriodic(dtSeconds);
+  }
+
+  @Override
+  public double getSimulatedCurrentDrawAmps() {
+    return m_io.getSimulatedCurrentDrawAmps();
+  }
+
+  @Override
+  public double getSimulatedGroundTravelRotations() {
+    return m_io.getSimulatedGroundTravelRotations();
+  }
+
+  @Override
+  public double getSimulatedSteerRotations() {
+    return m_io.getSimulatedSteerRotations();
+  }
+}
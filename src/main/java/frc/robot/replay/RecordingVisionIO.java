@@ -0,0 +1,35 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.replay;
+
+import frc.robot.subsystems.VisionIO;
+
+/** Wraps the real camera IO and copies the frames it hands over into the input log. */
+public class RecordingVisionIO implements VisionIO {
+  private final VisionIO m_io;
+  private final VisionIOInputs m_record;
+
+  /**
+   * @param io The IO that really talks to the camera.
+   * @param record Where the camera frames are saved each loop.
+   */
+  public RecordingVisionIO(VisionIO io, VisionIOInputs record) {
+    m_io = io;
+    m_record = record;
+  }
+
+  @Override
+  public void updateInputs(VisionIOInputs inputs) {
+    m_io.updateInputs(inputs);
+    m_record.connected = inputs.connected;
+    m_record.frameCount = inputs.frameCount;
+    for (int i = 0; i < inputs.frameCount; i++) {
+      m_record.timestamps[i] = inputs.timestamps[i];
+      m_record.x[i] = inputs.x[i];
+      m_record.y[i] = inputs.y[i];
+      m_record.headingRadians[i] = inputs.headingRadians[i];
+    }
+  }
+}
@@ -0,0 +1,232 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.replay;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.Constants.OperatorConstants;
+import frc.robot.Robot;
+import frc.robot.RobotContainer;
+
+/**
+ * Runs the robot program again on a recorded match, as fast as the computer can go.
+ *
+ * <p>The robot code is built exactly as usual, except that the modules, gyro and camera are
+ * {@link ReplaySwerveModuleIO}, {@link ReplayGyroIO} and {@link ReplayVisionIO}. Each
+ * {@link #step()} reads the next record from the {@link InputLogWriter} file, moves the paused
+ * robot clock to the time the record was taken, sets the driver station and controller to
+ * what they were, and then runs one loop the way TimedRobot would: the mode's init() when the
+ * mode changed, its periodic(), then robotPeriodic(). The CommandScheduler and every command
+ * run unchanged, so a bug seen in a match can be stepped through in the debugger, or a fix
+ * checked against the real inputs.
+ *
+ * <p>The fast control loop is not replayed. It only sets motor outputs and moves the simulated
+ * robot, which the log does not need: the robot's response to them, camera frames included,
+ * is already in the recorded inputs.
+ */
+public class ReplayEngine implements AutoCloseable {
+  private enum Mode {
+    DISABLED,
+    AUTONOMOUS,
+    TELEOP,
+    TEST
+  }
+
+  private final MappedByteBuffer m_log;
+  private final InputLogRecord m_record;
+  private final ReplaySwerveModuleIO[] m_moduleIOs;
+  private final ReplayVisionIO m_visionIO;
+  private final Robot m_robot;
+  private Mode m_mode;
+  private long m_loopCount;
+  // How far the replay clock is ahead of the recorded one, in microseconds.
+  private long m_timeOffsetMicros;
+
+  /**
+   * Open a log and build the robot program around it. Nothing runs until {@link #step()}.
+   *
+   * @param file A file written by {@link InputLogWriter}.
+   */
+  public ReplayEngine(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file)) {
+      m_log = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    m_log.order(ByteOrder.LITTLE_ENDIAN);
+    int magic = m_log.getInt();
+    int version = m_log.getInt();
+    int moduleCount = m_log.getInt();
+    m_log.getInt();
+    if (magic != InputLogWriter.MAGIC || version != InputLogWriter.VERSION) {
+      throw new IOException(file + " is not a version " + InputLogWriter.VERSION + " input log");
+    }
+    m_record = new InputLogRecord(moduleCount);
+    m_moduleIOs = new ReplaySwerveModuleIO[moduleCount];
+    for (int i = 0; i < moduleCount; i++) {
+      m_moduleIOs[i] = new ReplaySwerveModuleIO(m_record.modules[i]);
+    }
+    m_visionIO = new ReplayVisionIO(m_record.vision);
+
+    // 500 ms timeout, 0 = use the simulator HAL.
+    HAL.initialize(500, 0);
+    SimHooks.pauseTiming();
+    DriverStationSim.resetData();
+    DriverStationSim.notifyNewData();
+
+    RobotContainer container = new RobotContainer(
+        i -> m_moduleIOs[i], new ReplayGyroIO(m_record.gyro), m_visionIO, null);
+    // disabledPeriodic() is replayed too, but warm-up is not part of what the robot did.
+    container.getWarmUp().skip();
+    m_robot = new Robot(container);
+  }
+
+  /** The robot program being replayed. */
+  public Robot getRobot() {
+    return m_robot;
+  }
+
+  /** How many loops have been replayed so far. */
+  public long getLoopCount() {
+    return m_loopCount;
+  }
+
+  /** The time the current record was taken on the real robot, in seconds. */
+  public double getRecordedTimestamp() {
+    return m_record.timestampSeconds;
+  }
+
+  /**
+   * Replay the next loop of the log.
+   *
+   * @return False if the log has no more loops.
+   */
+  public boolean step() {
+    if (m_log.remaining() < Integer.BYTES) {
+      return false;
+    }
+    int length = m_log.getInt();
+    int start = m_log.position();
+    m_record.read(m_log);
+    m_log.position(start + length);
+
+    // The replay clock cannot go backwards, so line the first record up with "now" and keep
+    // that offset. Fast odometry samples and camera frames are shifted by the same amount. The
+    // clock counts whole microseconds, so work in those to land on each record's time exactly.
+    long nowMicros = RobotController.getFPGATime();
+    long recordMicros = Math.round(m_record.timestampSeconds * 1e6);
+    if (m_loopCount == 0) {
+      m_timeOffsetMicros = Math.max(0, nowMicros - recordMicros);
+      for (ReplaySwerveModuleIO io : m_moduleIOs) {
+        io.setTimeOffset(m_timeOffsetMicros / 1e6);
+      }
+      m_visionIO.setTimeOffset(m_timeOffsetMicros / 1e6);
+    }
+    long deltaMicros = recordMicros + m_timeOffsetMicros - nowMicros;
+    if (deltaMicros > 0) {
+      // Half a microsecond extra, because the HAL rounds the step down.
+      SimHooks.stepTiming((deltaMicros + 0.5) / 1e6);
+    }
+
+    setDriverStation();
+    runLoop();
+    m_loopCount++;
+    return true;
+  }
+
+  /** Replay every remaining loop. */
+  public void run() {
+    while (step()) {
+      // Keep going until the log runs out.
+    }
+  }
+
+  private void setDriverStation() {
+    DriverStationSim.setEnabled(m_record.enabled);
+    DriverStationSim.setAutonomous(m_record.autonomous);
+    DriverStationSim.setTest(m_record.test);
+    DriverStationSim.setDsAttached(m_record.dsAttached);
+
+    int port = OperatorConstants.kDriverControllerPort;
+    DriverStationSim.setJoystickAxisCount(port, m_record.axisCount);
+    for (int i = 0; i < m_record.axisCount; i++) {
+      DriverStationSim.setJoystickAxis(port, i, m_record.axes[i]);
+    }
+    DriverStationSim.setJoystickButtonCount(port, m_record.buttonCount);
+    DriverStationSim.setJoystickButtons(port, m_record.buttons);
+    DriverStationSim.setJoystickPOVCount(port, m_record.povCount);
+    for (int i = 0; i < m_record.povCount; i++) {
+      DriverStationSim.setJoystickPOV(port, i, m_record.povs[i]);
+    }
+    DriverStationSim.notifyNewData();
+  }
+
+  /** One loop in the same order TimedRobot uses. */
+  private void runLoop() {
+    Mode mode;
+    if (!m_record.enabled) {
+      mode = Mode.DISABLED;
+    } else if (m_record.autonomous) {
+      mode = Mode.AUTONOMOUS;
+    } else if (m_record.test) {
+      mode = Mode.TEST;
+    } else {
+      mode = Mode.TELEOP;
+    }
+
+    if (mode != m_mode) {
+      if (m_mode != null) {
+        exitMode(m_mode);
+      }
+      initMode(mode);
+      m_mode = mode;
+    }
+
+    switch (mode) {
+      case DISABLED -> m_robot.disabledPeriodic();
+      case AUTONOMOUS -> m_robot.autonomousPeriodic();
+      case TELEOP -> m_robot.teleopPeriodic();
+      case TEST -> m_robot.testPeriodic();
+    }
+    m_robot.robotPeriodic();
+  }
+
+  private void initMode(Mode mode) {
+    switch (mode) {
+      case DISABLED -> m_robot.disabledInit();
+      case AUTONOMOUS -> m_robot.autonomousInit();
+      case TELEOP -> m_robot.teleopInit();
+      case TEST -> m_robot.testInit();
+    }
+  }
+
+  private void exitMode(Mode mode) {
+    switch (mode) {
+      case DISABLED -> m_robot.disabledExit();
+      case AUTONOMOUS -> m_robot.autonomousExit();
+      case TELEOP -> m_robot.teleopExit();
+      case TEST -> m_robot.testExit();
+    }
+  }
+
+  @Override
+  public void close() {
+    // The scheduler is shared by the whole program, so leave it empty.
+    CommandScheduler scheduler = CommandScheduler.getInstance();
+    scheduler.cancelAll();
+    scheduler.unregisterAllSubsystems();
+    scheduler.getActiveButtonLoop().clear();
+    m_robot.close();
+    DriverStationSim.resetData();
+    SimHooks.resumeTiming();
+  }
+}
@@ -0,0 +1,25 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.replay;
+
+import frc.robot.subsystems.GyroIO;
+
+/** A gyro IO whose readings come from the input log being replayed. */
+public class ReplayGyroIO implements GyroIO {
+  private final GyroIOInputs m_record;
+
+  /**
+   * @param record The gyro part of the record that {@link ReplayEngine} reads each loop.
+   */
+  public ReplayGyroIO(GyroIOInputs record) {
+    m_record = record;
+  }
+
+  @Override
+  public void updateInputs(GyroIOInputs inputs) {
+    inputs.connected = m_record.connected;
+    inputs.yawDegrees = m_record.yawDegrees;
+  }
+}
@@ -0,0 +1,76 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.replay;
+
+import frc.robot.subsystems.SwerveModuleIO;
+import frc.robot.util.OdometrySampleBuffer;
+
+/**
+ * A module IO with no hardware at all: its inputs are whatever the log says the real module
+ * read in the loop being replayed. Outputs go nowhere, because the log already says how the
+ * real robot moved.
+ */
+public class ReplaySwerveModuleIO implements SwerveModuleIO {
+  private final InputLogRecord.ModuleRecord m_record;
+  private final OdometrySampleBuffer m_buffer =
+      new OdometrySampleBuffer(InputLogRecord.MAX_SAMPLES);
+  // Added to logged sample times so they line up with the replay clock.
+  private double m_timeOffsetSeconds;
+
+  /**
+   * @param record The module's part of the record that {@link ReplayEngine} reads each loop.
+   */
+  public ReplaySwerveModuleIO(InputLogRecord.ModuleRecord record) {
+    m_record = record;
+  }
+
+  /** Set how far the replay clock is ahead of the clock the log was recorded with. */
+  void setTimeOffset(double offsetSeconds) {
+    m_timeOffsetSeconds = offsetSeconds;
+  }
+
+  @Override
+  public void updateInputs(SwerveModuleIOInputs inputs) {
+    InputLogRecord.copy(m_record.inputs, inputs);
+    for (int i = 0; i < m_record.sampleCount; i++) {
+      m_buffer.add(m_record.sampleTimestamps[i] + m_timeOffsetSeconds,
+          m_record.sampleDrivePositions[i], m_record.sampleSteerPositions[i]);
+    }
+  }
+
+  @Override
+  public double readSteerPosition() {
+    return m_record.inputs.steerPositionRotations;
+  }
+
+  @Override
+  public OdometrySampleBuffer getOdometryBuffer() {
+    return m_buffer;
+  }
+
+  @Override
+  public void setDriveDutyCycle(double output) {}
+
+  @Override
+  public void setDriveVoltage(double volts) {}
+
+  @Override
+  public void setDrivePosition(double rotations, double cruiseVelocity) {}
+
+  @Override
+  public void setDriveVelocity(double rotationsPerSecond) {}
+
+  @Override
+  public void setSteerDutyCycle(double output) {}
+
+  @Override
+  public void setSteerVoltage(double volts) {}
+
+  @Override
+  public void setSteerPosition(double rotations) {}
+
+  @Override
+  public void setSteerGains(double kP, double kD) {}
+}
@@ -0,0 +1,38 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.replay;
+
+import frc.robot.subsystems.VisionIO;
+
+/** A camera IO whose frames come from the input log being replayed. */
+public class ReplayVisionIO implements VisionIO {
+  private final VisionIOInputs m_record;
+  // Added to logged frame times so they line up with the replay clock.
+  private double m_timeOffsetSeconds;
+
+  /**
+   * @param record The camera part of the record that {@link ReplayEngine} reads each loop.
+   */
+  public ReplayVisionIO(VisionIOInputs record) {
+    m_record = record;
+  }
+
+  /** Set how far the replay clock is ahead of the clock the log was recorded with. */
+  void setTimeOffset(double offsetSeconds) {
+    m_timeOffsetSeconds = offsetSeconds;
+  }
+
+  @Override
+  public void updateInputs(VisionIOInputs inputs) {
+    inputs.connected = m_record.connected;
+    inputs.frameCount = m_record.frameCount;
+    for (int i = 0; i < m_record.frameCount; i++) {
+      inputs.timestamps[i] = m_record.timestamps[i] + m_timeOffsetSeconds;
+      inputs.x[i] = m_record.x[i];
+      inputs.y[i] = m_record.y[i];
+      inputs.headingRadians[i] = m_record.headingRadians[i];
+    }
+  }
+}
@@ -0,0 +1,29 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+/**
+ * The hardware side of the gyro, the sensor that tells us which way the robot is facing.
+ * Like {@link SwerveModuleIO}, this lets the drivetrain use a real Pigeon 2 on the robot and a
+ * pure-Java stand-in during tests.
+ */
+public interface GyroIO {
+  /** The sensor values read from the gyro once per loop. */
+  class GyroIOInputs {
+    public boolean connected;
+    public double yawDegrees;
+  }
+
+  /** Read the newest gyro values into {@code inputs}. */
+  void updateInputs(GyroIOInputs inputs);
+
+  /**
+   * Move the simulated gyro forward in time. Only used in simulation.
+   *
+   * @param omegaRadiansPerSecond How fast the simulated robot is turning.
+   * @param dtSeconds How much time passed since the last call.
+   */
+  default void simulationPeriodic(double omegaRadiansPerSecond, double dtSeconds) {}
+}
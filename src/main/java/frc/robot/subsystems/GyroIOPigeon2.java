@@ -0,0 +1,44 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.hardware.Pigeon2;
+
+import edu.wpi.first.units.measure.Angle;
+import frc.robot.util.SignalRateManager;
+import frc.robot.util.SignalRateManager.Priority;
+
+/** Gyro IO for a CTRE Pigeon 2 on the CAN bus. */
+public class GyroIOPigeon2 implements GyroIO {
+  private final Pigeon2 m_gyro;
+  private final StatusSignal<Angle> m_yawSignal;
+  // Simulation only: the heading we pretend the gyro measured, in degrees.
+  private double m_simulatedYawDegrees;
+
+  /**
+   * @param canId The CAN ID of the Pigeon 2.
+   */
+  public GyroIOPigeon2(int canId) {
+    m_gyro = new Pigeon2(canId);
+    m_yawSignal = m_gyro.getYaw();
+    SignalRateManager rates = SignalRateManager.getInstance();
+    rates.register("Pigeon" + canId + "/Yaw", Priority.CONTROL, m_yawSignal);
+    rates.registerDevice(m_gyro);
+  }
+
+  @Override
+  public void updateInputs(GyroIOInputs inputs) {
+    inputs.connected = m_yawSignal.refresh().getStatus() == StatusCode.OK;
+    inputs.yawDegrees = m_yawSignal.getValueAsDouble();
+  }
+
+  @Override
+  public void simulationPeriodic(double omegaRadiansPerSecond, double dtSeconds) {
+    m_simulatedYawDegrees += Math.toDegrees(omegaRadiansPerSecond * dtSeconds);
+    m_gyro.getSimState().setRawYaw(m_simulatedYawDegrees);
+  }
+}
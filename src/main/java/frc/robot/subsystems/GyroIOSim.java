@@ -0,0 +1,24 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+/**
+ * A gyro made of math: it adds up how far the simulated robot has turned.
+ * Time only moves when {@link #simulationPeriodic(double, double)} is called.
+ */
+public class GyroIOSim implements GyroIO {
+  private double m_yawDegrees;
+
+  @Override
+  public void updateInputs(GyroIOInputs inputs) {
+    inputs.connected = true;
+    inputs.yawDegrees = m_yawDegrees;
+  }
+
+  @Override
+  public void simulationPeriodic(double omegaRadiansPerSecond, double dtSeconds) {
+    m_yawDegrees += Math.toDegrees(omegaRadiansPerSecond * dtSeconds);
+  }
+}
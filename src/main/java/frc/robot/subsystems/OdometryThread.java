@@ -0,0 +1,139 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusCode;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
+import frc.robot.Constants.SwerveConstants;
+import frc.robot.util.BackgroundExecutor;
+import frc.robot.util.OdometrySampleBuffer;
+
+/**
+ * A background thread that reads the swerve wheel positions much faster than the 50 Hz main loop.
+ *
+ * <p>The main loop only runs every 20 ms. A wheel moving at full speed can travel a long way in
+ * that time, so a command that checks "have I gone far enough?" can overshoot. This thread waits
+ * for each new position frame from the motor controllers (about every 4 ms at 250 Hz), stamps it
+ * with the time it was measured, and drops it into an {@link OdometrySampleBuffer} for the main
+ * loop to pick up.
+ */
+public final class OdometryThread {
+  private static OdometryThread s_instance;
+
+  // How many samples each buffer holds. 64 samples is about a quarter second at 250 Hz.
+  private static final int BUFFER_SIZE = 64;
+
+  private final List<ModuleSignals> m_modules = new ArrayList<>();
+  private BaseStatusSignal[] m_allSignals = new BaseStatusSignal[0];
+  private Thread m_thread;
+
+  /** The position signals from one module and the buffer they are written into. */
+  private static final class ModuleSignals {
+    final BaseStatusSignal drivePosition;
+    final BaseStatusSignal steerPosition;
+    final OdometrySampleBuffer buffer = new OdometrySampleBuffer(BUFFER_SIZE);
+
+    ModuleSignals(BaseStatusSignal drivePosition, BaseStatusSignal steerPosition) {
+      this.drivePosition = drivePosition;
+      this.steerPosition = steerPosition;
+    }
+  }
+
+  private OdometryThread() {}
+
+  /** Get the one shared odometry thread. */
+  public static synchronized OdometryThread getInstance() {
+    if (s_instance == null) {
+      s_instance = new OdometryThread();
+    }
+    return s_instance;
+  }
+
+  /**
+   * Add a module's position signals to the thread. Must be called before {@link #start()}.
+   * The signals should be used only by this thread (clone them first), because status
+   * signals are not safe to refresh from two threads at once.
+   *
+   * @param drivePosition The drive motor position signal.
+   * @param steerPosition The steering motor position signal.
+   * @return The buffer the samples for this module will be written into.
+   */
+  public synchronized OdometrySampleBuffer registerModule(
+      BaseStatusSignal drivePosition, BaseStatusSignal steerPosition) {
+    if (m_thread != null) {
+      throw new IllegalStateException("Register modules before starting the odometry thread");
+    }
+    ModuleSignals module = new ModuleSignals(drivePosition, steerPosition);
+    m_modules.add(module);
+
+    List<BaseStatusSignal> signals = new ArrayList<>();
+    for (ModuleSignals registered : m_modules) {
+      signals.add(registered.drivePosition);
+      signals.add(registered.steerPosition);
+    }
+    m_allSignals = signals.toArray(new BaseStatusSignal[0]);
+    return module.buffer;
+  }
+
+  /** Start sampling. Calling this more than once does nothing. */
+  public synchronized void start() {
+    if (m_thread != null || m_modules.isEmpty()) {
+      return;
+    }
+    // Ask the motor controllers to send the position frames at the odometry rate. That waits
+    // for every device to answer, so it runs in the background. It uses copies of the
+    // signals, because the odometry thread is already refreshing the originals.
+    BaseStatusSignal[] rateSignals = new BaseStatusSignal[m_allSignals.length];
+    for (int i = 0; i < rateSignals.length; i++) {
+      rateSignals[i] = m_allSignals[i].clone();
+    }
+    BackgroundExecutor.getInstance().submit(
+        "Odometry signal rates", BackgroundExecutor.Priority.HIGH,
+        () -> BaseStatusSignal.setUpdateFrequencyForAll(
+            SwerveConstants.kOdometryFrequencyHz, rateSignals),
+        status -> {
+          if (!status.isOK()) {
+            DriverStation.reportWarning(
+                "Odometry signal rates failed: " + status.getName(), false);
+          }
+        });
+
+    m_thread = new Thread(this::run, "Odometry");
+    m_thread.setDaemon(true);
+    // Higher priority than the main loop so samples are taken on time.
+    m_thread.setPriority(Thread.MAX_PRIORITY);
+    m_thread.start();
+  }
+
+  private void run() {
+    // Wait at most two periods for new data so one missed frame does not stall the thread.
+    double timeoutSeconds = 2.0 / SwerveConstants.kOdometryFrequencyHz;
+    ModuleSignals[] modules = m_modules.toArray(new ModuleSignals[0]);
+
+    while (!Thread.currentThread().isInterrupted()) {
+      // Sleep until every position signal has a new value from the CAN bus.
+      StatusCode status = BaseStatusSignal.waitForAll(timeoutSeconds, m_allSignals);
+      if (!status.isOK()) {
+        continue;
+      }
+
+      double now = RobotController.getFPGATime() / 1e6;
+      for (ModuleSignals module : modules) {
+        // The signal's latency tells us how long ago the motor measured this value.
+        double timestamp = now - module.drivePosition.getTimestamp().getLatency();
+        module.buffer.add(
+            timestamp,
+            module.drivePosition.getValueAsDouble(),
+            module.steerPosition.getValueAsDouble());
+      }
+    }
+  }
+}
@@ -0,0 +1,276 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants.PoseConstants;
+import frc.robot.Constants.SwerveConstants;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.PoseHistory;
+import frc.robot.util.SwerveKinematics;
+import frc.robot.util.Telemetry;
+
+/**
+ * Works out where the robot is on the field, from the wheels, the gyro, and a camera.
+ *
+ * <p><b>Odometry.</b> Every fast (250 Hz) wheel sample, the distance each wheel rolled and the
+ * way it pointed are turned into how far the robot moved. Adding those small moves up gives
+ * the odometry pose. It is smooth and reacts instantly, but every wheel slip adds error that
+ * never goes away. Each odometry pose is saved in a {@link PoseHistory} with its timestamp.
+ *
+ * <p><b>Vision.</b> A camera that recognizes field markers can say where the robot is without
+ * that drift, but its answer arrives tens of milliseconds after the picture was taken. Blending
+ * a late answer into the current pose would pull the robot back toward where it <i>was</i>.
+ * Instead, {@link #addVisionMeasurement} looks up the odometry pose from the moment the picture
+ * was taken, compares the two there, and stores the difference as a correction. The estimate
+ * is always "the newest odometry pose, moved by the correction", so everything the wheels
+ * measured since the picture is kept.
+ *
+ * <p>All of this uses plain numbers in arrays made once, so it adds no garbage to the loop.
+ * The estimator must be created after the drivetrain, so it runs after the drivetrain has read
+ * the gyro each loop.
+ */
+public class PoseEstimator extends SubsystemBase {
+  private final SwerveDrivetrain m_drivetrain;
+  private final SwerveKinematics m_kinematics =
+      new SwerveKinematics(SwerveConstants.kModuleXMeters, SwerveConstants.kModuleYMeters);
+  private final PoseHistory m_odometryHistory = new PoseHistory(PoseConstants.kHistoryCapacity);
+
+  // The odometry pose: where the wheels alone say the robot is. Heading is not wrapped.
+  private double m_odometryX;
+  private double m_odometryY;
+  private double m_odometryHeading;
+  // Each wheel's drive position at the last sample, and the drivetrain heading last loop.
+  private final double[] m_lastDrivePositions;
+  private double m_lastLoopHeading;
+  private boolean m_started;
+
+  // Reused for each sample: wheel distances (meters), angles (rotations), robot move.
+  private final double[] m_distances;
+  private final double[] m_angles;
+  private final double[] m_move = new double[3];
+
+  // The correction from odometry to the field: rotate the odometry pose by the heading, then
+  // shift it by x and y. Starts as "no change".
+  private double m_correctionX;
+  private double m_correctionY;
+  private double m_correctionHeading;
+
+  // The best estimate: the newest odometry pose with the correction applied.
+  private double m_estimateX;
+  private double m_estimateY;
+  private double m_estimateHeading;
+
+  // Reused by addVisionMeasurement() for the odometry pose at the picture's time.
+  private final double[] m_poseAtCapture = new double[3];
+  private int m_acceptedVisionCount;
+  private int m_rejectedVisionCount;
+
+  private final int m_estimateChannel =
+      Telemetry.getInstance().addDoubleArray("/Pose/Estimate", 3);
+  private final int m_odometryChannel =
+      Telemetry.getInstance().addDoubleArray("/Pose/Odometry", 3);
+  private final LoopProfiler.Section m_periodicSection =
+      LoopProfiler.getInstance().section("PoseEstimator.periodic");
+
+  /**
+   * @param drivetrain The drivetrain whose modules and heading are used.
+   */
+  public PoseEstimator(SwerveDrivetrain drivetrain) {
+    m_drivetrain = drivetrain;
+    int moduleCount = drivetrain.getModuleCount();
+    m_lastDrivePositions = new double[moduleCount];
+    m_distances = new double[moduleCount];
+    m_angles = new double[moduleCount];
+  }
+
+  @Override
+  public void periodic() {
+    m_periodicSection.start();
+    double loopHeading = m_drivetrain.getHeadingRadians();
+    if (!m_started) {
+      // Nothing to compare against yet: start from where the wheels are now.
+      for (int i = 0; i < m_drivetrain.getModuleCount(); i++) {
+        m_lastDrivePositions[i] = m_drivetrain.getModule(i).getDrivePosition();
+      }
+      m_odometryHeading = loopHeading;
+      m_lastLoopHeading = loopHeading;
+      m_started = true;
+    }
+
+    // The odometry thread samples every module at the same moments, so module 0's sample
+    // times stand for all of them.
+    SwerveModule first = m_drivetrain.getModule(0);
+    int sampleCount = first.getSampleCount();
+    if (sampleCount == 0) {
+      // No fast samples (the odometry thread is not running): use this loop's snapshot.
+      addOdometryStep(Timer.getFPGATimestamp(), -1, loopHeading, 1.0);
+    } else {
+      for (int k = 0; k < sampleCount; k++) {
+        addOdometryStep(
+            first.getSampleTimestamp(k), k, loopHeading, (k + 1.0) / sampleCount);
+      }
+    }
+    m_lastLoopHeading = loopHeading;
+    updateEstimate();
+    m_periodicSection.stop();
+  }
+
+  /** Send the estimate and the odometry pose to the dashboard. Run as deferrable work. */
+  public void publishTelemetry() {
+    Telemetry telemetry = Telemetry.getInstance();
+    telemetry.put(m_estimateChannel, m_estimateX);
+    telemetry.put(m_estimateChannel + 1, m_estimateY);
+    telemetry.put(m_estimateChannel + 2, m_estimateHeading);
+    telemetry.put(m_odometryChannel, m_odometryX);
+    telemetry.put(m_odometryChannel + 1, m_odometryY);
+    telemetry.put(m_odometryChannel + 2, m_odometryHeading);
+  }
+
+  /**
+   * Move the odometry pose by what the wheels did since the last sample and save it.
+   *
+   * @param timestampSeconds When the sample was taken.
+   * @param sampleIndex Which fast sample to use, or -1 for the loop snapshot.
+   * @param loopHeading The drivetrain heading this loop.
+   * @param fraction How far through this loop the sample is, from just above 0 to 1.
+   */
+  private void addOdometryStep(
+      double timestampSeconds, int sampleIndex, double loopHeading, double fraction) {
+    for (int i = 0; i < m_distances.length; i++) {
+      SwerveModule module = m_drivetrain.getModule(i);
+      int count = module.getSampleCount();
+      double drivePosition;
+      double steerPosition;
+      if (sampleIndex < 0 || count == 0) {
+        drivePosition = module.getDrivePosition();
+        steerPosition = module.getRotations();
+      } else {
+        int k = Math.min(sampleIndex, count - 1);
+        drivePosition = module.getSampleDrivePosition(k);
+        steerPosition = module.getSampleSteerPosition(k);
+      }
+      m_distances[i] =
+          (drivePosition - m_lastDrivePositions[i]) / SwerveConstants.kDriveRotationsPerMeter;
+      m_angles[i] = steerPosition;
+      m_lastDrivePositions[i] = drivePosition;
+    }
+    // Distances in place of speeds give how far the robot moved instead of how fast.
+    m_kinematics.toChassisSpeeds(m_distances, m_angles, m_move);
+
+    // The gyro is read once per loop, so spread its change evenly over the loop's samples.
+    // Turn the robot-relative move to the field using the heading halfway through it.
+    double heading = m_lastLoopHeading + fraction * (loopHeading - m_lastLoopHeading);
+    double middleHeading = (m_odometryHeading + heading) / 2;
+    double cos = Math.cos(middleHeading);
+    double sin = Math.sin(middleHeading);
+    m_odometryX += m_move[0] * cos - m_move[1] * sin;
+    m_odometryY += m_move[0] * sin + m_move[1] * cos;
+    m_odometryHeading = heading;
+    m_odometryHistory.add(timestampSeconds, m_odometryX, m_odometryY, m_odometryHeading);
+  }
+
+  /**
+   * Blend in where a camera saw the robot.
+   *
+   * @param timestampSeconds When the picture was taken (not when it was processed), in FPGA
+   *     seconds.
+   * @param x The field x position the camera saw, in meters.
+   * @param y The field y position the camera saw, in meters.
+   * @param headingRadians The heading the camera saw.
+   * @return False if the picture was too old to use.
+   */
+  public boolean addVisionMeasurement(
+      double timestampSeconds, double x, double y, double headingRadians) {
+    if (Timer.getFPGATimestamp() - timestampSeconds > PoseConstants.kVisionMaxAgeSeconds
+        || !m_odometryHistory.getPoseAt(timestampSeconds, m_poseAtCapture)) {
+      m_rejectedVisionCount++;
+      return false;
+    }
+    double odometryX = m_poseAtCapture[0];
+    double odometryY = m_poseAtCapture[1];
+    double odometryHeading = m_poseAtCapture[2];
+
+    // Where we thought the robot was when the picture was taken.
+    double cos = Math.cos(m_correctionHeading);
+    double sin = Math.sin(m_correctionHeading);
+    double thenX = m_correctionX + odometryX * cos - odometryY * sin;
+    double thenY = m_correctionY + odometryX * sin + odometryY * cos;
+    double thenHeading = odometryHeading + m_correctionHeading;
+
+    // Move part of the way toward what the camera saw, then change the correction so that
+    // moment maps to the new pose. Everything since then moves with it.
+    double targetX = thenX + PoseConstants.kVisionTranslationWeight * (x - thenX);
+    double targetY = thenY + PoseConstants.kVisionTranslationWeight * (y - thenY);
+    double targetHeading = thenHeading + PoseConstants.kVisionHeadingWeight
+        * MathUtil.angleModulus(headingRadians - thenHeading);
+    setCorrection(odometryX, odometryY, odometryHeading, targetX, targetY, targetHeading);
+    m_acceptedVisionCount++;
+    return true;
+  }
+
+  /**
+   * Tell the estimator exactly where the robot is, for example at the start of a match.
+   *
+   * @param x Field x position in meters.
+   * @param y Field y position in meters.
+   * @param headingRadians Heading in radians.
+   */
+  public void resetPose(double x, double y, double headingRadians) {
+    setCorrection(m_odometryX, m_odometryY, m_odometryHeading, x, y, headingRadians);
+  }
+
+  /** Set the correction so the given odometry pose lands on the given field pose. */
+  private void setCorrection(
+      double odometryX, double odometryY, double odometryHeading,
+      double fieldX, double fieldY, double fieldHeading) {
+    m_correctionHeading = fieldHeading - odometryHeading;
+    double cos = Math.cos(m_correctionHeading);
+    double sin = Math.sin(m_correctionHeading);
+    m_correctionX = fieldX - (odometryX * cos - odometryY * sin);
+    m_correctionY = fieldY - (odometryX * sin + odometryY * cos);
+    updateEstimate();
+  }
+
+  private void updateEstimate() {
+    double cos = Math.cos(m_correctionHeading);
+    double sin = Math.sin(m_correctionHeading);
+    m_estimateX = m_correctionX + m_odometryX * cos - m_odometryY * sin;
+    m_estimateY = m_correctionY + m_odometryX * sin + m_odometryY * cos;
+    m_estimateHeading = m_odometryHeading + m_correctionHeading;
+  }
+
+  /** The estimated field x position, in meters. */
+  public double getX() {
+    return m_estimateX;
+  }
+
+  /** The estimated field y position, in meters. */
+  public double getY() {
+    return m_estimateY;
+  }
+
+  /** The estimated heading in radians, counterclockwise. Not wrapped to +/- pi. */
+  public double getHeadingRadians() {
+    return m_estimateHeading;
+  }
+
+  /** The timestamped odometry poses, before any camera correction. */
+  public PoseHistory getOdometryHistory() {
+    return m_odometryHistory;
+  }
+
+  /** How many camera frames were blended in. */
+  public int getAcceptedVisionCount() {
+    return m_acceptedVisionCount;
+  }
+
+  /** How many camera frames were too old to use. */
+  public int getRejectedVisionCount() {
+    return m_rejectedVisionCount;
+  }
+}
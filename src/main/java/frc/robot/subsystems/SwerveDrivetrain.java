@@ -0,0 +1,264 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import java.util.function.IntFunction;
+
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.BatterySim;
+import edu.wpi.first.wpilibj.simulation.RoboRioSim;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants.LoopConstants;
+import frc.robot.Constants.PoseConstants;
+import frc.robot.Constants.SwerveConstants;
+import frc.robot.subsystems.GyroIO.GyroIOInputs;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.PoseHistory;
+import frc.robot.util.SwerveKinematics;
+import frc.robot.util.Telemetry;
+
+/**
+ * Subsystem for the whole swerve drive: several {@link SwerveModule}s working together.
+ *
+ * <p>You tell the drivetrain how the robot should move (forward, sideways, and turning speed),
+ * and it works out the speed and angle for every wheel. All of the math uses arrays that are
+ * made once in the constructor, so driving does not create new objects every loop.
+ */
+public class SwerveDrivetrain extends SubsystemBase {
+  private final SwerveModule[] m_modules;
+  private final SwerveKinematics m_kinematics;
+
+  // The gyro tells us which way the robot is facing on the field.
+  private final GyroIO m_gyroIO;
+  private final GyroIOInputs m_gyroInputs = new GyroIOInputs();
+  private double m_headingRadians;
+
+  // Wanted wheel speeds and angles, reused every loop.
+  private final double[] m_desiredSpeeds;
+  private final double[] m_desiredAngles;
+
+  // Measured wheel speeds and angles, and the robot motion worked out from them.
+  private final double[] m_measuredSpeeds;
+  private final double[] m_measuredAngles;
+  private final double[] m_measuredChassisSpeeds = new double[3];
+  // Simulation only: each module's current draw, reused every loop.
+  private final double[] m_simulatedCurrents;
+
+  // Simulation only: where the robot really is, added up from how far each wheel really rolled
+  // on the carpet. It leaves out wheel slip and sensor noise, so the simulated gyro and camera
+  // do not share odometry's mistakes. Heading is not wrapped.
+  private final PoseHistory m_simulatedPoses = new PoseHistory(PoseConstants.kHistoryCapacity);
+  private final double[] m_simulatedLastTravel;
+  private final double[] m_simulatedDistances;
+  private final double[] m_simulatedAngles;
+  private final double[] m_simulatedMove = new double[3];
+  private double m_simulatedX;
+  private double m_simulatedY;
+  private double m_simulatedHeading;
+  private boolean m_simulationStarted;
+
+  // Telemetry channels: {vx, vy, omega} and the heading.
+  private final int m_chassisSpeedsChannel =
+      Telemetry.getInstance().addDoubleArray("/Swerve/ChassisSpeeds", 3);
+  private final int m_headingChannel = Telemetry.getInstance().addDouble("/Swerve/HeadingRadians");
+
+  private final LoopProfiler.Section m_periodicSection =
+      LoopProfiler.getInstance().section("SwerveDrivetrain.periodic");
+
+  /**
+   * Creates the drivetrain from modules that were already built.
+   *
+   * <p>The modules are built first on purpose: the command scheduler runs subsystem
+   * periodic() methods in the order the subsystems were created, so the modules read their
+   * sensors before the drivetrain uses those readings.
+   *
+   * @param gyroIO The gyro hardware (or simulation).
+   * @param modules The modules, in the same order as the positions in {@link SwerveConstants}.
+   */
+  public SwerveDrivetrain(GyroIO gyroIO, SwerveModule... modules) {
+    m_gyroIO = gyroIO;
+    int moduleCount = modules.length;
+    m_modules = modules.clone();
+    m_kinematics =
+        new SwerveKinematics(SwerveConstants.kModuleXMeters, SwerveConstants.kModuleYMeters);
+
+    m_desiredSpeeds = new double[moduleCount];
+    m_desiredAngles = new double[moduleCount];
+    m_measuredSpeeds = new double[moduleCount];
+    m_measuredAngles = new double[moduleCount];
+    m_simulatedCurrents = new double[moduleCount];
+    m_simulatedLastTravel = new double[moduleCount];
+    m_simulatedDistances = new double[moduleCount];
+    m_simulatedAngles = new double[moduleCount];
+  }
+
+  /**
+   * Build one module for each position in {@link SwerveConstants}.
+   *
+   * @param ioFactory Makes the IO for module number i, for example
+   *     {@code i -> new SwerveModuleIOSim()}.
+   */
+  public static SwerveModule[] createModules(IntFunction<SwerveModuleIO> ioFactory) {
+    SwerveModule[] modules = new SwerveModule[SwerveConstants.kModuleXMeters.length];
+    for (int i = 0; i < modules.length; i++) {
+      modules[i] = new SwerveModule("Module" + i, ioFactory.apply(i));
+    }
+    return modules;
+  }
+
+  /**
+   * Get one of the modules, for commands that control a single wheel.
+   *
+   * @param index 0 = front-left, 1 = front-right, 2 = back-left, 3 = back-right.
+   */
+  public SwerveModule getModule(int index) {
+    return m_modules[index];
+  }
+
+  /** The number of modules on the robot. */
+  public int getModuleCount() {
+    return m_modules.length;
+  }
+
+  /**
+   * Drive the robot.
+   *
+   * @param vx Forward speed in meters per second.
+   * @param vy Leftward speed in meters per second.
+   * @param omega Counterclockwise turning speed in radians per second.
+   * @param fieldRelative If true, "forward" means away from the driver, no matter which way the
+   *     robot is facing. If false, "forward" means the way the robot's front points.
+   */
+  public void drive(double vx, double vy, double omega, boolean fieldRelative) {
+    if (fieldRelative) {
+      // Rotate the field-based request into the robot's own point of view.
+      double cos = Math.cos(m_headingRadians);
+      double sin = Math.sin(m_headingRadians);
+      double robotVx = vx * cos + vy * sin;
+      double robotVy = -vx * sin + vy * cos;
+      vx = robotVx;
+      vy = robotVy;
+    }
+
+    m_kinematics.toModuleStates(vx, vy, omega, m_desiredSpeeds, m_desiredAngles);
+    m_kinematics.desaturate(m_desiredSpeeds, SwerveConstants.kMaxSpeedMetersPerSecond);
+
+    for (int i = 0; i < m_modules.length; i++) {
+      // If a command is using this one module (like SpinWheelCommand), let it have control.
+      if (m_modules[i].getCurrentCommand() != null) {
+        continue;
+      }
+      m_modules[i].setDesiredState(m_desiredSpeeds[i], m_desiredAngles[i]);
+    }
+  }
+
+  /** Stop all of the wheels. The steering stays where it is. */
+  public void stop() {
+    drive(0, 0, 0, false);
+  }
+
+  @Override
+  public void periodic() {
+    m_periodicSection.start();
+
+    // Work out how the robot is really moving from what the wheels report.
+    for (int i = 0; i < m_modules.length; i++) {
+      m_measuredSpeeds[i] = m_modules[i].getWheelSpeedMetersPerSecond();
+      m_measuredAngles[i] = m_modules[i].getRotations();
+    }
+    m_kinematics.toChassisSpeeds(m_measuredSpeeds, m_measuredAngles, m_measuredChassisSpeeds);
+
+    m_gyroIO.updateInputs(m_gyroInputs);
+    if (m_gyroInputs.connected) {
+      m_headingRadians = Math.toRadians(m_gyroInputs.yawDegrees);
+    } else {
+      // No gyro reading: keep going by adding up how the wheels say the robot turned.
+      m_headingRadians += getMeasuredOmega() * TimedRobot.kDefaultPeriod;
+    }
+    m_periodicSection.stop();
+  }
+
+  /** Send the measured motion and heading to the dashboard. Run as deferrable work. */
+  public void publishTelemetry() {
+    Telemetry telemetry = Telemetry.getInstance();
+    telemetry.put(m_chassisSpeedsChannel, m_measuredChassisSpeeds[0]);
+    telemetry.put(m_chassisSpeedsChannel + 1, m_measuredChassisSpeeds[1]);
+    telemetry.put(m_chassisSpeedsChannel + 2, m_measuredChassisSpeeds[2]);
+    telemetry.put(m_headingChannel, m_headingRadians);
+  }
+
+  /**
+   * Move the simulated robot by what its wheels really did during this fast control tick, and
+   * turn the simulated gyro by the same amount. The {@link frc.robot.util.FastControlLoop} runs
+   * this after every module's {@link SwerveModule#simulationFastPeriodic()}, so the true pose
+   * keeps up with the wheels instead of trailing them by a loop.
+   */
+  public void simulationFastPeriodic() {
+    for (int i = 0; i < m_modules.length; i++) {
+      double travel = m_modules[i].getSimulatedGroundTravelMeters();
+      if (!m_simulationStarted) {
+        m_simulatedLastTravel[i] = travel;
+      }
+      m_simulatedDistances[i] = travel - m_simulatedLastTravel[i];
+      m_simulatedAngles[i] = m_modules[i].getSimulatedSteerRotations();
+      m_simulatedLastTravel[i] = travel;
+    }
+    m_simulationStarted = true;
+    // Distances in place of speeds give how far the robot moved, like in the PoseEstimator.
+    m_kinematics.toChassisSpeeds(m_simulatedDistances, m_simulatedAngles, m_simulatedMove);
+
+    double middleHeading = m_simulatedHeading + m_simulatedMove[2] / 2;
+    m_simulatedX += m_simulatedMove[0] * Math.cos(middleHeading)
+        - m_simulatedMove[1] * Math.sin(middleHeading);
+    m_simulatedY += m_simulatedMove[0] * Math.sin(middleHeading)
+        + m_simulatedMove[1] * Math.cos(middleHeading);
+    m_simulatedHeading += m_simulatedMove[2];
+    // The wheels were just moved to the end of this tick, so that is when the pose is from.
+    m_simulatedPoses.add(Timer.getFPGATimestamp() + LoopConstants.kFastLoopPeriodSeconds,
+        m_simulatedX, m_simulatedY, m_simulatedHeading);
+
+    double dt = LoopConstants.kFastLoopPeriodSeconds;
+    m_gyroIO.simulationPeriodic(m_simulatedMove[2] / dt, dt);
+  }
+
+  /**
+   * Where the simulated robot really was over time, for the simulated camera and for tests.
+   * Only filled in simulation.
+   */
+  public PoseHistory getSimulatedPoseHistory() {
+    return m_simulatedPoses;
+  }
+
+  @Override
+  public void simulationPeriodic() {
+    // Motors pulling current make the battery voltage drop, just like on the real robot.
+    // Pass our own array: handing the currents over one by one would make a new array.
+    for (int i = 0; i < m_modules.length; i++) {
+      m_simulatedCurrents[i] = m_modules[i].getSimulatedCurrentDrawAmps();
+    }
+    RoboRioSim.setVInVoltage(BatterySim.calculateDefaultBatteryLoadedVoltage(m_simulatedCurrents));
+  }
+
+  /** Which way the robot is facing, in radians counterclockwise from where it started. */
+  public double getHeadingRadians() {
+    return m_headingRadians;
+  }
+
+  /** The measured forward speed of the robot in meters per second. */
+  public double getMeasuredVx() {
+    return m_measuredChassisSpeeds[0];
+  }
+
+  /** The measured leftward speed of the robot in meters per second. */
+  public double getMeasuredVy() {
+    return m_measuredChassisSpeeds[1];
+  }
+
+  /** The measured counterclockwise turning speed of the robot in radians per second. */
+  public double getMeasuredOmega() {
+    return m_measuredChassisSpeeds[2];
+  }
+}
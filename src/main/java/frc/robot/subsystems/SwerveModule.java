@@ -4,58 +4,362 @@
 
 package frc.robot.subsystems;
 
-import static edu.wpi.first.units.Units.Rotation;
+import static edu.wpi.first.units.Units.Seconds;
+import static edu.wpi.first.units.Units.Volts;
 
-import com.ctre.phoenix6.configs.TalonFXConfiguration;
-import com.ctre.phoenix6.controls.PositionVoltage;
-import com.ctre.phoenix6.hardware.TalonFX;
+import java.util.function.DoubleSupplier;
 
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import com.ctre.phoenix6.SignalLogger;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.util.sendable.SendableRegistry;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
+import frc.robot.Constants.LoopConstants;
+import frc.robot.Constants.SwerveConstants;
+import frc.robot.subsystems.SwerveModuleIO.SwerveModuleIOInputs;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.OdometrySampleBuffer;
+import frc.robot.util.Telemetry;
 
 /**
  * Subsystem for one swerve wheel. It controls the drive motor and the steering motor.
+ *
+ * <p>Sensor values are read once per loop in {@link #periodic()} and saved as plain numbers.
+ * Every command then reads that same "snapshot", so one 20 ms loop sees one consistent view
+ * of the hardware instead of asking the motors again and again. The positions in it are
+ * latency-compensated, so completion checks like {@link #isSteeringSettledAt} and the
+ * dashboard use where the wheel is now, not where it was when the motor last reported.
+ *
+ * <p>The wheel positions are also sampled much faster by the {@link OdometryThread}. Each loop
+ * those samples are collected here, so commands can use the newest position and can even ask
+ * exactly when a distance was reached between two loops.
+ *
+ * <p>The drive motor can be given a distance or a speed instead of a raw power. The motor
+ * controller then runs its own 1000 Hz control loop to get there, which is much faster and
+ * smoother than anything the 50 Hz robot loop can do.
+ *
+ * <p>When the drivetrain gives the module a speed and angle ({@link #setDesiredState}), the
+ * drive speed keeps being updated by {@link #fastPeriodic()} between robot loops. It reads the
+ * steering angle 200 times a second and only lets the wheel push as much as it points the
+ * right way, so a wheel that is still turning does not shove the robot sideways.
+ *
+ * <p>The feedforward gains (kS, kV, kA) in {@link SwerveConstants} should come from the robot,
+ * not from guesses. The SysId commands (like {@link #sysIdDriveQuasistatic}) spin a motor with
+ * slowly rising or fixed voltages. The motor's voltage, position and speed are recorded by
+ * CTRE's signal logger as the TalonFX sends them, 250 times a second in test mode, instead of
+ * once per 50 Hz loop, so the fast start of a step test is not missed. Each command only adds
+ * which test is running to that log. Tuner X turns the log (a .hoot file) into a file the
+ * WPILib SysId tool reads to fit kS, kV and kA.
+ *
+ * <p>The module never talks to motors directly. It goes through a {@link SwerveModuleIO}, so
+ * the same module code runs with real TalonFX motors or with a pure-Java simulation in tests.
  */
 public class SwerveModule extends SubsystemBase {
 
-  
-  TalonFX driveMotor = new TalonFX(7);
-  TalonFX steerMotor = new TalonFX(8);
-  
-  private final PositionVoltage positionRequest = new PositionVoltage(0);
 
-  /** Set up the motors and their sensors. */
-  public SwerveModule() {
-    
-    
-    TalonFXConfiguration config = new TalonFXConfiguration();
-    config.Feedback.SensorToMechanismRatio = 12.8;
+  private final SwerveModuleIO m_io;
+  // The time in seconds, used to limit the drive acceleration. The FPGA clock on the robot.
+  private final DoubleSupplier m_clockSeconds;
+  // The snapshot: plain numbers copied out of the IO once per loop.
+  private final SwerveModuleIOInputs m_inputs = new SwerveModuleIOInputs();
+
+  // Telemetry channels, registered once so the loop only writes plain numbers.
+  private final int m_angleChannel;
+  private final int m_stateChannel;
+  private final LoopProfiler.Section m_periodicSection;
+
+  // System identification routines, one for each motor.
+  private final SysIdRoutine m_driveSysId;
+  private final SysIdRoutine m_steerSysId;
+
+  // Fast position samples from the odometry thread. Filled once per loop in refreshSensors().
+  private final double[] m_sampleTimestamps;
+  private final double[] m_sampleDrivePositions;
+  private final double[] m_sampleSteerPositions;
+  private int m_sampleCount;
+  // The last sample from the loop before, so a crossing between two loops is not missed.
+  private double m_previousSampleTimestamp = Double.NaN;
+  private double m_previousSampleDrivePosition;
+
+  // The last speed and angle from setDesiredState(). fastPeriodic() follows them between loops.
+  private boolean m_followingDesiredState;
+  private double m_desiredDriveVelocity;
+  private double m_desiredSteerRotations;
+  // The drive speed actually sent to the motor, and when it was sent (m_clockSeconds time).
+  private double m_driveVelocitySetpoint;
+  private double m_lastSetpointTimestamp;
+
+  /**
+   * Set up the module.
+   *
+   * @param name A short name for this module, like "FrontLeft". Used on the dashboard.
+   * @param io The hardware (or simulation) this module controls.
+   */
+  public SwerveModule(String name, SwerveModuleIO io) {
+    this(name, io, true, Timer::getFPGATimestamp);
+  }
+
+  /**
+   * Set up a module that nothing else on the robot can see: it is not run by the command
+   * scheduler and has no dashboard values, loop timing or SysId routines. {@link
+   * frc.robot.WarmUp} uses these to run the control code without adding anything to the
+   * robot's own dashboard and logs. Only use the sensor snapshot, the drive and steer requests
+   * and {@link #fastPeriodic()} on it.
+   *
+   * <p>The acceleration limit uses the clock given here instead of the FPGA clock, so a
+   * warm-up that runs many pretend loops in a few real milliseconds can still ramp the wheels
+   * up to speed.
+   *
+   * @param name A short name for this module, only used in error messages.
+   * @param io The (pretend) hardware this module controls.
+   * @param clockSeconds The (pretend) time in seconds.
+   */
+  public static SwerveModule createHidden(
+      String name, SwerveModuleIO io, DoubleSupplier clockSeconds) {
+    return new SwerveModule(name, io, false, clockSeconds);
+  }
+
+  private SwerveModule(
+      String name, SwerveModuleIO io, boolean visible, DoubleSupplier clockSeconds) {
+    setName(name);
+    m_io = io;
+    m_clockSeconds = clockSeconds;
 
-    config.Slot0.kP = 10;
+    OdometrySampleBuffer odometryBuffer = m_io.getOdometryBuffer();
+    m_sampleTimestamps = new double[odometryBuffer.getCapacity()];
+    m_sampleDrivePositions = new double[odometryBuffer.getCapacity()];
+    m_sampleSteerPositions = new double[odometryBuffer.getCapacity()];
 
-    steerMotor.getConfigurator().apply(config);
-    steerMotor.setPosition(0);
+    if (visible) {
+      Telemetry telemetry = Telemetry.getInstance();
+      // The angle is still shown under SmartDashboard, but each module now has its own key
+      // ("Swerve/<name>/Angle" instead of "Swerve/Angle"), so old layouts must be updated.
+      m_angleChannel = telemetry.addDouble("/SmartDashboard/Swerve/" + name + "/Angle");
+      // Every snapshot value, published together as one array.
+      m_stateChannel = telemetry.addDoubleArray("/Swerve/" + name + "/State", 8);
+      m_periodicSection = LoopProfiler.getInstance().section(name + ".periodic");
+
+      // Made once here, so logging does not build new strings every loop.
+      String driveStateKey = "SysId/" + name + "-drive/State";
+      String steerStateKey = "SysId/" + name + "-steer/State";
+      // The drive uses the default test: 1 volt per second ramp, 7 volt step, 10 second
+      // limit. The routine only records which test is running; the motor data comes from the
+      // signal logger, so no log callback is given to the mechanism.
+      m_driveSysId = new SysIdRoutine(
+          new SysIdRoutine.Config(
+              null, null, null,
+              state -> SignalLogger.writeString(driveStateKey, state.toString())),
+          new SysIdRoutine.Mechanism(volts -> setDriveVoltage(volts.in(Volts)), null, this));
+      // The steering is light and spins up fast, so use a smaller step and a shorter limit.
+      m_steerSysId = new SysIdRoutine(
+          new SysIdRoutine.Config(
+              null, Volts.of(4), Seconds.of(5),
+              state -> SignalLogger.writeString(steerStateKey, state.toString())),
+          new SysIdRoutine.Mechanism(
+              volts -> m_io.setSteerVoltage(volts.in(Volts)), null, this));
+    } else {
+      m_angleChannel = -1;
+      m_stateChannel = -1;
+      m_periodicSection = null;
+      m_driveSysId = null;
+      m_steerSysId = null;
+      // SubsystemBase added us to the scheduler and to LiveWindow; take both back out.
+      CommandScheduler.getInstance().unregisterSubsystem(this);
+      SendableRegistry.remove(this);
+    }
+
+    // Take a first snapshot so commands scheduled before the first loop see real values.
+    refreshSensors();
   }
 
   /**
    * Drive the wheel forward or backward with a value from -1 (full reverse) to 1 (full forward).
    */
   public void drive(double speed){
-    driveMotor.set(speed);
+    m_followingDesiredState = false;
+    m_io.setDriveDutyCycle(speed);
+  }
+
+  /**
+   * Drive the wheel to a position in motor rotations. The motor controller plans a smooth
+   * speed-up, cruise, and slow-down (Motion Magic) and stops on the target by itself.
+   *
+   * @param rotations The drive motor position to go to, in rotations.
+   */
+  public void setDrivePosition(double rotations) {
+    setDrivePosition(rotations, SwerveConstants.kDriveCruiseVelocity);
+  }
+
+  /**
+   * Drive the wheel to a position in motor rotations, like {@link #setDrivePosition(double)},
+   * but cruise at a slower speed in the middle of the move.
+   *
+   * @param rotations The drive motor position to go to, in rotations.
+   * @param cruiseVelocity The top speed of the move, in motor rotations per second.
+   */
+  public void setDrivePosition(double rotations, double cruiseVelocity) {
+    m_followingDesiredState = false;
+    m_io.setDrivePosition(rotations, cruiseVelocity);
+  }
+
+  /**
+   * Spin the drive motor at a steady speed using the motor controller's velocity control.
+   * The kS and kV gains give the motor the voltage it needs up front (feedforward), and kP
+   * fixes any small error that is left.
+   *
+   * @param rotationsPerSecond The drive motor speed, in rotations per second.
+   */
+  public void setDriveVelocity(double rotationsPerSecond) {
+    m_followingDesiredState = false;
+    m_io.setDriveVelocity(rotationsPerSecond);
+  }
+
+  /**
+   * Check if the drive motor has arrived at a position and has nearly stopped.
+   *
+   * @param targetRotations The drive motor position we want, in rotations.
+   */
+  public boolean isDriveSettledAt(double targetRotations) {
+    return Math.abs(m_inputs.drivePositionRotations - targetRotations)
+            < SwerveConstants.kDrivePositionToleranceRotations
+        && Math.abs(m_inputs.driveVelocityRotationsPerSecond)
+            < SwerveConstants.kDriveVelocityToleranceRotationsPerSecond;
   }
 
   /**
    * Rotate the steering motor at a given speed from -1 (full reverse) to 1 (full forward).
    */
   public void steer(double speed) {
-    steerMotor.set(speed);
+    m_io.setSteerDutyCycle(speed);
   }
 
   /**
    * Set the steering motor to a target position in rotations using closed-loop control.
+   * The steering wraps around, so it takes the short way to the target angle. The motor
+   * controller plans a smooth Motion Magic Expo move there instead of jumping at full power.
    */
   public void setSteeringPosition(double rotations) {
-    steerMotor.setControl(positionRequest.withPosition(rotations));
+    m_io.setSteerPosition(rotations);
+  }
+
+  /**
+   * Change the steering gains while the robot runs, for example from a tuning dashboard.
+   * The new gains are sent to the motor controller in the background, so this never makes
+   * the loop wait for the CAN bus.
+   *
+   * @param kP Volts per rotation of steering error.
+   * @param kD Volts per rotation per second of steering error change.
+   */
+  public void setSteerGains(double kP, double kD) {
+    m_io.setSteerGains(kP, kD);
+  }
+
+  /**
+   * Point the wheel at an angle and spin it at a speed. This is how the drivetrain
+   * tells each module what to do.
+   *
+   * <p>A wheel pointing backward and spinning backward moves the robot the same way as a wheel
+   * pointing forward and spinning forward. So if the new angle is more than a quarter turn
+   * away, we point the wheel the opposite way and flip the drive direction instead. The
+   * steering never has to turn more than 90 degrees.
+   *
+   * @param speedMetersPerSecond How fast the wheel should roll.
+   * @param angleRotations Which way the wheel should point, in rotations.
+   */
+  public void setDesiredState(double speedMetersPerSecond, double angleRotations) {
+    double currentAngle = m_inputs.steerPositionRotations;
+    // How far to turn, taking the short way round the circle: between -0.5 and 0.5.
+    double delta = MathUtil.inputModulus(angleRotations - currentAngle, -0.5, 0.5);
+    if (Math.abs(delta) > 0.25) {
+      delta -= Math.copySign(0.5, delta);
+      speedMetersPerSecond = -speedMetersPerSecond;
+    }
+    if (!m_followingDesiredState) {
+      // Start ramping from the speed the wheel has now.
+      m_followingDesiredState = true;
+      m_driveVelocitySetpoint = m_inputs.driveVelocityRotationsPerSecond;
+      m_lastSetpointTimestamp = m_clockSeconds.getAsDouble();
+    }
+    m_desiredDriveVelocity = speedMetersPerSecond * SwerveConstants.kDriveRotationsPerMeter;
+    m_desiredSteerRotations = currentAngle + delta;
+    setSteeringPosition(m_desiredSteerRotations);
+    updateDriveSetpoint(currentAngle);
+  }
+
+  /**
+   * The fast control callback, run by the {@link frc.robot.util.FastControlLoop} between
+   * robot loops. Commands still only change the desired state 50 times a second; this just
+   * keeps the drive speed matched to where the wheel is pointing right now.
+   */
+  public void fastPeriodic() {
+    if (m_followingDesiredState) {
+      updateDriveSetpoint(m_io.readSteerPosition());
+    }
+  }
+
+  /**
+   * Send the drive speed for the latest desired state.
+   *
+   * <p>The speed is scaled by the cosine of the steering error: full speed when the wheel
+   * points the right way, none when it is still 90 degrees off. The change from the last
+   * speed sent is also limited by the drive acceleration, using the time since then, so
+   * the ramp is the same however often this is called.
+   *
+   * @param steerRotations The steering position measured just now.
+   */
+  private void updateDriveSetpoint(double steerRotations) {
+    double now = m_clockSeconds.getAsDouble();
+    double maxChange = SwerveConstants.kDriveAcceleration * (now - m_lastSetpointTimestamp);
+    m_lastSetpointTimestamp = now;
+
+    double error = MathUtil.inputModulus(m_desiredSteerRotations - steerRotations, -0.5, 0.5);
+    double target = m_desiredDriveVelocity * Math.max(0, Math.cos(2 * Math.PI * error));
+    m_driveVelocitySetpoint +=
+        MathUtil.clamp(target - m_driveVelocitySetpoint, -maxChange, maxChange);
+    m_io.setDriveVelocity(m_driveVelocitySetpoint);
+  }
+
+  /**
+   * The drive speed last sent to the motor while following {@link #setDesiredState}, in motor
+   * rotations per second. It is the desired speed held back by the steering error and the
+   * acceleration limit.
+   */
+  public double getDriveVelocitySetpoint() {
+    return m_driveVelocitySetpoint;
+  }
+
+  /** Apply a fixed voltage to the drive motor. Used by the SysId tests. */
+  private void setDriveVoltage(double volts) {
+    m_followingDesiredState = false;
+    m_io.setDriveVoltage(volts);
+  }
+
+  /**
+   * Check if the steering has arrived at an angle and has nearly stopped turning.
+   * Checking the speed too means a move that is only passing through the target does not
+   * count as done.
+   *
+   * @param targetRotations The angle we want, in rotations.
+   */
+  public boolean isSteeringSettledAt(double targetRotations) {
+    return Math.abs(getSteeringError(targetRotations))
+            < SwerveConstants.kSteerPositionToleranceRotations
+        && Math.abs(m_inputs.steerVelocityRotationsPerSecond)
+            < SwerveConstants.kSteerVelocityToleranceRotationsPerSecond;
+  }
+
+  /**
+   * How far the steering is from a target angle, the short way round the circle.
+   *
+   * @param targetRotations The angle we want, in rotations.
+   * @return The error in rotations, between -0.5 and 0.5.
+   */
+  public double getSteeringError(double targetRotations) {
+    return MathUtil.inputModulus(targetRotations - m_inputs.steerPositionRotations, -0.5, 0.5);
   }
 
   /**
@@ -66,20 +370,225 @@ public class SwerveModule extends SubsystemBase {
   public void setHeading(double rotation) {
   }
 
+  /**
+   * Read every sensor value in one batch and copy the values into the snapshot.
+   * The command scheduler runs subsystem periodic() before any command, so commands always
+   * see the values from this loop.
+   */
+  public void refreshSensors() {
+    m_io.updateInputs(m_inputs);
+
+    // Remember where the last batch ended, then collect the new fast samples.
+    if (m_sampleCount > 0) {
+      m_previousSampleTimestamp = m_sampleTimestamps[m_sampleCount - 1];
+      m_previousSampleDrivePosition = m_sampleDrivePositions[m_sampleCount - 1];
+    }
+    m_sampleCount = m_io.getOdometryBuffer().drainTo(
+        m_sampleTimestamps, m_sampleDrivePositions, m_sampleSteerPositions);
+  }
+
+  /**
+   * Find the moment the drive position first reached a target during the latest loop.
+   * The time is estimated between the two fast samples on either side of the target.
+   *
+   * @param targetPosition The drive position to look for, in rotations.
+   * @return The FPGA time in seconds when the target was crossed, or NaN if it was not
+   *     crossed since the previous loop.
+   */
+  public double getDriveCrossingTimestamp(double targetPosition) {
+    double lastTime = m_previousSampleTimestamp;
+    double lastPosition = m_previousSampleDrivePosition;
+    for (int i = 0; i < m_sampleCount; i++) {
+      double time = m_sampleTimestamps[i];
+      double position = m_sampleDrivePositions[i];
+      boolean crossed = (lastPosition - targetPosition) * (position - targetPosition) <= 0
+          && position != lastPosition;
+      if (!Double.isNaN(lastTime) && crossed) {
+        // Straight-line guess of when, between the two samples, the target was passed.
+        double fraction = (targetPosition - lastPosition) / (position - lastPosition);
+        return lastTime + fraction * (time - lastTime);
+      }
+      lastTime = time;
+      lastPosition = position;
+    }
+    return Double.NaN;
+  }
+
+  /** How many fast position samples arrived since the previous loop. */
+  public int getSampleCount() {
+    return m_sampleCount;
+  }
+
+  /** When fast sample i of this loop was taken, in FPGA seconds. 0 is the oldest. */
+  public double getSampleTimestamp(int i) {
+    return m_sampleTimestamps[i];
+  }
+
+  /** The drive position in fast sample i of this loop, in motor rotations. */
+  public double getSampleDrivePosition(int i) {
+    return m_sampleDrivePositions[i];
+  }
+
+  /** The steering position in fast sample i of this loop, in module rotations. */
+  public double getSampleSteerPosition(int i) {
+    return m_sampleSteerPositions[i];
+  }
+
   @Override
   public void periodic() {
-    // Show the steering position on the SmartDashboard to help with debugging.
-    SmartDashboard.putNumber("Swerve/Angle", getRotations());
+    m_periodicSection.start();
+    refreshSensors();
+    m_periodicSection.stop();
+  }
+
+  /**
+   * Send this loop's snapshot to the dashboard. This is not in periodic(): the robot runs it as
+   * deferrable work, so it can be skipped when the loop is short on time.
+   */
+  public void publishTelemetry() {
+    // Show the steering position on the dashboard to help with debugging.
+    Telemetry telemetry = Telemetry.getInstance();
+    telemetry.put(m_angleChannel, m_inputs.steerPositionRotations);
+    telemetry.put(m_stateChannel, m_inputs.drivePositionRotations);
+    telemetry.put(m_stateChannel + 1, m_inputs.driveVelocityRotationsPerSecond);
+    telemetry.put(m_stateChannel + 2, m_inputs.driveCurrentAmps);
+    telemetry.put(m_stateChannel + 3, m_inputs.driveTemperatureCelsius);
+    telemetry.put(m_stateChannel + 4, m_inputs.steerPositionRotations);
+    telemetry.put(m_stateChannel + 5, m_inputs.steerVelocityRotationsPerSecond);
+    telemetry.put(m_stateChannel + 6, m_inputs.steerCurrentAmps);
+    telemetry.put(m_stateChannel + 7, m_inputs.steerTemperatureCelsius);
+  }
+
+  /**
+   * Move the physics model forward by one fast control tick. In simulation the
+   * {@link frc.robot.util.FastControlLoop} runs this just before {@link #fastPeriodic()}, so
+   * the simulated wheel keeps turning between robot loops and the fast loop sees it move, the
+   * same as on the real robot. Stepping the whole 20 ms at once in simulationPeriodic() would
+   * leave every fast tick reading the same angle.
+   */
+  public void simulationFastPeriodic() {
+    m_io.simulationPeriodic(LoopConstants.kFastLoopPeriodSeconds);
+  }
+
+  /**
+   * How much current the simulated motors are pulling from the battery, in amps.
+   * Only meaningful in simulation.
+   */
+  public double getSimulatedCurrentDrawAmps() {
+    return m_io.getSimulatedCurrentDrawAmps();
+  }
+
+  /**
+   * How far the simulated wheel has really rolled, in meters, leaving out wheel slip.
+   * Only meaningful in simulation.
+   */
+  public double getSimulatedGroundTravelMeters() {
+    return m_io.getSimulatedGroundTravelRotations() / SwerveConstants.kDriveRotationsPerMeter;
+  }
+
+  /** Which way the simulated wheel really points, in rotations. Only meaningful in simulation. */
+  public double getSimulatedSteerRotations() {
+    return m_io.getSimulatedSteerRotations();
+  }
+
+  /**
+   * SysId test for the drive motor: the voltage rises slowly, so the wheel is never
+   * accelerating much. This measures kS (friction) and kV (volts per speed).
+   *
+   * @param direction Which way to spin.
+   */
+  public Command sysIdDriveQuasistatic(SysIdRoutine.Direction direction) {
+    return m_driveSysId.quasistatic(direction);
+  }
+
+  /**
+   * SysId test for the drive motor: a sudden fixed voltage, so the wheel accelerates hard.
+   * This measures kA (volts per acceleration).
+   *
+   * @param direction Which way to spin.
+   */
+  public Command sysIdDriveDynamic(SysIdRoutine.Direction direction) {
+    return m_driveSysId.dynamic(direction);
+  }
+
+  /**
+   * SysId slow-ramp test for the steering motor. The drive motor is stopped first.
+   *
+   * @param direction Which way to turn.
+   */
+  public Command sysIdSteerQuasistatic(SysIdRoutine.Direction direction) {
+    return m_steerSysId.quasistatic(direction).beforeStarting(() -> setDriveVoltage(0));
   }
 
+  /**
+   * SysId fixed-voltage test for the steering motor. The drive motor is stopped first.
+   *
+   * @param direction Which way to turn.
+   */
+  public Command sysIdSteerDynamic(SysIdRoutine.Direction direction) {
+    return m_steerSysId.dynamic(direction).beforeStarting(() -> setDriveVoltage(0));
+  }
+
+  /**
+   * Get the steering position in rotations from this loop's snapshot.
+   */
   public double getRotations(){
-    return steerMotor.getPosition().getValue().in(Rotation);
+    return m_inputs.steerPositionRotations;
+  }
+
+  /**
+   * Get the steering speed in rotations per second from this loop's snapshot.
+   */
+  public double getSteerVelocity() {
+    return m_inputs.steerVelocityRotationsPerSecond;
   }
 
   /**
    * Get the current position of the drive motor in rotations.
    */
   public double getDrivePosition() {
-    return driveMotor.getPosition().getValue().in(Rotation);
+    return m_inputs.drivePositionRotations;
+  }
+
+  /**
+   * Get the drive motor speed in rotations per second from this loop's snapshot.
+   */
+  public double getDriveVelocity() {
+    return m_inputs.driveVelocityRotationsPerSecond;
+  }
+
+  /**
+   * Get how fast the wheel is rolling along the ground, in meters per second.
+   */
+  public double getWheelSpeedMetersPerSecond() {
+    return m_inputs.driveVelocityRotationsPerSecond / SwerveConstants.kDriveRotationsPerMeter;
+  }
+
+  /**
+   * Get the current (amps) pulled from the battery by the drive motor.
+   */
+  public double getDriveCurrent() {
+    return m_inputs.driveCurrentAmps;
+  }
+
+  /**
+   * Get the current (amps) pulled from the battery by the steering motor.
+   */
+  public double getSteerCurrent() {
+    return m_inputs.steerCurrentAmps;
+  }
+
+  /**
+   * Get the drive motor temperature in degrees Celsius.
+   */
+  public double getDriveTemperature() {
+    return m_inputs.driveTemperatureCelsius;
+  }
+
+  /**
+   * Get the steering motor temperature in degrees Celsius.
+   */
+  public double getSteerTemperature() {
+    return m_inputs.steerTemperatureCelsius;
   }
 }
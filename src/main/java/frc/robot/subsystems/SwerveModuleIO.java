@@ -0,0 +1,117 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import frc.robot.util.OdometrySampleBuffer;
+
+/**
+ * The hardware side of one swerve module: "IO" stands for input/output.
+ *
+ * <p>{@link SwerveModule} decides what the wheel should do. An IO class does the actual talking
+ * to motors. Because the module only uses this interface, we can swap in a different IO without
+ * changing any command code:
+ * <ul>
+ *   <li>{@link SwerveModuleIOTalonFX} talks to real TalonFX motor controllers (or CTRE's
+ *       simulated ones when running the simulator GUI).</li>
+ *   <li>{@link SwerveModuleIOSim} is a pure-Java physics model. It has no hidden threads or
+ *       clocks, so tests can run it much faster than real time and get the same answer
+ *       every time.</li>
+ * </ul>
+ */
+public interface SwerveModuleIO {
+  /**
+   * The sensor values read from the module once per loop. Plain numbers only.
+   *
+   * <p>Positions are latency-compensated: the IO adds how far the mechanism moved between
+   * the motor controller measuring it and us reading it, so they say where it is now.
+   */
+  class SwerveModuleIOInputs {
+    public double drivePositionRotations;
+    public double driveVelocityRotationsPerSecond;
+    public double driveCurrentAmps;
+    public double driveTemperatureCelsius;
+    public double driveAppliedVolts;
+    public double steerPositionRotations;
+    public double steerVelocityRotationsPerSecond;
+    public double steerCurrentAmps;
+    public double steerTemperatureCelsius;
+    public double steerAppliedVolts;
+  }
+
+  /** Read the newest sensor values into {@code inputs}. */
+  void updateInputs(SwerveModuleIOInputs inputs);
+
+  /**
+   * Read only the steering position (latency-compensated), right now. Much cheaper than
+   * {@link #updateInputs}, so the fast control loop can call it several times per robot loop.
+   *
+   * @return The steering position in module rotations.
+   */
+  double readSteerPosition();
+
+  /** The buffer that fast (250 Hz) position samples are written into. */
+  OdometrySampleBuffer getOdometryBuffer();
+
+  /** Run the drive motor at a fraction of full power, from -1 to 1. */
+  void setDriveDutyCycle(double output);
+
+  /** Apply a fixed voltage to the drive motor. Used for system identification. */
+  void setDriveVoltage(double volts);
+
+  /**
+   * Move the drive motor to a position (motor rotations) with a Motion Magic profile that
+   * cruises at the given speed (motor rotations per second).
+   */
+  void setDrivePosition(double rotations, double cruiseVelocity);
+
+  /** Spin the drive motor at a speed in motor rotations per second. */
+  void setDriveVelocity(double rotationsPerSecond);
+
+  /** Run the steering motor at a fraction of full power, from -1 to 1. */
+  void setSteerDutyCycle(double output);
+
+  /** Apply a fixed voltage to the steering motor. Used for system identification. */
+  void setSteerVoltage(double volts);
+
+  /** Hold the steering at a position, in module rotations. */
+  void setSteerPosition(double rotations);
+
+  /**
+   * Change the steering position gains while the robot runs. Used for live tuning.
+   *
+   * @param kP Volts per rotation of steering error.
+   * @param kD Volts per rotation per second of steering error change.
+   */
+  void setSteerGains(double kP, double kD);
+
+  /**
+   * Move any physics model forward in time. Only used in simulation.
+   *
+   * @param dtSeconds How much time passed since the last call.
+   */
+  default void simulationPeriodic(double dtSeconds) {}
+
+  /** How much current the simulated motors pull from the battery, in amps. */
+  default double getSimulatedCurrentDrawAmps() {
+    return 0;
+  }
+
+  /**
+   * How far the simulated wheel has really rolled the robot across the carpet, in drive motor
+   * rotations. Unlike the drive position, it leaves out any wheel slip and sensor noise, so
+   * the simulation can tell where the robot truly is. Only meaningful in simulation.
+   */
+  default double getSimulatedGroundTravelRotations() {
+    return 0;
+  }
+
+  /**
+   * Which way the simulated wheel really points, in module rotations, without sensor noise.
+   * Only meaningful in simulation.
+   */
+  default double getSimulatedSteerRotations() {
+    return 0;
+  }
+}
@@ -0,0 +1,460 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import java.util.Random;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.SwerveConstants;
+import frc.robot.util.OdometrySampleBuffer;
+
+/**
+ * A swerve module made entirely of math, for fast and repeatable simulation.
+ *
+ * <p>CTRE's simulated TalonFX runs its firmware on its own clock in real time, so a test using it
+ * cannot go faster than the robot would. This class instead models the motors and copies what
+ * the TalonFX firmware would do (duty cycle, voltage, velocity and Motion Magic control) in
+ * plain Java. Time only moves when {@link #simulationPeriodic(double)} is called, so a test can
+ * run a 15 second autonomous in a fraction of a second, and get the same result every time.
+ */
+public class SwerveModuleIOSim implements SwerveModuleIO {
+  // The real motor controller runs its control loop 1000 times a second, so we do too.
+  private static final double SUBSTEP_SECONDS = 0.001;
+  private static final double ODOMETRY_PERIOD_SECONDS =
+      1.0 / SwerveConstants.kOdometryFrequencyHz;
+
+  private final SimulatedMotor m_drive;
+  private final SimulatedMotor m_steer;
+
+  private final OdometrySampleBuffer m_odometryBuffer = new OdometrySampleBuffer(64);
+  private final DoubleSupplier m_clock;
+  private double m_timeSinceOdometrySample;
+
+  // Optional pretend sensor noise, so tuning is not fooled by perfect readings.
+  private Random m_noise;
+  private double m_noiseStdDevRotations;
+
+  // Optional pretend wheel slip: this fraction of the drive motor's turning does not move the
+  // robot, and the drive motor rotations lost that way so far.
+  private double m_wheelSlip;
+  private double m_slippedRotations;
+
+  /** Creates a simulated module that uses the robot clock for sample timestamps. */
+  public SwerveModuleIOSim() {
+    this(Timer::getFPGATimestamp);
+  }
+
+  /**
+   * Creates a simulated module with its own clock.
+   *
+   * @param clockSeconds Gives the current time in seconds, used to timestamp odometry samples.
+   */
+  public SwerveModuleIOSim(DoubleSupplier clockSeconds) {
+    m_clock = clockSeconds;
+
+    // The drive motor reports motor rotations, so its sensor ratio is 1.
+    m_drive = new SimulatedMotor(
+        SwerveConstants.kDriveGearRatio, SwerveConstants.kSimDriveInertia, 1.0);
+    m_drive.setVelocityGains(
+        SwerveConstants.kDriveKS, SwerveConstants.kDriveKV, SwerveConstants.kDriveKA,
+        SwerveConstants.kDriveKP);
+    m_drive.setPositionGains(SwerveConstants.kDrivePositionKP, SwerveConstants.kDrivePositionKD);
+    m_drive.setMotionMagic(
+        SwerveConstants.kDriveCruiseVelocity, SwerveConstants.kDriveAcceleration);
+
+    // The steering motor reports module rotations (12.8 motor rotations per module rotation).
+    m_steer = new SimulatedMotor(
+        SwerveConstants.kSteerGearRatio, SwerveConstants.kSimSteerInertia,
+        SwerveConstants.kSteerGearRatio);
+    m_steer.setVelocityGains(
+        SwerveConstants.kSteerKS, SwerveConstants.kSteerKV, SwerveConstants.kSteerKA, 0);
+    m_steer.setPositionGains(SwerveConstants.kSteerKP, SwerveConstants.kSteerKD);
+    m_steer.setMotionMagicExpo(SwerveConstants.kSteerExpoKV, SwerveConstants.kSteerExpoKA);
+    // Like the TalonFX config: the steering takes the short way round.
+    m_steer.setContinuousWrap(true);
+  }
+
+  /**
+   * Change the steering position gain, like changing kP in the TalonFX configuration.
+   *
+   * @param kP Volts per rotation of steering error.
+   */
+  public void setSteerKP(double kP) {
+    setSteerGains(kP, SwerveConstants.kSteerKD);
+  }
+
+  @Override
+  public void setSteerGains(double kP, double kD) {
+    m_steer.setPositionGains(kP, kD);
+  }
+
+  /**
+   * Change the drive velocity gain (slot 0 kP).
+   *
+   * @param kP Volts per rotation per second of speed error.
+   */
+  public void setDriveVelocityKP(double kP) {
+    m_drive.setVelocityGains(
+        SwerveConstants.kDriveKS, SwerveConstants.kDriveKV, SwerveConstants.kDriveKA, kP);
+  }
+
+  /**
+   * Add random noise to every position reading.
+   *
+   * @param random Where the noise comes from. Give it a fixed seed for repeatable runs.
+   * @param stdDevRotations How big the noise usually is (one standard deviation), in rotations.
+   */
+  public void setSensorNoise(Random random, double stdDevRotations) {
+    m_noise = random;
+    m_noiseStdDevRotations = stdDevRotations;
+  }
+
+  /**
+   * Make the wheel slip on the carpet. Only part of its turning then moves the robot, but the
+   * encoder still counts all of it, so odometry drifts away from where the robot really is,
+   * the same way it does on a real field.
+   *
+   * @param fraction How much of the wheel's turning is lost, from 0 (perfect grip) to 1.
+   */
+  public void setWheelSlip(double fraction) {
+    m_wheelSlip = fraction;
+  }
+
+  /** Put both motors back at rest at position 0, with no control request. */
+  public void reset() {
+    m_drive.reset();
+    m_steer.reset();
+    m_timeSinceOdometrySample = 0;
+    m_slippedRotations = 0;
+  }
+
+  @Override
+  public void updateInputs(SwerveModuleIOInputs inputs) {
+    // The model has no CAN delay, so its positions need no latency compensation.
+    inputs.drivePositionRotations = m_drive.getPosition() + nextNoise();
+    inputs.driveVelocityRotationsPerSecond = m_drive.getVelocity();
+    inputs.driveCurrentAmps = Math.abs(m_drive.getCurrentAmps());
+    inputs.driveTemperatureCelsius = 25;
+    inputs.driveAppliedVolts = m_drive.getAppliedVolts();
+    inputs.steerPositionRotations = m_steer.getPosition() + nextNoise();
+    inputs.steerVelocityRotationsPerSecond = m_steer.getVelocity();
+    inputs.steerCurrentAmps = Math.abs(m_steer.getCurrentAmps());
+    inputs.steerTemperatureCelsius = 25;
+    inputs.steerAppliedVolts = m_steer.getAppliedVolts();
+  }
+
+  @Override
+  public double readSteerPosition() {
+    return m_steer.getPosition() + nextNoise();
+  }
+
+  private double nextNoise() {
+    return m_noise == null ? 0 : m_noise.nextGaussian() * m_noiseStdDevRotations;
+  }
+
+  @Override
+  public OdometrySampleBuffer getOdometryBuffer() {
+    return m_odometryBuffer;
+  }
+
+  @Override
+  public void setDriveDutyCycle(double output) {
+    m_drive.setDutyCycle(output);
+  }
+
+  @Override
+  public void setDriveVoltage(double volts) {
+    m_drive.setVoltage(volts);
+  }
+
+  @Override
+  public void setDrivePosition(double rotations, double cruiseVelocity) {
+    m_drive.setMotionMagic(cruiseVelocity, SwerveConstants.kDriveAcceleration);
+    m_drive.setMotionMagicTarget(rotations);
+  }
+
+  @Override
+  public void setDriveVelocity(double rotationsPerSecond) {
+    m_drive.setVelocityTarget(rotationsPerSecond);
+  }
+
+  @Override
+  public void setSteerDutyCycle(double output) {
+    m_steer.setDutyCycle(output);
+  }
+
+  @Override
+  public void setSteerVoltage(double volts) {
+    m_steer.setVoltage(volts);
+  }
+
+  @Override
+  public void setSteerPosition(double rotations) {
+    m_steer.setMotionMagicTarget(rotations);
+  }
+
+  @Override
+  public void simulationPeriodic(double dtSeconds) {
+    double startTime = m_clock.getAsDouble();
+    int steps = (int) Math.round(dtSeconds / SUBSTEP_SECONDS);
+    for (int i = 1; i <= steps; i++) {
+      double drivePosition = m_drive.getPosition();
+      m_drive.step(SUBSTEP_SECONDS);
+      m_slippedRotations += (m_drive.getPosition() - drivePosition) * m_wheelSlip;
+      m_steer.step(SUBSTEP_SECONDS);
+
+      // Pretend to be the odometry thread: take a sample every 4 ms.
+      m_timeSinceOdometrySample += SUBSTEP_SECONDS;
+      if (m_timeSinceOdometrySample >= ODOMETRY_PERIOD_SECONDS - 1e-9) {
+        m_timeSinceOdometrySample -= ODOMETRY_PERIOD_SECONDS;
+        m_odometryBuffer.add(
+            startTime + i * SUBSTEP_SECONDS, m_drive.getPosition(), m_steer.getPosition());
+      }
+    }
+  }
+
+  @Override
+  public double getSimulatedCurrentDrawAmps() {
+    return Math.abs(m_drive.getCurrentAmps()) + Math.abs(m_steer.getCurrentAmps());
+  }
+
+  @Override
+  public double getSimulatedGroundTravelRotations() {
+    return m_drive.getPosition() - m_slippedRotations;
+  }
+
+  @Override
+  public double getSimulatedSteerRotations() {
+    return m_steer.getPosition();
+  }
+
+  /**
+   * One motor, its gearbox, and a copy of the motor controller's control modes.
+   * All gains use the same units as the TalonFX: volts per sensor rotation (or per rotation per
+   * second), where the sensor reading is motor rotations divided by the sensor ratio.
+   */
+  static final class SimulatedMotor {
+    private enum Mode { DUTY_CYCLE, VOLTAGE, VELOCITY, MOTION_MAGIC }
+
+    private static final double NOMINAL_VOLTAGE = 12.0;
+    private static final DCMotor MOTOR = DCMotor.getKrakenX60(1);
+
+    private final double m_reflectedInertia;
+    private final double m_sensorRatio;
+    // How fast the motor speed settles after a voltage change, in seconds.
+    private final double m_timeConstant;
+
+    // Motor shaft state, in radians and radians per second.
+    private double m_motorAngle;
+    private double m_motorSpeed;
+    private double m_currentAmps;
+    private double m_appliedVolts;
+
+    private Mode m_mode = Mode.DUTY_CYCLE;
+    private double m_target;
+    private boolean m_continuousWrap;
+
+    private double m_kS;
+    private double m_kV;
+    private double m_kA;
+    private double m_velocityKP;
+    private double m_positionKP;
+    private double m_positionKD;
+    private double m_cruiseVelocity;
+    private double m_acceleration;
+    private double m_expoKV;
+    private double m_expoKA;
+
+    // Motion Magic profile: where the planned motion is right now.
+    private double m_profilePosition;
+    private double m_profileVelocity;
+
+    /**
+     * @param gearRatio Motor rotations per rotation of the part being moved.
+     * @param inertia How hard the moved part is to spin up, in kg*m^2.
+     * @param sensorRatio Motor rotations per reported sensor rotation.
+     */
+    SimulatedMotor(double gearRatio, double inertia, double sensorRatio) {
+      // Gears make the part feel lighter to the motor by the square of the ratio.
+      m_reflectedInertia = inertia / (gearRatio * gearRatio);
+      m_sensorRatio = sensorRatio;
+      m_timeConstant =
+          m_reflectedInertia * MOTOR.rOhms * MOTOR.KvRadPerSecPerVolt / MOTOR.KtNMPerAmp;
+    }
+
+    void setVelocityGains(double kS, double kV, double kA, double kP) {
+      m_kS = kS;
+      m_kV = kV;
+      m_kA = kA;
+      m_velocityKP = kP;
+    }
+
+    void setPositionGains(double kP, double kD) {
+      m_positionKP = kP;
+      m_positionKD = kD;
+    }
+
+    /** Treat one sensor rotation as a full circle, like ClosedLoopGeneral.ContinuousWrap. */
+    void setContinuousWrap(boolean enabled) {
+      m_continuousWrap = enabled;
+    }
+
+    void setMotionMagic(double cruiseVelocity, double acceleration) {
+      m_cruiseVelocity = cruiseVelocity;
+      m_acceleration = acceleration;
+      m_expoKV = 0;
+      m_expoKA = 0;
+    }
+
+    /**
+     * Use a Motion Magic Expo profile: the plan follows what a motor with these feedforward
+     * gains can really do, getting less acceleration as it speeds up.
+     */
+    void setMotionMagicExpo(double expoKV, double expoKA) {
+      m_expoKV = expoKV;
+      m_expoKA = expoKA;
+      m_cruiseVelocity = NOMINAL_VOLTAGE / expoKV;
+      m_acceleration = NOMINAL_VOLTAGE / expoKA;
+    }
+
+    void setDutyCycle(double output) {
+      m_mode = Mode.DUTY_CYCLE;
+      m_target = output;
+    }
+
+    void setVoltage(double volts) {
+      m_mode = Mode.VOLTAGE;
+      m_target = volts;
+    }
+
+    void setVelocityTarget(double velocity) {
+      m_mode = Mode.VELOCITY;
+      m_target = velocity;
+    }
+
+    void setMotionMagicTarget(double position) {
+      if (m_mode != Mode.MOTION_MAGIC) {
+        // A new profile starts from wherever the motor is now.
+        m_profilePosition = getPosition();
+        m_profileVelocity = getVelocity();
+      }
+      m_mode = Mode.MOTION_MAGIC;
+      m_target = position;
+    }
+
+    void reset() {
+      m_motorAngle = 0;
+      m_motorSpeed = 0;
+      m_currentAmps = 0;
+      m_appliedVolts = 0;
+      m_mode = Mode.DUTY_CYCLE;
+      m_target = 0;
+      m_profilePosition = 0;
+      m_profileVelocity = 0;
+    }
+
+    /** The reported position, in sensor rotations. */
+    double getPosition() {
+      return m_motorAngle / (2 * Math.PI) / m_sensorRatio;
+    }
+
+    /** The reported velocity, in sensor rotations per second. */
+    double getVelocity() {
+      return m_motorSpeed / (2 * Math.PI) / m_sensorRatio;
+    }
+
+    double getCurrentAmps() {
+      return m_currentAmps;
+    }
+
+    /** The voltage the motor controller put on the motor during the last step. */
+    double getAppliedVolts() {
+      return m_appliedVolts;
+    }
+
+    /** Work out the motor voltage like the motor controller would, then move the physics. */
+    void step(double dt) {
+      double volts = computeVoltage(dt);
+      volts = Math.max(-NOMINAL_VOLTAGE, Math.min(NOMINAL_VOLTAGE, volts));
+      m_appliedVolts = volts;
+
+      // Motor physics: the voltage left over after the "back-EMF" pushes current through the
+      // coils, and current makes torque.
+      m_currentAmps = (volts - m_motorSpeed / MOTOR.KvRadPerSecPerVolt) / MOTOR.rOhms;
+
+      // With a steady voltage the speed moves toward a "free speed" along an exponential curve.
+      // Using the exact curve keeps the model stable even for light parts like the steering.
+      double freeSpeed = volts * MOTOR.KvRadPerSecPerVolt;
+      double newSpeed = freeSpeed + (m_motorSpeed - freeSpeed) * Math.exp(-dt / m_timeConstant);
+      m_motorAngle += 0.5 * (m_motorSpeed + newSpeed) * dt;
+      m_motorSpeed = newSpeed;
+    }
+
+    private double computeVoltage(double dt) {
+      double position = getPosition();
+      double velocity = getVelocity();
+      switch (m_mode) {
+        case VELOCITY:
+          return m_kS * Math.signum(m_target) + m_kV * m_target
+              + m_velocityKP * (m_target - velocity);
+        case MOTION_MAGIC:
+          double acceleration = stepProfile(dt);
+          return m_kS * Math.signum(m_profileVelocity) + m_kV * m_profileVelocity
+              + m_kA * acceleration
+              + m_positionKP * wrap(m_profilePosition - position)
+              + m_positionKD * (m_profileVelocity - velocity);
+        case VOLTAGE:
+          return m_target;
+        case DUTY_CYCLE:
+        default:
+          return m_target * NOMINAL_VOLTAGE;
+      }
+    }
+
+    /**
+     * With continuous wrap, the same angle one turn later is no error at all, so keep the
+     * error within half a turn.
+     */
+    private double wrap(double error) {
+      return m_continuousWrap ? MathUtil.inputModulus(error, -0.5, 0.5) : error;
+    }
+
+    /** Move the trapezoid (or Expo) profile forward and return its acceleration. */
+    private double stepProfile(double dt) {
+      double distance = wrap(m_target - m_profilePosition);
+      // The fastest speed from which we can still stop on the target.
+      double stoppingSpeed = Math.sqrt(2 * m_acceleration * Math.abs(distance));
+      double wantedVelocity = Math.signum(distance) * Math.min(m_cruiseVelocity, stoppingSpeed);
+
+      double acceleration = m_acceleration;
+      if (m_expoKA > 0) {
+        // Expo: the faster the motor already spins, the less voltage is left to speed it up.
+        acceleration = Math.max(
+            0, (NOMINAL_VOLTAGE - m_expoKV * Math.abs(m_profileVelocity)) / m_expoKA);
+        if (Math.abs(wantedVelocity) < Math.abs(m_profileVelocity)) {
+          // Slowing down: the full acceleration is always available.
+          acceleration = m_acceleration;
+        }
+      }
+      double maxChange = acceleration * dt;
+      double change =
+          Math.max(-maxChange, Math.min(maxChange, wantedVelocity - m_profileVelocity));
+      m_profileVelocity += change;
+      m_profilePosition += m_profileVelocity * dt;
+
+      // Close enough: land exactly on the target so the profile does not wobble around it.
+      double landing = m_acceleration * dt;
+      double remaining = wrap(m_target - m_profilePosition);
+      if (Math.abs(remaining) < landing * dt && Math.abs(m_profileVelocity) <= landing) {
+        m_profilePosition += remaining;
+        m_profileVelocity = 0;
+      }
+      return change / dt;
+    }
+  }
+}
@@ -0,0 +1,329 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.configs.TalonFXConfiguration;
+import com.ctre.phoenix6.controls.DutyCycleOut;
+import com.ctre.phoenix6.controls.DynamicMotionMagicVoltage;
+import com.ctre.phoenix6.controls.MotionMagicExpoVoltage;
+import com.ctre.phoenix6.controls.VelocityVoltage;
+import com.ctre.phoenix6.controls.VoltageOut;
+import com.ctre.phoenix6.hardware.TalonFX;
+import com.ctre.phoenix6.sim.TalonFXSimState;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.system.plant.LinearSystemId;
+import edu.wpi.first.units.measure.Angle;
+import edu.wpi.first.units.measure.AngularVelocity;
+import edu.wpi.first.units.measure.Current;
+import edu.wpi.first.units.measure.Temperature;
+import edu.wpi.first.units.measure.Voltage;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+import frc.robot.Constants.SwerveConstants;
+import frc.robot.util.DeviceConfigurator;
+import frc.robot.util.OdometrySampleBuffer;
+import frc.robot.util.SignalRateManager;
+import frc.robot.util.SignalRateManager.Priority;
+
+/**
+ * Swerve module IO for two TalonFX motor controllers (a drive motor and a steering motor).
+ *
+ * <p>When the robot program runs in the simulator GUI, CTRE simulates the TalonFX firmware.
+ * {@link #simulationPeriodic(double)} then pretends to be the real wheel: it feeds the voltage
+ * each simulated motor controller outputs into a physics model of the motor and gears, then
+ * tells the motor controller where the model says the motor is now.
+ */
+public class SwerveModuleIOTalonFX implements SwerveModuleIO {
+  // Never guess further ahead than this. An older value means a problem, not normal latency.
+  private static final double MAX_LATENCY_COMPENSATION_SECONDS = 0.05;
+
+  private final TalonFX m_driveMotor;
+  private final TalonFX m_steerMotor;
+
+  // The configurations we want each motor to have. They are sent in the background by the
+  // DeviceConfigurator, so building this IO never waits for the CAN bus.
+  private final TalonFXConfiguration m_driveConfig = new TalonFXConfiguration();
+  private final TalonFXConfiguration m_steerConfig = new TalonFXConfiguration();
+  private final DeviceConfigurator.Device m_driveDevice;
+  private final DeviceConfigurator.Device m_steerDevice;
+
+  // Requests are made once and reused, so sending one does not create a new object.
+  private final DutyCycleOut m_dutyCycleRequest = new DutyCycleOut(0);
+  private final VoltageOut m_voltageRequest = new VoltageOut(0);
+  // Steering moves follow a Motion Magic Expo profile: the motor controller plans the fastest
+  // move the motor can really do, and adds feedforward so the wheel follows it without wobbling.
+  private final MotionMagicExpoVoltage m_steerPositionRequest = new MotionMagicExpoVoltage(0);
+  // Distance moves use gain slot 1 (position gains); speed moves use slot 0 (velocity gains).
+  // The "dynamic" request carries its own cruise speed, so each move can pick how fast it goes.
+  private final DynamicMotionMagicVoltage m_driveDistanceRequest = new DynamicMotionMagicVoltage(
+      0, SwerveConstants.kDriveCruiseVelocity, SwerveConstants.kDriveAcceleration, 0)
+      .withSlot(1);
+  private final VelocityVoltage m_driveVelocityRequest = new VelocityVoltage(0);
+
+  // Status signals are the values the motor controllers report back to us.
+  // We keep a handle to each one so we can refresh them all together.
+  private final StatusSignal<Angle> m_drivePositionSignal;
+  private final StatusSignal<AngularVelocity> m_driveVelocitySignal;
+  private final StatusSignal<Current> m_driveCurrentSignal;
+  private final StatusSignal<Temperature> m_driveTemperatureSignal;
+  private final StatusSignal<Voltage> m_driveVoltageSignal;
+  private final StatusSignal<Angle> m_steerPositionSignal;
+  private final StatusSignal<AngularVelocity> m_steerVelocitySignal;
+  private final StatusSignal<Current> m_steerCurrentSignal;
+  private final StatusSignal<Temperature> m_steerTemperatureSignal;
+  private final StatusSignal<Voltage> m_steerVoltageSignal;
+
+  // All of the signals in one array so refreshAll() can read them in a single batch.
+  private final BaseStatusSignal[] m_allSignals;
+  // Just the steering position and speed, for the fast control loop.
+  private final BaseStatusSignal[] m_steerPositionSignals;
+
+  private final OdometrySampleBuffer m_odometryBuffer;
+
+  // Physics models of the drive and steering motors, used only in simulation.
+  // A Kraken X60 on each, with our gear ratios and a guess at how heavy each part feels.
+  private final DCMotorSim m_driveSim = new DCMotorSim(
+      LinearSystemId.createDCMotorSystem(
+          DCMotor.getKrakenX60(1), SwerveConstants.kSimDriveInertia,
+          SwerveConstants.kDriveGearRatio),
+      DCMotor.getKrakenX60(1));
+  private final DCMotorSim m_steerSim = new DCMotorSim(
+      LinearSystemId.createDCMotorSystem(
+          DCMotor.getKrakenX60(1), SwerveConstants.kSimSteerInertia,
+          SwerveConstants.kSteerGearRatio),
+      DCMotor.getKrakenX60(1));
+
+  /**
+   * Set up the motors and their sensors.
+   *
+   * @param driveMotorId The CAN ID of the drive motor.
+   * @param steerMotorId The CAN ID of the steering motor.
+   */
+  public SwerveModuleIOTalonFX(int driveMotorId, int steerMotorId) {
+    m_driveMotor = new TalonFX(driveMotorId);
+    m_steerMotor = new TalonFX(steerMotorId);
+
+    m_drivePositionSignal = m_driveMotor.getPosition();
+    m_driveVelocitySignal = m_driveMotor.getVelocity();
+    m_driveCurrentSignal = m_driveMotor.getSupplyCurrent();
+    m_driveTemperatureSignal = m_driveMotor.getDeviceTemp();
+    m_driveVoltageSignal = m_driveMotor.getMotorVoltage();
+    m_steerPositionSignal = m_steerMotor.getPosition();
+    m_steerVelocitySignal = m_steerMotor.getVelocity();
+    m_steerCurrentSignal = m_steerMotor.getSupplyCurrent();
+    m_steerTemperatureSignal = m_steerMotor.getDeviceTemp();
+    m_steerVoltageSignal = m_steerMotor.getMotorVoltage();
+    m_allSignals = new BaseStatusSignal[] {
+      m_drivePositionSignal,
+      m_driveVelocitySignal,
+      m_driveCurrentSignal,
+      m_driveTemperatureSignal,
+      m_driveVoltageSignal,
+      m_steerPositionSignal,
+      m_steerVelocitySignal,
+      m_steerCurrentSignal,
+      m_steerTemperatureSignal,
+      m_steerVoltageSignal
+    };
+    m_steerPositionSignals = new BaseStatusSignal[] {m_steerPositionSignal, m_steerVelocitySignal};
+
+    // Tell the CAN bus manager how often each value is needed. Anything not listed here is
+    // turned off once every device is built.
+    SignalRateManager rates = SignalRateManager.getInstance();
+    String drive = "TalonFX" + driveMotorId + "/";
+    String steer = "TalonFX" + steerMotorId + "/";
+    rates.register(drive + "Position", Priority.ODOMETRY, m_drivePositionSignal);
+    rates.register(drive + "Velocity", Priority.CONTROL, m_driveVelocitySignal);
+    rates.register(drive + "Current", Priority.DIAGNOSTIC, m_driveCurrentSignal);
+    rates.register(drive + "Temperature", Priority.SLOW, m_driveTemperatureSignal);
+    rates.register(drive + "Voltage", Priority.DIAGNOSTIC, m_driveVoltageSignal);
+    rates.register(steer + "Position", Priority.ODOMETRY, m_steerPositionSignal);
+    rates.register(steer + "Velocity", Priority.CONTROL, m_steerVelocitySignal);
+    rates.register(steer + "Current", Priority.DIAGNOSTIC, m_steerCurrentSignal);
+    rates.register(steer + "Temperature", Priority.SLOW, m_steerTemperatureSignal);
+    rates.register(steer + "Voltage", Priority.DIAGNOSTIC, m_steerVoltageSignal);
+    rates.registerDevice(m_driveMotor);
+    rates.registerDevice(m_steerMotor);
+
+    TalonFXConfiguration config = m_steerConfig;
+    config.Feedback.SensorToMechanismRatio = SwerveConstants.kSteerGearRatio;
+
+    config.Slot0.kS = SwerveConstants.kSteerKS;
+    config.Slot0.kV = SwerveConstants.kSteerKV;
+    config.Slot0.kA = SwerveConstants.kSteerKA;
+    config.Slot0.kP = SwerveConstants.kSteerKP;
+    config.Slot0.kD = SwerveConstants.kSteerKD;
+    // A cruise velocity of 0 means "as fast as the Expo kV allows".
+    config.MotionMagic.MotionMagicCruiseVelocity = 0;
+    config.MotionMagic.MotionMagicExpo_kV = SwerveConstants.kSteerExpoKV;
+    config.MotionMagic.MotionMagicExpo_kA = SwerveConstants.kSteerExpoKA;
+    // The steering is a circle: 0.9 rotations and -0.1 rotations point the same way. With
+    // continuous wrap the motor controller always takes the short way round to the target.
+    config.ClosedLoopGeneral.ContinuousWrap = true;
+
+    // Zero the steering once its configuration (including the gear ratio the position is
+    // counted in) has arrived. Setting a position waits for the motor controller to answer,
+    // so it happens in the background too.
+    DeviceConfigurator configurator = DeviceConfigurator.getInstance();
+    m_steerDevice = configurator.register(
+        "TalonFX " + steerMotorId + " (steer)", m_steerMotor, () -> m_steerMotor.setPosition(0));
+    configurator.configure(m_steerDevice, config);
+
+    // The drive motor works in motor rotations. Slot 0 holds the gains for velocity moves.
+    // Slot 1 has the same feedforward but corrects position error, for Motion Magic moves.
+    TalonFXConfiguration driveConfig = m_driveConfig;
+    driveConfig.Slot0.kS = SwerveConstants.kDriveKS;
+    driveConfig.Slot0.kV = SwerveConstants.kDriveKV;
+    driveConfig.Slot0.kA = SwerveConstants.kDriveKA;
+    driveConfig.Slot0.kP = SwerveConstants.kDriveKP;
+    driveConfig.Slot1.kS = SwerveConstants.kDriveKS;
+    driveConfig.Slot1.kV = SwerveConstants.kDriveKV;
+    driveConfig.Slot1.kA = SwerveConstants.kDriveKA;
+    driveConfig.Slot1.kP = SwerveConstants.kDrivePositionKP;
+    driveConfig.Slot1.kD = SwerveConstants.kDrivePositionKD;
+    driveConfig.MotionMagic.MotionMagicCruiseVelocity = SwerveConstants.kDriveCruiseVelocity;
+    driveConfig.MotionMagic.MotionMagicAcceleration = SwerveConstants.kDriveAcceleration;
+
+    m_driveDevice = configurator.register("TalonFX " + driveMotorId + " (drive)", m_driveMotor);
+    configurator.configure(m_driveDevice, driveConfig);
+
+    // The odometry thread gets its own copies of the position signals, because a status
+    // signal must not be refreshed from two threads at the same time.
+    m_odometryBuffer = OdometryThread.getInstance().registerModule(
+        m_driveMotor.getPosition().clone(), m_steerMotor.getPosition().clone());
+  }
+
+  @Override
+  public void updateInputs(SwerveModuleIOInputs inputs) {
+    BaseStatusSignal.refreshAll(m_allSignals);
+
+    inputs.drivePositionRotations = compensate(m_drivePositionSignal, m_driveVelocitySignal);
+    inputs.driveVelocityRotationsPerSecond = m_driveVelocitySignal.getValueAsDouble();
+    inputs.driveCurrentAmps = m_driveCurrentSignal.getValueAsDouble();
+    inputs.driveTemperatureCelsius = m_driveTemperatureSignal.getValueAsDouble();
+    inputs.driveAppliedVolts = m_driveVoltageSignal.getValueAsDouble();
+    inputs.steerPositionRotations = compensate(m_steerPositionSignal, m_steerVelocitySignal);
+    inputs.steerVelocityRotationsPerSecond = m_steerVelocitySignal.getValueAsDouble();
+    inputs.steerCurrentAmps = m_steerCurrentSignal.getValueAsDouble();
+    inputs.steerTemperatureCelsius = m_steerTemperatureSignal.getValueAsDouble();
+    inputs.steerAppliedVolts = m_steerVoltageSignal.getValueAsDouble();
+  }
+
+  @Override
+  public void setSteerGains(double kP, double kD) {
+    // Only Slot0 changed, so only Slot0 is sent, in the background.
+    m_steerConfig.Slot0.kP = kP;
+    m_steerConfig.Slot0.kD = kD;
+    DeviceConfigurator.getInstance().configure(m_steerDevice, m_steerConfig);
+  }
+
+  @Override
+  public double readSteerPosition() {
+    BaseStatusSignal.refreshAll(m_steerPositionSignals);
+    return compensate(m_steerPositionSignal, m_steerVelocitySignal);
+  }
+
+  /**
+   * Estimate where a mechanism is right now, not where it was when the motor controller
+   * measured it. A position can be several milliseconds old by the time we read it, so we add
+   * the distance it moved since then: speed times age.
+   */
+  private static double compensate(
+      StatusSignal<Angle> position, StatusSignal<AngularVelocity> velocity) {
+    return BaseStatusSignal.getLatencyCompensatedValueAsDouble(
+        position, velocity, MAX_LATENCY_COMPENSATION_SECONDS);
+  }
+
+  @Override
+  public OdometrySampleBuffer getOdometryBuffer() {
+    return m_odometryBuffer;
+  }
+
+  @Override
+  public void setDriveDutyCycle(double output) {
+    m_driveMotor.setControl(m_dutyCycleRequest.withOutput(output));
+  }
+
+  @Override
+  public void setDriveVoltage(double volts) {
+    m_driveMotor.setControl(m_voltageRequest.withOutput(volts));
+  }
+
+  @Override
+  public void setDrivePosition(double rotations, double cruiseVelocity) {
+    m_driveMotor.setControl(
+        m_driveDistanceRequest.withPosition(rotations).withVelocity(cruiseVelocity));
+  }
+
+  @Override
+  public void setDriveVelocity(double rotationsPerSecond) {
+    m_driveMotor.setControl(m_driveVelocityRequest.withVelocity(rotationsPerSecond));
+  }
+
+  @Override
+  public void setSteerDutyCycle(double output) {
+    m_steerMotor.setControl(m_dutyCycleRequest.withOutput(output));
+  }
+
+  @Override
+  public void setSteerVoltage(double volts) {
+    m_steerMotor.setControl(m_voltageRequest.withOutput(volts));
+  }
+
+  @Override
+  public void setSteerPosition(double rotations) {
+    m_steerMotor.setControl(m_steerPositionRequest.withPosition(rotations));
+  }
+
+  @Override
+  public void simulationPeriodic(double dtSeconds) {
+    updateSimulatedMotor(
+        m_driveMotor.getSimState(), m_driveSim, SwerveConstants.kDriveGearRatio, dtSeconds);
+    updateSimulatedMotor(
+        m_steerMotor.getSimState(), m_steerSim, SwerveConstants.kSteerGearRatio, dtSeconds);
+  }
+
+  /**
+   * Move one simulated motor forward in time.
+   *
+   * @param simState The motor controller's simulation inputs and outputs.
+   * @param motorSim The physics model of the motor and gears.
+   * @param gearRatio Motor rotations per rotation of the wheel or module.
+   * @param dtSeconds How much time to simulate.
+   */
+  private static void updateSimulatedMotor(
+      TalonFXSimState simState, DCMotorSim motorSim, double gearRatio, double dtSeconds) {
+    // 1. Tell the motor controller how much battery voltage it has.
+    simState.setSupplyVoltage(RobotController.getBatteryVoltage());
+
+    // 2. Apply the voltage the motor controller decided to output, and step the physics.
+    motorSim.setInputVoltage(simState.getMotorVoltage());
+    motorSim.update(dtSeconds);
+
+    // 3. Report the new motor position and speed back to the motor controller.
+    // The model tracks the wheel (after the gears), but the controller measures the motor.
+    simState.setRawRotorPosition(motorSim.getAngularPositionRotations() * gearRatio);
+    simState.setRotorVelocity(motorSim.getAngularVelocityRPM() / 60.0 * gearRatio);
+  }
+
+  @Override
+  public double getSimulatedCurrentDrawAmps() {
+    return Math.abs(m_driveSim.getCurrentDrawAmps()) + Math.abs(m_steerSim.getCurrentDrawAmps());
+  }
+
+  @Override
+  public double getSimulatedGroundTravelRotations() {
+    // The model tracks the wheel; the drive position is counted in motor rotations.
+    return m_driveSim.getAngularPositionRotations() * SwerveConstants.kDriveGearRatio;
+  }
+
+  @Override
+  public double getSimulatedSteerRotations() {
+    return m_steerSim.getAngularPositionRotations();
+  }
+}
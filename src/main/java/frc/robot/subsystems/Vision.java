@@ -0,0 +1,47 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.subsystems.VisionIO.VisionIOInputs;
+import frc.robot.util.Telemetry;
+
+/**
+ * Subsystem for the camera. Each loop it collects the frames that finished processing and
+ * hands them, with the time each picture was taken, to the {@link PoseEstimator}.
+ *
+ * <p>Create it after the pose estimator, so the odometry for this loop is already saved when
+ * the frames are blended in.
+ */
+public class Vision extends SubsystemBase {
+  private final VisionIO m_io;
+  private final VisionIOInputs m_inputs = new VisionIOInputs();
+  private final PoseEstimator m_poseEstimator;
+
+  private final int m_connectedChannel = Telemetry.getInstance().addDouble("/Vision/Connected");
+
+  /**
+   * @param io The camera hardware (or simulation).
+   * @param poseEstimator Where the camera's poses are sent.
+   */
+  public Vision(VisionIO io, PoseEstimator poseEstimator) {
+    m_io = io;
+    m_poseEstimator = poseEstimator;
+  }
+
+  @Override
+  public void periodic() {
+    m_io.updateInputs(m_inputs);
+    for (int i = 0; i < m_inputs.frameCount; i++) {
+      m_poseEstimator.addVisionMeasurement(
+          m_inputs.timestamps[i], m_inputs.x[i], m_inputs.y[i], m_inputs.headingRadians[i]);
+    }
+  }
+
+  /** Show whether the camera is connected. Run as deferrable work. */
+  public void publishTelemetry() {
+    Telemetry.getInstance().put(m_connectedChannel, m_inputs.connected ? 1 : 0);
+  }
+}
@@ -0,0 +1,33 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+/**
+ * The hardware side of a camera that finds field markers and says where the robot is.
+ *
+ * <p>Like {@link SwerveModuleIO}, this lets the same code run with a real camera or the
+ * pure-Java {@link VisionIOSim}. The robot has no camera yet, so the default reports none.
+ */
+public interface VisionIO {
+  /** The camera frames that finished processing since the last loop. */
+  class VisionIOInputs {
+    // The most frames handed over in one loop.
+    public static final int MAX_FRAMES = 8;
+
+    public boolean connected;
+    public int frameCount;
+    // For each frame: when the picture was taken (FPGA seconds), and the pose it shows.
+    public final double[] timestamps = new double[MAX_FRAMES];
+    public final double[] x = new double[MAX_FRAMES];
+    public final double[] y = new double[MAX_FRAMES];
+    public final double[] headingRadians = new double[MAX_FRAMES];
+  }
+
+  /** Read the frames that finished since the last call into {@code inputs}. */
+  default void updateInputs(VisionIOInputs inputs) {
+    inputs.connected = false;
+    inputs.frameCount = 0;
+  }
+}
@@ -0,0 +1,65 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import java.util.Random;
+import java.util.function.DoubleSupplier;
+
+import frc.robot.Constants.PoseConstants;
+import frc.robot.subsystems.VisionIO.VisionIOInputs;
+import frc.robot.util.PoseHistory;
+
+/**
+ * A pretend camera. It takes a picture at a fixed frame rate, and each one is handed over a
+ * fixed delay later, with a little noise, the way a real camera's processed frames arrive.
+ *
+ * <p>The camera "sees" the simulated robot's true pose at the moment each picture was taken,
+ * from {@link SwerveDrivetrain#getSimulatedPoseHistory()}. That pose comes from the physics
+ * before any wheel slip or sensor noise, not from odometry, so the camera can pull a drifting
+ * estimate back the way a real one would. A random seed keeps the noise the same on every run.
+ */
+public class VisionIOSim implements VisionIO {
+  private static final long NOISE_SEED = 2025;
+
+  private final PoseHistory m_truth;
+  private final DoubleSupplier m_clock;
+  private final Random m_noise = new Random(NOISE_SEED);
+  private final double[] m_pose = new double[3];
+  // When the next picture will be taken, in FPGA seconds. Set by the first call.
+  private double m_nextCaptureTime = Double.NaN;
+
+  /**
+   * @param truth Where the robot really was over time.
+   * @param clockSeconds Gives the current time in seconds.
+   */
+  public VisionIOSim(PoseHistory truth, DoubleSupplier clockSeconds) {
+    m_truth = truth;
+    m_clock = clockSeconds;
+  }
+
+  @Override
+  public void updateInputs(VisionIOInputs inputs) {
+    inputs.connected = true;
+    inputs.frameCount = 0;
+    double now = m_clock.getAsDouble();
+    if (Double.isNaN(m_nextCaptureTime)) {
+      m_nextCaptureTime = now;
+    }
+
+    // Hand over every picture whose processing delay has passed.
+    while (m_nextCaptureTime + PoseConstants.kSimCameraLatencySeconds <= now
+        && inputs.frameCount < VisionIOInputs.MAX_FRAMES) {
+      if (m_truth.getPoseAt(m_nextCaptureTime, m_pose)) {
+        int i = inputs.frameCount++;
+        inputs.timestamps[i] = m_nextCaptureTime;
+        inputs.x[i] = m_pose[0] + m_noise.nextGaussian() * PoseConstants.kSimCameraNoiseMeters;
+        inputs.y[i] = m_pose[1] + m_noise.nextGaussian() * PoseConstants.kSimCameraNoiseMeters;
+        inputs.headingRadians[i] =
+            m_pose[2] + m_noise.nextGaussian() * PoseConstants.kSimCameraNoiseRadians;
+      }
+      m_nextCaptureTime += 1.0 / PoseConstants.kSimCameraFrameRateHz;
+    }
+  }
+}
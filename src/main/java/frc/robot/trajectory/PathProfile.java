@@ -0,0 +1,102 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.trajectory;
+
+import frc.robot.Constants.SwerveConstants;
+
+/**
+ * The plan for driving a list of {@link PathSegment}s as one smooth motion.
+ *
+ * <p>The wheel speeds up once, keeps its speed through every joint, and only slows down as it
+ * gets close to the end of the whole path. At the start of each segment the steering target
+ * slides from the old angle to the new one over the first part of the segment, so the wheel
+ * turns while it keeps rolling.
+ *
+ * <p>The same math is used live by {@link frc.robot.commands.FollowPathCommand} and ahead of
+ * time by {@link TrajectoryGenerator}, so both drive exactly the same path.
+ */
+public final class PathProfile {
+  // Part of each segment (0 to 1) used to slide the steering over to the new angle.
+  private static final double STEER_BLEND_FRACTION = 0.25;
+  // The slowest the wheel is asked to go before the path is done, so it never crawls to a stop.
+  private static final double MIN_VELOCITY = 1.0;
+
+  private final double m_cruiseVelocity;
+  // Distance from the start of the path to the end of each segment, in drive rotations.
+  private final double[] m_segmentEnds;
+  // Steering angle (relative to the start) that each segment turns to, in rotations.
+  private final double[] m_segmentSteer;
+  private final double[] m_blendLengths;
+
+  /**
+   * @param driveSpeed The speed to drive at (0.0 to 1.0), as a fraction of top speed.
+   * @param segments The pieces of the path, in order.
+   */
+  public PathProfile(double driveSpeed, PathSegment... segments) {
+    m_cruiseVelocity = driveSpeed * SwerveConstants.kDriveCruiseVelocity;
+
+    // Add up the segments once, so the loop only has to look numbers up.
+    m_segmentEnds = new double[segments.length];
+    m_segmentSteer = new double[segments.length];
+    m_blendLengths = new double[segments.length];
+    double distance = 0;
+    double steer = 0;
+    for (int i = 0; i < segments.length; i++) {
+      distance += segments[i].driveRotations;
+      steer += segments[i].steerRotations;
+      m_segmentEnds[i] = distance;
+      m_segmentSteer[i] = steer;
+      m_blendLengths[i] = segments[i].driveRotations * STEER_BLEND_FRACTION;
+    }
+  }
+
+  /** The length of the whole path, in drive rotations. */
+  public double getTotalRotations() {
+    return m_segmentEnds.length == 0 ? 0 : m_segmentEnds[m_segmentEnds.length - 1];
+  }
+
+  /**
+   * The drive speed to ask for next.
+   *
+   * @param currentVelocity The speed asked for last time, in rotations per second.
+   * @param traveled How far along the path the wheel is, in rotations.
+   * @param dtSeconds Time until the next request.
+   * @return The new speed, in drive motor rotations per second.
+   */
+  public double getNextVelocity(double currentVelocity, double traveled, double dtSeconds) {
+    double remaining = getTotalRotations() - traveled;
+    // Speed up gently, cruise, and slow down only for the end of the whole path.
+    // sqrt(2 * acceleration * distance) is the fastest speed that can still stop in time.
+    double acceleration = SwerveConstants.kDriveAcceleration;
+    double velocity = Math.min(m_cruiseVelocity, currentVelocity + acceleration * dtSeconds);
+    velocity = Math.min(velocity, Math.sqrt(2 * acceleration * Math.max(remaining, 0)));
+    return Math.max(velocity, Math.min(MIN_VELOCITY, m_cruiseVelocity));
+  }
+
+  /**
+   * The steering angle we want at a point along the path.
+   *
+   * @param traveled How far along the path the wheel is, in rotations.
+   * @return The steering angle relative to the start of the path, in rotations.
+   */
+  public double getSteerTarget(double traveled) {
+    int segment = 0;
+    while (segment < m_segmentEnds.length - 1 && traveled >= m_segmentEnds[segment]) {
+      segment++;
+    }
+    if (m_segmentEnds.length == 0) {
+      return 0;
+    }
+    double previousSteer = segment == 0 ? 0 : m_segmentSteer[segment - 1];
+    double segmentStart = segment == 0 ? 0 : m_segmentEnds[segment - 1];
+    double blendLength = m_blendLengths[segment];
+    if (blendLength <= 0) {
+      return m_segmentSteer[segment];
+    }
+    // 0 at the start of the segment, 1 once the blend is done.
+    double blend = Math.min(1, Math.max(0, (traveled - segmentStart) / blendLength));
+    return previousSteer + blend * (m_segmentSteer[segment] - previousSteer);
+  }
+}
@@ -0,0 +1,20 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.trajectory;
+
+/** One piece of a path: roll some distance while turning the steering. */
+public final class PathSegment {
+  final double driveRotations;
+  final double steerRotations;
+
+  /**
+   * @param driveRotations How many drive rotations this segment is (positive).
+   * @param steerRotations How far to turn the steering during it (can be negative).
+   */
+  public PathSegment(double driveRotations, double steerRotations) {
+    this.driveRotations = driveRotations;
+    this.steerRotations = steerRotations;
+  }
+}
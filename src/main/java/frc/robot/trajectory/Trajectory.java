@@ -0,0 +1,179 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.trajectory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A path worked out ahead of time, read straight from a file.
+ *
+ * <p>The file is a list of samples, one every {@link #getTimeStep()} seconds. Each sample holds
+ * four numbers: time, drive position, drive velocity and steering heading. Instead of reading
+ * the file into objects, the file is "memory-mapped": the operating system makes it look like
+ * a block of memory, and each number is read from it only when it is needed. Loading is almost
+ * free, and dozens of paths take up almost no Java heap.
+ *
+ * <p>File layout (little-endian):
+ * <pre>
+ * int magic "TRAJ", int version, int sample count, int unused, double time step,
+ * then for each sample: double time, double position, double velocity, double heading
+ * </pre>
+ */
+public final class Trajectory {
+  /** The file name ending used for trajectory files. */
+  public static final String FILE_EXTENSION = ".traj";
+
+  private static final int MAGIC = 0x4A415254; // "TRAJ" when read as little-endian bytes
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 24;
+  private static final int SAMPLE_BYTES = 4 * Double.BYTES;
+  private static final int POSITION_OFFSET = Double.BYTES;
+  private static final int VELOCITY_OFFSET = 2 * Double.BYTES;
+  private static final int HEADING_OFFSET = 3 * Double.BYTES;
+
+  private final ByteBuffer m_data;
+  private final int m_sampleCount;
+  private final double m_timeStep;
+
+  private Trajectory(ByteBuffer data) throws IOException {
+    m_data = data.order(ByteOrder.LITTLE_ENDIAN);
+    if (m_data.getInt(0) != MAGIC || m_data.getInt(4) != VERSION) {
+      throw new IOException("Not a version " + VERSION + " trajectory file");
+    }
+    m_sampleCount = m_data.getInt(8);
+    m_timeStep = m_data.getDouble(16);
+    if (m_sampleCount < 1 || m_data.capacity() < HEADER_BYTES + m_sampleCount * SAMPLE_BYTES) {
+      throw new IOException("Trajectory file is too short");
+    }
+  }
+
+  /**
+   * Memory-map a trajectory file.
+   *
+   * @param file The file to open.
+   * @return The trajectory.
+   * @throws IOException If the file cannot be read or is not a trajectory file.
+   */
+  public static Trajectory load(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      // The mapping stays valid after the channel is closed.
+      return new Trajectory(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Make a trajectory in memory instead of reading it from a file. The tuning sweep in the
+   * tests uses this to try many paths without writing files.
+   *
+   * @param timeStep Seconds between samples.
+   * @param positions Drive position of each sample, in rotations.
+   * @param velocities Drive velocity of each sample, in rotations per second.
+   * @param headings Steering heading of each sample, in rotations.
+   * @return The trajectory.
+   */
+  public static Trajectory fromSamples(
+      double timeStep, double[] positions, double[] velocities, double[] headings) {
+    try {
+      return new Trajectory(encode(timeStep, positions, velocities, headings));
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Not a valid trajectory", e);
+    }
+  }
+
+  /**
+   * Write a trajectory file. Used by {@link TrajectoryGenerator} at build time.
+   *
+   * @param file The file to write.
+   * @param timeStep Seconds between samples.
+   * @param positions Drive position of each sample, in rotations.
+   * @param velocities Drive velocity of each sample, in rotations per second.
+   * @param headings Steering heading of each sample, in rotations.
+   */
+  public static void write(
+      Path file, double timeStep, double[] positions, double[] velocities, double[] headings)
+      throws IOException {
+    ByteBuffer buffer = encode(timeStep, positions, velocities, headings);
+    try (FileChannel channel = FileChannel.open(
+        file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+  }
+
+  /** Lay the samples out the same way as in a file. */
+  private static ByteBuffer encode(
+      double timeStep, double[] positions, double[] velocities, double[] headings) {
+    int count = positions.length;
+    ByteBuffer buffer =
+        ByteBuffer.allocate(HEADER_BYTES + count * SAMPLE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(0).putDouble(timeStep);
+    for (int i = 0; i < count; i++) {
+      buffer.putDouble(i * timeStep)
+          .putDouble(positions[i])
+          .putDouble(velocities[i])
+          .putDouble(headings[i]);
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  /** How many samples the trajectory has. */
+  public int getSampleCount() {
+    return m_sampleCount;
+  }
+
+  /** Seconds between samples. */
+  public double getTimeStep() {
+    return m_timeStep;
+  }
+
+  /** How long the whole trajectory takes, in seconds. */
+  public double getDuration() {
+    return (m_sampleCount - 1) * m_timeStep;
+  }
+
+  /** The drive position at a time, in rotations from the start. */
+  public double getPosition(double timeSeconds) {
+    return interpolate(timeSeconds, POSITION_OFFSET);
+  }
+
+  /** The drive velocity at a time, in rotations per second. */
+  public double getVelocity(double timeSeconds) {
+    return interpolate(timeSeconds, VELOCITY_OFFSET);
+  }
+
+  /** The steering heading at a time, in rotations from the start. */
+  public double getHeading(double timeSeconds) {
+    return interpolate(timeSeconds, HEADING_OFFSET);
+  }
+
+  /** Read a value between the two samples around a time, by drawing a straight line. */
+  private double interpolate(double timeSeconds, int fieldOffset) {
+    double index = timeSeconds / m_timeStep;
+    if (index <= 0) {
+      return read(0, fieldOffset);
+    }
+    if (index >= m_sampleCount - 1) {
+      return read(m_sampleCount - 1, fieldOffset);
+    }
+    int before = (int) index;
+    double fraction = index - before;
+    double a = read(before, fieldOffset);
+    double b = read(before + 1, fieldOffset);
+    return a + fraction * (b - a);
+  }
+
+  private double read(int sample, int fieldOffset) {
+    // Absolute reads do not move the buffer position, so they are safe from any thread.
+    return m_data.getDouble(HEADER_BYTES + sample * SAMPLE_BYTES + fieldOffset);
+  }
+}
@@ -0,0 +1,105 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.trajectory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+
+import frc.robot.AutoPaths;
+
+/**
+ * Works out every autonomous path ahead of time and saves each one as a {@link Trajectory}
+ * file. Gradle runs this on the computer during the build ({@code ./gradlew
+ * generateTrajectories}), so the robot never spends match time on path math.
+ */
+public final class TrajectoryGenerator {
+  // One sample per robot loop.
+  private static final double SAMPLE_PERIOD_SECONDS = 0.02;
+  // No path should take longer than the whole autonomous period.
+  private static final double MAX_SECONDS = 15.0;
+
+  private TrajectoryGenerator() {}
+
+  /**
+   * Generate every path in {@link AutoPaths}.
+   *
+   * @param args The folder to write the files into.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      throw new IllegalArgumentException("Usage: TrajectoryGenerator <output directory>");
+    }
+    Path directory = Paths.get(args[0]);
+    Files.createDirectories(directory);
+
+    for (Map.Entry<String, PathProfile> path : AutoPaths.all().entrySet()) {
+      Path file = directory.resolve(path.getKey() + Trajectory.FILE_EXTENSION);
+      int samples = generate(path.getValue(), file);
+      System.out.printf(
+          "Wrote %s: %d samples, %.2f s%n", file, samples, (samples - 1) * SAMPLE_PERIOD_SECONDS);
+    }
+  }
+
+  /**
+   * Step through a path the way a perfect wheel would follow it, and save the samples.
+   *
+   * @return How many samples were written.
+   */
+  static int generate(PathProfile profile, Path file) throws IOException {
+    double[][] samples = sample(profile);
+    Trajectory.write(file, SAMPLE_PERIOD_SECONDS, samples[0], samples[1], samples[2]);
+    return samples[0].length;
+  }
+
+  /**
+   * Step through a path the way a perfect wheel would follow it, keeping the result in memory.
+   * The tuning sweep in the tests uses this to try paths the robot does not deploy.
+   *
+   * @param profile The path.
+   * @return The trajectory, exactly as it would be read back from its file.
+   */
+  public static Trajectory generate(PathProfile profile) {
+    double[][] samples = sample(profile);
+    return Trajectory.fromSamples(SAMPLE_PERIOD_SECONDS, samples[0], samples[1], samples[2]);
+  }
+
+  /** The {positions, velocities, headings} of every sample. */
+  private static double[][] sample(PathProfile profile) {
+    int maxSamples = (int) Math.round(MAX_SECONDS / SAMPLE_PERIOD_SECONDS) + 1;
+    double[] positions = new double[maxSamples];
+    double[] velocities = new double[maxSamples];
+    double[] headings = new double[maxSamples];
+
+    double total = profile.getTotalRotations();
+    double position = 0;
+    double velocity = 0;
+    int count = 0;
+    while (count < maxSamples) {
+      boolean done = position >= total;
+      if (done) {
+        position = total;
+        velocity = 0;
+      } else {
+        velocity = profile.getNextVelocity(velocity, position, SAMPLE_PERIOD_SECONDS);
+      }
+      positions[count] = position;
+      velocities[count] = velocity;
+      headings[count] = profile.getSteerTarget(position);
+      count++;
+      if (done) {
+        break;
+      }
+      position += velocity * SAMPLE_PERIOD_SECONDS;
+    }
+
+    return new double[][] {
+        Arrays.copyOf(positions, count), Arrays.copyOf(velocities, count),
+        Arrays.copyOf(headings, count)};
+  }
+}
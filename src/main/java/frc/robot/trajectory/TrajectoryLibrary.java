@@ -0,0 +1,69 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.trajectory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * Every precomputed {@link Trajectory}, loaded once when the robot boots.
+ *
+ * <p>The files are made at build time by {@link TrajectoryGenerator} and deployed with the
+ * robot program to {@code /home/lvuser/deploy/trajectories}.
+ */
+public final class TrajectoryLibrary {
+  private final Map<String, Trajectory> m_trajectories = new HashMap<>();
+
+  /** Load every trajectory file from the deploy folder. */
+  public static TrajectoryLibrary loadDeployed() {
+    return load(Filesystem.getDeployDirectory().toPath().resolve("trajectories"));
+  }
+
+  /**
+   * Load every trajectory file in a folder. A file that cannot be read is reported to the
+   * Driver Station and skipped.
+   *
+   * @param directory The folder to look in. If it does not exist, the library is empty.
+   */
+  public static TrajectoryLibrary load(Path directory) {
+    TrajectoryLibrary library = new TrajectoryLibrary();
+    if (!Files.isDirectory(directory)) {
+      return library;
+    }
+    try (DirectoryStream<Path> files =
+        Files.newDirectoryStream(directory, "*" + Trajectory.FILE_EXTENSION)) {
+      for (Path file : files) {
+        String fileName = file.getFileName().toString();
+        String name =
+            fileName.substring(0, fileName.length() - Trajectory.FILE_EXTENSION.length());
+        try {
+          library.m_trajectories.put(name, Trajectory.load(file));
+        } catch (IOException e) {
+          DriverStation.reportError("Could not load trajectory " + file, e.getStackTrace());
+        }
+      }
+    } catch (IOException e) {
+      DriverStation.reportError("Could not list trajectories in " + directory, e.getStackTrace());
+    }
+    return library;
+  }
+
+  /**
+   * Get a trajectory by name.
+   *
+   * @param name The file name without the ending, like "GoToGoal".
+   * @return The trajectory, or null if there is no file with that name.
+   */
+  public Trajectory get(String name) {
+    return m_trajectories.get(name);
+  }
+}
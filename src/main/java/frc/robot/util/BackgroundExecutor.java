@@ -0,0 +1,254 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Commands;
+
+/**
+ * Runs slow work, like talking to motor controllers over CAN or reading and writing files, on
+ * a few background threads so it never holds up the 20 ms robot loop.
+ *
+ * <p>Work is handed over with {@link #submit} and a {@link Priority}: when several tasks are
+ * waiting, higher priority ones start first. Only a limited number of tasks may wait at once;
+ * past that, new ones are turned away instead of piling up.
+ *
+ * <p>When a task finishes, its result is not given straight to the robot code, because the
+ * robot code is not written to be used from two threads. Instead the finished task is put on
+ * a lock-free queue, and {@link #deliverResults()} (called by the robot loop) takes it off,
+ * runs its callback and marks it done, all on the main thread. A command that needs the result
+ * can wait for it with {@link Task#waitCommand()}, which just checks each loop whether it is
+ * done, so the scheduler keeps running in the meantime.
+ */
+public final class BackgroundExecutor {
+  private static BackgroundExecutor s_instance;
+
+  // Enough for several motor controllers to be configured at the same time.
+  private static final int THREAD_COUNT = 4;
+  private static final int MAX_WAITING_TASKS = 64;
+  // Results handed to the main thread per loop, so a burst cannot make one loop slow.
+  private static final int MAX_RESULTS_PER_LOOP = 16;
+
+  /** Which waiting work starts first. */
+  public enum Priority {
+    // Work the robot needs to drive correctly, like motor configuration.
+    HIGH,
+    // Work that helps but can wait a little, like changing CAN update rates.
+    NORMAL,
+    // Housekeeping, like file writes and log cleanup.
+    LOW
+  }
+
+  /**
+   * One piece of background work and, once it is done, its result.
+   *
+   * @param <T> The type of the result.
+   */
+  public static final class Task<T> implements Runnable, Comparable<Task<?>> {
+    private final BackgroundExecutor m_executor;
+    private final String m_name;
+    private final Priority m_priority;
+    private final long m_sequence;
+    private final Callable<T> m_work;
+    private final Consumer<? super T> m_onDone;
+
+    // Set by the worker thread before the task is queued for the main thread. The queue makes
+    // them visible to the main thread.
+    private T m_result;
+    private Throwable m_error;
+    // Set on the main thread once the result has been delivered.
+    private boolean m_done;
+    private boolean m_rejected;
+
+    private Task(
+        BackgroundExecutor executor, String name, Priority priority, Callable<T> work,
+        Consumer<? super T> onDone) {
+      m_executor = executor;
+      m_name = name;
+      m_priority = priority;
+      m_sequence = executor.m_sequence.getAndIncrement();
+      m_work = work;
+      m_onDone = onDone;
+    }
+
+    /** Runs on a worker thread. */
+    @Override
+    public void run() {
+      try {
+        m_result = m_work.call();
+      } catch (Throwable t) {
+        // Errors too, like a stack overflow: the task must still be delivered as failed.
+        m_error = t;
+      } finally {
+        // Always hand the task back and free its slot, or a waitCommand() would wait forever
+        // and the waiting count would never go back down.
+        m_executor.m_finished.add(this);
+        m_executor.m_waitingTasks.decrementAndGet();
+      }
+    }
+
+    /** Higher priority first, then in the order they were submitted. */
+    @Override
+    public int compareTo(Task<?> other) {
+      int byPriority = m_priority.compareTo(other.m_priority);
+      return byPriority != 0 ? byPriority : Long.compare(m_sequence, other.m_sequence);
+    }
+
+    /** The name given when the task was submitted. */
+    public String getName() {
+      return m_name;
+    }
+
+    /** True once the task has finished and its result was handed to the main thread. */
+    public boolean isDone() {
+      return m_done;
+    }
+
+    /** True if the task is done and threw an exception or was turned away. */
+    public boolean isFailed() {
+      return m_done && m_error != null;
+    }
+
+    /** True if the task was turned away because too many tasks were waiting. */
+    public boolean wasRejected() {
+      return m_rejected;
+    }
+
+    /** The result, once {@link #isDone()}. Null if the task failed. */
+    public T getResult() {
+      return m_result;
+    }
+
+    /** What went wrong, once {@link #isDone()}, or null if nothing did. */
+    public Throwable getError() {
+      return m_error;
+    }
+
+    /** A command that finishes once this task is done, without blocking the scheduler. */
+    public Command waitCommand() {
+      return Commands.waitUntil(this::isDone).withName("Wait for " + m_name);
+    }
+  }
+
+  private final ThreadPoolExecutor m_pool;
+  private final int m_maxWaitingTasks;
+  private final AtomicLong m_sequence = new AtomicLong();
+  private final AtomicInteger m_waitingTasks = new AtomicInteger();
+  // Finished tasks waiting to be handed to the main thread.
+  private final ConcurrentLinkedQueue<Task<?>> m_finished = new ConcurrentLinkedQueue<>();
+
+  private BackgroundExecutor() {
+    this(THREAD_COUNT, MAX_WAITING_TASKS);
+  }
+
+  /**
+   * Creates an executor with its own limits. Tests use this.
+   *
+   * @param threadCount How many tasks may run at the same time.
+   * @param maxWaitingTasks How many tasks may be waiting or running before new ones are refused.
+   */
+  BackgroundExecutor(int threadCount, int maxWaitingTasks) {
+    m_maxWaitingTasks = maxWaitingTasks;
+    m_pool = new ThreadPoolExecutor(
+        threadCount, threadCount, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(),
+        runnable -> {
+          Thread thread = new Thread(runnable, "BackgroundExecutor");
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  /** Get the one shared executor. */
+  public static synchronized BackgroundExecutor getInstance() {
+    if (s_instance == null) {
+      s_instance = new BackgroundExecutor();
+    }
+    return s_instance;
+  }
+
+  /**
+   * Run work in the background.
+   *
+   * @param name A name for error messages and the wait command, like "Configure Module0-drive".
+   * @param priority Which waiting work starts first.
+   * @param work The work. It must not touch robot code that the main thread uses.
+   * @param onDone Called on the main thread with the result, or null for no callback.
+   * @return The task, to check on or wait for. If too many tasks were waiting it was turned
+   *     away, and it will be delivered as failed.
+   */
+  public <T> Task<T> submit(
+      String name, Priority priority, Callable<T> work, Consumer<? super T> onDone) {
+    Task<T> task = new Task<>(this, name, priority, work, onDone);
+    if (m_waitingTasks.incrementAndGet() > m_maxWaitingTasks) {
+      m_waitingTasks.decrementAndGet();
+      task.m_rejected = true;
+      task.m_error = new RejectedExecutionException("Too many background tasks waiting");
+      m_finished.add(task);
+      return task;
+    }
+    m_pool.execute(task);
+    return task;
+  }
+
+  /**
+   * Run work with no result in the background.
+   *
+   * @param name A name for error messages and the wait command.
+   * @param priority Which waiting work starts first.
+   * @param work The work. It must not touch robot code that the main thread uses.
+   * @return The task, to check on or wait for.
+   */
+  public Task<Void> submit(String name, Priority priority, Runnable work) {
+    return submit(name, priority, () -> {
+      work.run();
+      return null;
+    }, null);
+  }
+
+  /**
+   * Hand finished tasks to the main thread: mark them done and run their callbacks.
+   * Call once per loop, from the main robot thread only.
+   */
+  public void deliverResults() {
+    for (int i = 0; i < MAX_RESULTS_PER_LOOP; i++) {
+      Task<?> task = m_finished.poll();
+      if (task == null) {
+        return;
+      }
+      deliver(task);
+    }
+  }
+
+  private static <T> void deliver(Task<T> task) {
+    task.m_done = true;
+    if (task.m_error != null) {
+      DriverStation.reportError(
+          "Background task " + task.m_name + " failed: " + task.m_error, false);
+    } else if (task.m_onDone != null) {
+      task.m_onDone.accept(task.m_result);
+    }
+  }
+
+  /** How many tasks are waiting or running. */
+  public int getWaitingTaskCount() {
+    return m_waitingTasks.get();
+  }
+
+  /** Stop the threads. Only for tests that made their own executor. */
+  void shutdown() {
+    m_pool.shutdownNow();
+  }
+}
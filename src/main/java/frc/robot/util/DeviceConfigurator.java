@@ -0,0 +1,308 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.configs.ParentConfiguration;
+import com.ctre.phoenix6.configs.TalonFXConfiguration;
+import com.ctre.phoenix6.configs.TalonFXConfigurator;
+import com.ctre.phoenix6.hardware.TalonFX;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.util.BackgroundExecutor.Priority;
+
+/**
+ * Sends configurations to motor controllers in the background, all at the same time.
+ *
+ * <p>{@code motor.getConfigurator().apply(config)} waits until the motor controller answers
+ * over CAN. Doing that for eight motors one after another, on the main thread, makes startup
+ * slow, and changing a gain while driving would freeze the robot loop. Here,
+ * {@link #configure} only saves the configuration and returns straight away. The shared
+ * {@link BackgroundExecutor} then configures several devices at once, ahead of less urgent
+ * background work. Each one is retried if it fails
+ * and read back afterwards to check the device really has the new values.
+ *
+ * <p>The last configuration that worked is remembered for each device. When a new one is
+ * given later (for example with a new kP), only the groups that changed, like Slot0, are sent.
+ * A change to anything outside those groups sends the whole configuration again.
+ * If several changes arrive while one is still being sent, only the newest is used.
+ */
+public final class DeviceConfigurator {
+  private static DeviceConfigurator s_instance;
+
+  private static final int MAX_ATTEMPTS = 3;
+  private static final double TIMEOUT_SECONDS = 0.1;
+  // Read-back values can differ from what was sent in the last few digits.
+  private static final double VERIFY_TOLERANCE = 1e-4;
+  private static final Pattern NUMBER = Pattern.compile("-?\\d+(\\.\\d+)?([eE][-+]?\\d+)?");
+
+  /** How to send one group of settings, like Slot0Configs, on its own. */
+  private interface GroupApplier {
+    StatusCode apply(TalonFXConfigurator configurator, TalonFXConfiguration config);
+  }
+
+  /** One group of settings inside a {@link TalonFXConfiguration}. */
+  private static final class Group {
+    private final Function<TalonFXConfiguration, ParentConfiguration> m_getter;
+    private final GroupApplier m_applier;
+
+    Group(Function<TalonFXConfiguration, ParentConfiguration> getter, GroupApplier applier) {
+      m_getter = getter;
+      m_applier = applier;
+    }
+  }
+
+  // The groups that can be sent separately. Anything else falls back to a full apply.
+  private static final List<Group> GROUPS = List.of(
+      new Group(c -> c.MotorOutput, (d, c) -> d.apply(c.MotorOutput, TIMEOUT_SECONDS)),
+      new Group(c -> c.CurrentLimits, (d, c) -> d.apply(c.CurrentLimits, TIMEOUT_SECONDS)),
+      new Group(c -> c.Voltage, (d, c) -> d.apply(c.Voltage, TIMEOUT_SECONDS)),
+      new Group(c -> c.TorqueCurrent, (d, c) -> d.apply(c.TorqueCurrent, TIMEOUT_SECONDS)),
+      new Group(c -> c.Feedback, (d, c) -> d.apply(c.Feedback, TIMEOUT_SECONDS)),
+      new Group(c -> c.OpenLoopRamps, (d, c) -> d.apply(c.OpenLoopRamps, TIMEOUT_SECONDS)),
+      new Group(c -> c.ClosedLoopRamps, (d, c) -> d.apply(c.ClosedLoopRamps, TIMEOUT_SECONDS)),
+      new Group(
+          c -> c.HardwareLimitSwitch,
+          (d, c) -> d.apply(c.HardwareLimitSwitch, TIMEOUT_SECONDS)),
+      new Group(
+          c -> c.SoftwareLimitSwitch,
+          (d, c) -> d.apply(c.SoftwareLimitSwitch, TIMEOUT_SECONDS)),
+      new Group(c -> c.MotionMagic, (d, c) -> d.apply(c.MotionMagic, TIMEOUT_SECONDS)),
+      new Group(
+          c -> c.ClosedLoopGeneral,
+          (d, c) -> d.apply(c.ClosedLoopGeneral, TIMEOUT_SECONDS)),
+      new Group(c -> c.Slot0, (d, c) -> d.apply(c.Slot0, TIMEOUT_SECONDS)),
+      new Group(c -> c.Slot1, (d, c) -> d.apply(c.Slot1, TIMEOUT_SECONDS)),
+      new Group(c -> c.Slot2, (d, c) -> d.apply(c.Slot2, TIMEOUT_SECONDS)));
+
+  /** One motor controller that this configurator looks after. */
+  public static final class Device {
+    private final String m_name;
+    private final String m_taskName;
+    private final TalonFXConfigurator m_configurator;
+    // Runs once, right after the first configuration is confirmed. May be null.
+    private final Supplier<StatusCode> m_afterFirstConfigure;
+    // The newest configuration that has not been sent yet, or null.
+    private final AtomicReference<TalonFXConfiguration> m_pending = new AtomicReference<>();
+    // True while a background task is working on this device.
+    private final AtomicBoolean m_scheduled = new AtomicBoolean();
+    // The last configuration the device confirmed. Only the background task touches it.
+    private TalonFXConfiguration m_applied;
+
+    private Device(String name, TalonFX motor, Supplier<StatusCode> afterFirstConfigure) {
+      m_name = name;
+      m_taskName = "Configure " + name;
+      m_configurator = motor.getConfigurator();
+      m_afterFirstConfigure = afterFirstConfigure;
+    }
+  }
+
+  // Devices that have work queued or running.
+  private final AtomicInteger m_busyDevices = new AtomicInteger();
+  private final AtomicInteger m_failures = new AtomicInteger();
+
+  private DeviceConfigurator() {}
+
+  /** Get the one shared configurator. */
+  public static synchronized DeviceConfigurator getInstance() {
+    if (s_instance == null) {
+      s_instance = new DeviceConfigurator();
+    }
+    return s_instance;
+  }
+
+  /**
+   * Start tracking a motor controller. Call once per motor, then use {@link #configure}.
+   *
+   * @param name A name for error messages, like "Module0-drive".
+   * @param motor The motor controller.
+   * @return The device to pass to {@link #configure}.
+   */
+  public Device register(String name, TalonFX motor) {
+    return register(name, motor, null);
+  }
+
+  /**
+   * Start tracking a motor controller that needs one more step once it is configured, like
+   * zeroing its position. That step also talks over CAN, so it runs in the background too.
+   *
+   * @param name A name for error messages, like "Module0-drive".
+   * @param motor The motor controller.
+   * @param afterFirstConfigure Runs in the background right after the first configuration is
+   *     confirmed, and never again. It must only talk to the motor controller.
+   * @return The device to pass to {@link #configure}.
+   */
+  public Device register(String name, TalonFX motor, Supplier<StatusCode> afterFirstConfigure) {
+    return new Device(name, motor, afterFirstConfigure);
+  }
+
+  /**
+   * Send a configuration to a motor controller in the background. Returns right away.
+   * The configuration is copied, so the caller may keep changing its own object.
+   *
+   * @param device The device from {@link #register}.
+   * @param config The full configuration the motor controller should have.
+   */
+  public void configure(Device device, TalonFXConfiguration config) {
+    TalonFXConfiguration copy = new TalonFXConfiguration();
+    copy.deserialize(config.serialize());
+    device.m_pending.set(copy);
+    if (device.m_scheduled.compareAndSet(false, true)) {
+      m_busyDevices.incrementAndGet();
+      BackgroundExecutor.Task<Void> task = BackgroundExecutor.getInstance()
+          .submit(device.m_taskName, Priority.HIGH, () -> drain(device));
+      if (task.wasRejected()) {
+        // Too much background work is waiting. The configuration stays pending, and the
+        // next configure() call for this device tries again.
+        device.m_scheduled.set(false);
+        m_busyDevices.decrementAndGet();
+        m_failures.incrementAndGet();
+      }
+    }
+  }
+
+  /** True when every configuration given so far has been sent (or has given up). */
+  public boolean isIdle() {
+    return m_busyDevices.get() == 0;
+  }
+
+  /** How many configurations failed even after retrying. */
+  public int getFailureCount() {
+    return m_failures.get();
+  }
+
+  /** Send the device's pending configurations until there are none left. Background only. */
+  private void drain(Device device) {
+    while (true) {
+      TalonFXConfiguration config;
+      while ((config = device.m_pending.getAndSet(null)) != null) {
+        applyWithRetries(device, config);
+      }
+      device.m_scheduled.set(false);
+      // A new configuration may have arrived after the last check. Take it if no other
+      // task has already been started for it.
+      if (device.m_pending.get() == null || !device.m_scheduled.compareAndSet(false, true)) {
+        break;
+      }
+    }
+    m_busyDevices.decrementAndGet();
+  }
+
+  private void applyWithRetries(Device device, TalonFXConfiguration config) {
+    long start = System.nanoTime();
+    String problem = null;
+    for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+      problem = applyChanges(device, config);
+      if (problem == null) {
+        problem = verify(device, config);
+      }
+      if (problem == null) {
+        boolean first = device.m_applied == null;
+        device.m_applied = config;
+        DataLogManager.log(String.format("%s configured (%s) in %.0f ms",
+            device.m_name, first ? "full" : "changes only", (System.nanoTime() - start) / 1e6));
+        if (first && device.m_afterFirstConfigure != null) {
+          afterFirstConfigure(device);
+        }
+        return;
+      }
+    }
+    m_failures.incrementAndGet();
+    DriverStation.reportError(
+        device.m_name + " configuration failed after " + MAX_ATTEMPTS + " tries: " + problem,
+        false);
+  }
+
+  private void afterFirstConfigure(Device device) {
+    String problem = describe(device.m_afterFirstConfigure.get());
+    if (problem != null) {
+      m_failures.incrementAndGet();
+      DriverStation.reportError(
+          device.m_name + " setup after configuring failed: " + problem, false);
+    }
+  }
+
+  /**
+   * Send everything the first time, or whenever something outside {@link #GROUPS} changed.
+   * Otherwise send only the groups that changed.
+   */
+  private String applyChanges(Device device, TalonFXConfiguration config) {
+    if (device.m_applied == null || changedOutsideGroups(config, device.m_applied)) {
+      // Even if a group changed too: sending only the groups would drop the other change.
+      return describe(device.m_configurator.apply(config, TIMEOUT_SECONDS));
+    }
+    for (Group group : GROUPS) {
+      String wanted = group.m_getter.apply(config).serialize();
+      String applied = group.m_getter.apply(device.m_applied).serialize();
+      if (!wanted.equals(applied)) {
+        String problem = describe(group.m_applier.apply(device.m_configurator, config));
+        if (problem != null) {
+          return problem;
+        }
+      }
+    }
+    return null;
+  }
+
+  /** True if the two configurations differ anywhere other than in {@link #GROUPS}. */
+  private static boolean changedOutsideGroups(
+      TalonFXConfiguration config, TalonFXConfiguration applied) {
+    // Copy the new configuration, but with every known group put back the way it was applied.
+    // Whatever still differs must be outside the groups.
+    TalonFXConfiguration rest = new TalonFXConfiguration();
+    rest.deserialize(config.serialize());
+    for (Group group : GROUPS) {
+      group.m_getter.apply(rest).deserialize(group.m_getter.apply(applied).serialize());
+    }
+    return !rest.serialize().equals(applied.serialize());
+  }
+
+  /** Read the configuration back from the device and check it matches. */
+  private String verify(Device device, TalonFXConfiguration config) {
+    TalonFXConfiguration readBack = new TalonFXConfiguration();
+    String problem = describe(device.m_configurator.refresh(readBack, TIMEOUT_SECONDS));
+    if (problem != null) {
+      return problem;
+    }
+    for (Group group : GROUPS) {
+      if (!numbersMatch(group.m_getter.apply(config).serialize(),
+          group.m_getter.apply(readBack).serialize())) {
+        return "read-back mismatch: " + group.m_getter.apply(readBack);
+      }
+    }
+    return null;
+  }
+
+  private static String describe(StatusCode status) {
+    return status.isOK() ? null : status.getName();
+  }
+
+  /** Compare every number in two serialized configurations, allowing tiny rounding errors. */
+  private static boolean numbersMatch(String wanted, String actual) {
+    Matcher wantedNumbers = NUMBER.matcher(wanted);
+    Matcher actualNumbers = NUMBER.matcher(actual);
+    while (wantedNumbers.find()) {
+      if (!actualNumbers.find()) {
+        return false;
+      }
+      double a = Double.parseDouble(wantedNumbers.group());
+      double b = Double.parseDouble(actualNumbers.group());
+      if (Math.abs(a - b) > VERIFY_TOLERANCE * Math.max(1, Math.abs(a))) {
+        return false;
+      }
+    }
+    return !actualNumbers.find();
+  }
+}
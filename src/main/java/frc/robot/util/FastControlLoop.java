@@ -0,0 +1,49 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.util.Arrays;
+
+/**
+ * A small control loop that runs several times faster than the 50 Hz robot loop.
+ *
+ * <p>Commands decide <em>what</em> the robot should do, and 50 times a second is plenty for
+ * that. Some low-level control, like following a setpoint while the wheel is still turning,
+ * works better when it is updated more often. Moving every command to a faster loop would be
+ * too much work for the roboRIO, so only these small callbacks run fast.
+ *
+ * <p>{@link frc.robot.Robot} runs this loop with {@code TimedRobot.addPeriodic}, on the same
+ * thread as the robot loop but shifted in time, so the fast ticks fall between robot loops.
+ * Because it is the same thread, a callback can safely read a subsystem's snapshot and
+ * setpoints without any locks.
+ *
+ * <p>Callbacks must be quick: they run 200 times a second. Register them once at startup.
+ */
+public final class FastControlLoop {
+  private Runnable[] m_callbacks = new Runnable[0];
+  private final LoopProfiler.Section m_section =
+      LoopProfiler.getInstance().section("FastControlLoop.run");
+
+  /**
+   * Add a callback to run on every fast tick. Do this once at startup, never inside the loop.
+   *
+   * @param callback The fast control code, like a swerve module's fastPeriodic().
+   */
+  public void register(Runnable callback) {
+    Runnable[] callbacks = Arrays.copyOf(m_callbacks, m_callbacks.length + 1);
+    callbacks[callbacks.length - 1] = callback;
+    m_callbacks = callbacks;
+  }
+
+  /** Run every registered callback once, in the order they were registered. */
+  public void run() {
+    m_section.start();
+    Runnable[] callbacks = m_callbacks;
+    for (int i = 0; i < callbacks.length; i++) {
+      callbacks[i].run();
+    }
+    m_section.stop();
+  }
+}
@@ -0,0 +1,87 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.util.Arrays;
+
+/**
+ * Counts how long something took, sorted into fixed "buckets" of time.
+ *
+ * <p>Imagine a row of jars, each labeled with a range of times (0-25 microseconds,
+ * 25-50 microseconds, and so on). Each time we measure something, we drop a marble into the
+ * matching jar. Later we can count marbles to find the typical time (p50, the middle value)
+ * or the slow times (p99, slower than 99% of the others). The jars are made once, so
+ * recording a time never creates new objects.
+ */
+public class LatencyHistogram {
+  // Each bucket covers this many microseconds.
+  private static final long BUCKET_WIDTH_MICROS = 25;
+  // 1000 buckets of 25 us cover 0 to 25 ms. Anything slower goes into the last bucket.
+  private static final int BUCKET_COUNT = 1000;
+
+  private final long[] m_buckets = new long[BUCKET_COUNT + 1];
+  private long m_count;
+  private long m_maxNanos;
+
+  /**
+   * Add one measured duration.
+   *
+   * @param nanos How long it took, in nanoseconds.
+   */
+  public void record(long nanos) {
+    long bucket = nanos / 1000 / BUCKET_WIDTH_MICROS;
+    if (bucket > BUCKET_COUNT) {
+      bucket = BUCKET_COUNT;
+    } else if (bucket < 0) {
+      bucket = 0;
+    }
+    m_buckets[(int) bucket]++;
+    m_count++;
+    if (nanos > m_maxNanos) {
+      m_maxNanos = nanos;
+    }
+  }
+
+  /**
+   * Estimate the time that the given fraction of measurements were faster than.
+   *
+   * @param fraction For example 0.5 for the median (p50) or 0.99 for p99.
+   * @return The time in milliseconds (the top edge of the matching bucket), or 0 if empty.
+   */
+  public double getPercentileMillis(double fraction) {
+    if (m_count == 0) {
+      return 0;
+    }
+    long needed = (long) Math.ceil(fraction * m_count);
+    long seen = 0;
+    for (int i = 0; i <= BUCKET_COUNT; i++) {
+      seen += m_buckets[i];
+      if (seen >= needed) {
+        if (i == BUCKET_COUNT) {
+          return getMaxMillis();
+        }
+        return (i + 1) * BUCKET_WIDTH_MICROS / 1000.0;
+      }
+    }
+    return getMaxMillis();
+  }
+
+  /** The slowest time recorded, in milliseconds. */
+  public double getMaxMillis() {
+    return m_maxNanos / 1e6;
+  }
+
+  /** How many times have been recorded. */
+  public long getCount() {
+    return m_count;
+  }
+
+  /** Empty every bucket so a new time window can start. */
+  public void reset() {
+    Arrays.fill(m_buckets, 0);
+    m_count = 0;
+    m_maxNanos = 0;
+  }
+}
@@ -0,0 +1,207 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.util.function.LongSupplier;
+
+import edu.wpi.first.wpilibj.TimedRobot;
+
+/**
+ * Keeps the robot loop inside its 20 ms by putting off work that can wait when the loop gets
+ * too slow.
+ *
+ * <p>Work is registered as one of two kinds:
+ * <ul>
+ *   <li><b>Critical</b> work, like the command scheduler that drives the motors, runs every
+ *       loop, first, no matter what.</li>
+ *   <li><b>Deferrable</b> work, like dashboard telemetry and diagnostics, is nice to have
+ *       every loop but nothing breaks if it is late.</li>
+ * </ul>
+ *
+ * <p>Every loop the manager measures how long the work took. If a loop uses too much of its
+ * budget, it raises the "degradation level", and deferrable work then runs only every 2nd,
+ * 5th or 25th loop, or not at all. When loops have stayed inside the budget for a while, it
+ * lowers the level again one step at a time. Within a single loop, deferrable work also stops
+ * as soon as the loop is nearly out of time, so one slow loop can never push the next one
+ * late.
+ *
+ * <p>Each task is timed by the {@link LoopProfiler} under its own name.
+ */
+public class LoopBudgetManager {
+  // A loop whose work takes more than this much of the period raises the level. Every other
+  // loop counts toward lowering it again.
+  private static final double HIGH_WATER_FRACTION = 0.7;
+  // How many quiet loops in a row (one second) before the level is lowered by one.
+  private static final int RECOVERY_LOOPS = 50;
+  // Deferrable work stops for the rest of a loop once this much of the period is used.
+  private static final double DEFERRABLE_CUTOFF_FRACTION = 0.8;
+  // A loop that starts this many periods after the one before means the last one overran.
+  private static final double OVERRUN_PERIODS = 1.5;
+  // For each level, deferrable tasks run once every this many loops. 0 means never.
+  private static final int[] LEVEL_INTERVALS = {1, 2, 5, 25, 0};
+
+  /** One registered piece of work. */
+  private static final class Task {
+    private final Runnable m_work;
+    private final boolean m_critical;
+    private final LoopProfiler.Section m_section;
+
+    Task(String name, Runnable work, boolean critical) {
+      m_work = work;
+      m_critical = critical;
+      m_section = LoopProfiler.getInstance().section(name);
+    }
+  }
+
+  private final LongSupplier m_clockNanos;
+  private final long m_periodNanos;
+  private Task[] m_tasks = new Task[0];
+
+  private int m_level;
+  private int m_quietLoops;
+  private long m_loopCount;
+  private long m_lastStartNanos;
+  private long m_lastLoopNanos;
+  private long m_skippedTasks;
+  private long m_overruns;
+
+  private final int m_levelChannel = Telemetry.getInstance().addDouble("/LoopBudget/Level");
+  private final int m_loopTimeChannel = Telemetry.getInstance().addDouble("/LoopBudget/LoopMs");
+  private final int m_skippedChannel =
+      Telemetry.getInstance().addDouble("/LoopBudget/SkippedTasks");
+  private final int m_overrunChannel = Telemetry.getInstance().addDouble("/LoopBudget/Overruns");
+
+  /** Creates a manager for the standard 20 ms robot loop. */
+  public LoopBudgetManager() {
+    this(System::nanoTime, TimedRobot.kDefaultPeriod);
+  }
+
+  /**
+   * Creates a manager with its own clock. Tests use this to pretend loops are slow.
+   *
+   * @param clockNanos Gives the current time in nanoseconds.
+   * @param periodSeconds How long one loop may take.
+   */
+  LoopBudgetManager(LongSupplier clockNanos, double periodSeconds) {
+    m_clockNanos = clockNanos;
+    m_periodNanos = (long) (periodSeconds * 1e9);
+  }
+
+  /**
+   * Add work that must run every loop. Critical tasks run first, in the order they were added.
+   * Call at startup, not from the loop.
+   *
+   * @param name The name shown in the loop timing, like "CommandScheduler.run".
+   * @param work The work to run.
+   */
+  public void registerCritical(String name, Runnable work) {
+    add(new Task(name, work, true));
+  }
+
+  /**
+   * Add work that may be slowed down or skipped when the loop is short on time, like telemetry.
+   * Deferrable tasks run after every critical task, in the order they were added.
+   * Call at startup, not from the loop.
+   *
+   * @param name The name shown in the loop timing, like "Module0.telemetry".
+   * @param work The work to run.
+   */
+  public void registerDeferrable(String name, Runnable work) {
+    add(new Task(name, work, false));
+  }
+
+  private void add(Task task) {
+    // A new array each time, so run() never sees a half-changed list. Only done at startup.
+    Task[] tasks = new Task[m_tasks.length + 1];
+    int critical = 0;
+    for (Task existing : m_tasks) {
+      if (existing.m_critical) {
+        critical++;
+      }
+    }
+    // Keep every critical task ahead of the deferrable ones.
+    int insertAt = task.m_critical ? critical : m_tasks.length;
+    System.arraycopy(m_tasks, 0, tasks, 0, insertAt);
+    tasks[insertAt] = task;
+    System.arraycopy(m_tasks, insertAt, tasks, insertAt + 1, m_tasks.length - insertAt);
+    m_tasks = tasks;
+  }
+
+  /** Run this loop's work: every critical task, then whichever deferrable tasks fit. */
+  public void run() {
+    long start = m_clockNanos.getAsLong();
+    if (m_loopCount > 0 && start - m_lastStartNanos > OVERRUN_PERIODS * m_periodNanos) {
+      // Something made the last loop late, even if our own tasks were quick.
+      m_overruns++;
+      raiseLevel();
+    }
+    m_lastStartNanos = start;
+
+    int interval = LEVEL_INTERVALS[m_level];
+    long cutoff = start + (long) (DEFERRABLE_CUTOFF_FRACTION * m_periodNanos);
+    Task[] tasks = m_tasks;
+    for (int i = 0; i < tasks.length; i++) {
+      Task task = tasks[i];
+      if (!task.m_critical) {
+        // Spread throttled tasks over different loops instead of running them all together.
+        boolean due = interval != 0 && (m_loopCount + i) % interval == 0;
+        if (!due || m_clockNanos.getAsLong() > cutoff) {
+          m_skippedTasks++;
+          continue;
+        }
+      }
+      task.m_section.start();
+      task.m_work.run();
+      task.m_section.stop();
+    }
+
+    m_lastLoopNanos = m_clockNanos.getAsLong() - start;
+    adapt(m_lastLoopNanos);
+    m_loopCount++;
+
+    Telemetry telemetry = Telemetry.getInstance();
+    telemetry.put(m_levelChannel, m_level);
+    telemetry.put(m_loopTimeChannel, m_lastLoopNanos / 1e6);
+    telemetry.put(m_skippedChannel, m_skippedTasks);
+    telemetry.put(m_overrunChannel, m_overruns);
+  }
+
+  /** Raise the level after a slow loop, or lower it after enough quiet ones. */
+  private void adapt(long loopNanos) {
+    if (loopNanos > HIGH_WATER_FRACTION * m_periodNanos) {
+      raiseLevel();
+    } else if (++m_quietLoops >= RECOVERY_LOOPS && m_level > 0) {
+      // A busy but steady loop must count too, or a robot that always uses half its budget
+      // would never get its telemetry back.
+      m_level--;
+      m_quietLoops = 0;
+    }
+  }
+
+  private void raiseLevel() {
+    m_level = Math.min(m_level + 1, LEVEL_INTERVALS.length - 1);
+    m_quietLoops = 0;
+  }
+
+  /** How much deferrable work is being held back: 0 = none, higher = more. */
+  public int getLevel() {
+    return m_level;
+  }
+
+  /** How long the last loop's work took, in nanoseconds. */
+  public long getLastLoopNanos() {
+    return m_lastLoopNanos;
+  }
+
+  /** How many times a deferrable task was skipped. */
+  public long getSkippedTaskCount() {
+    return m_skippedTasks;
+  }
+
+  /** How many loops started late because the one before overran. */
+  public long getOverrunCount() {
+    return m_overruns;
+  }
+}
@@ -0,0 +1,133 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj2.command.Command;
+
+/**
+ * Measures how long each part of the robot loop takes.
+ *
+ * <p>When WPILib prints "Loop time of 0.02s overrun", it does not say what was slow. The
+ * profiler keeps a {@link LatencyHistogram} for each named {@link Section} (for example
+ * "Module0.periodic" or "SpinWheelCommand.execute"). Once per second it sends the median (p50),
+ * p99, and slowest time of every section to NetworkTables and to the DataLog file, then starts
+ * counting again.
+ *
+ * <p>Sections are made once at startup. Timing them in the loop creates no new objects, so the
+ * profiler does not slow down the loop it is measuring.
+ */
+public final class LoopProfiler {
+  private static LoopProfiler s_instance;
+
+  private static final long PUBLISH_PERIOD_NANOS = 1_000_000_000L;
+  private static final String TABLE = "/LoopTiming/";
+
+  private final List<Section> m_sections = new ArrayList<>();
+  // The same sections by name, so asking for a name twice gives the same section.
+  private final Map<String, Section> m_sectionsByName = new HashMap<>();
+  private long m_lastPublishNanos = System.nanoTime();
+
+  /**
+   * One timed part of the loop. Call {@link #start()} before the work and {@link #stop()} after.
+   */
+  public static final class Section {
+    private final LatencyHistogram m_histogram = new LatencyHistogram();
+    private final DoubleArrayPublisher m_publisher;
+    private final DoubleArrayLogEntry m_logEntry;
+    // {p50 ms, p99 ms, max ms, count}, reused on every publish.
+    private final double[] m_summary = new double[4];
+    private long m_startNanos;
+
+    private Section(String name) {
+      m_publisher = NetworkTableInstance.getDefault().getDoubleArrayTopic(TABLE + name).publish();
+      m_logEntry = new DoubleArrayLogEntry(DataLogManager.getLog(), TABLE + name);
+    }
+
+    /** Mark the start of the timed work. */
+    public void start() {
+      m_startNanos = System.nanoTime();
+    }
+
+    /** Mark the end of the timed work and record how long it took. */
+    public void stop() {
+      m_histogram.record(System.nanoTime() - m_startNanos);
+    }
+
+    /** Record a duration that was measured somewhere else. */
+    public void record(long nanos) {
+      m_histogram.record(nanos);
+    }
+
+    private void publish() {
+      m_summary[0] = m_histogram.getPercentileMillis(0.5);
+      m_summary[1] = m_histogram.getPercentileMillis(0.99);
+      m_summary[2] = m_histogram.getMaxMillis();
+      m_summary[3] = m_histogram.getCount();
+      m_publisher.set(m_summary);
+      m_logEntry.append(m_summary);
+      m_histogram.reset();
+    }
+  }
+
+  private LoopProfiler() {}
+
+  /** Get the one shared profiler. */
+  public static synchronized LoopProfiler getInstance() {
+    if (s_instance == null) {
+      s_instance = new LoopProfiler();
+    }
+    return s_instance;
+  }
+
+  /**
+   * Get the timed section with this name, making it the first time. Do this once at startup
+   * (for example in a constructor), never inside the loop.
+   *
+   * <p>Everything that asks for the same name shares one section, so two commands with the
+   * same name are timed together instead of publishing two topics with the same name.
+   *
+   * @param name The name shown on the dashboard, like "Module0.periodic".
+   */
+  public synchronized Section section(String name) {
+    Section section = m_sectionsByName.get(name);
+    if (section == null) {
+      section = new Section(name);
+      m_sections.add(section);
+      m_sectionsByName.put(name, section);
+    }
+    return section;
+  }
+
+  /**
+   * Wrap a command so its execute() and isFinished() are timed.
+   *
+   * @param command The command to time.
+   * @return A command that behaves the same but reports its timing.
+   */
+  public static Command profile(Command command) {
+    return new ProfiledCommand(command);
+  }
+
+  /** Publish every section's numbers if a second has passed since the last time. */
+  public void publishIfDue() {
+    long now = System.nanoTime();
+    if (now - m_lastPublishNanos < PUBLISH_PERIOD_NANOS) {
+      return;
+    }
+    m_lastPublishNanos = now;
+    for (int i = 0; i < m_sections.size(); i++) {
+      m_sections.get(i).publish();
+    }
+  }
+}
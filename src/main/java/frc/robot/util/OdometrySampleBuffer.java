@@ -0,0 +1,102 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed-size "ring buffer" that passes odometry samples from the odometry thread to the
+ * main robot loop.
+ *
+ * <p>Think of it like a circular conveyor belt with numbered slots. One thread (the producer)
+ * puts samples on the belt, and the main loop (the consumer) takes them off. Because only one
+ * thread writes and only one thread reads, no locks are needed, and because the arrays are
+ * made once at startup, adding a sample never creates new objects.
+ */
+public class OdometrySampleBuffer {
+  private final int m_capacity;
+  private final int m_mask;
+
+  // One array per value instead of one object per sample, so nothing is allocated later.
+  private final double[] m_timestamps;
+  private final double[] m_drivePositions;
+  private final double[] m_steerPositions;
+
+  // Total number of samples ever written and ever read. The slot is (count & mask).
+  private final AtomicLong m_writeCount = new AtomicLong();
+  private final AtomicLong m_readCount = new AtomicLong();
+
+  // How many samples were thrown away because the main loop fell too far behind. Only the
+  // odometry thread changes it, so volatile is enough for the main loop to read it safely.
+  private volatile long m_droppedSamples;
+
+  /**
+   * Creates a buffer that can hold at least the given number of samples.
+   *
+   * @param minimumCapacity The smallest number of samples the buffer must hold.
+   */
+  public OdometrySampleBuffer(int minimumCapacity) {
+    // Round up to a power of two so "count & mask" can replace the slower "count % capacity".
+    int capacity = Integer.highestOneBit(Math.max(2, minimumCapacity - 1)) << 1;
+    m_capacity = capacity;
+    m_mask = capacity - 1;
+    m_timestamps = new double[capacity];
+    m_drivePositions = new double[capacity];
+    m_steerPositions = new double[capacity];
+  }
+
+  /**
+   * Add one sample. Only the odometry thread should call this.
+   *
+   * @param timestampSeconds When the sample was measured, in FPGA seconds.
+   * @param drivePosition The drive motor position in rotations.
+   * @param steerPosition The steering position in rotations.
+   * @return false if the buffer was full and the sample was dropped.
+   */
+  public boolean add(double timestampSeconds, double drivePosition, double steerPosition) {
+    long write = m_writeCount.get();
+    if (write - m_readCount.get() >= m_capacity) {
+      m_droppedSamples++;
+      return false;
+    }
+    int slot = (int) (write & m_mask);
+    m_timestamps[slot] = timestampSeconds;
+    m_drivePositions[slot] = drivePosition;
+    m_steerPositions[slot] = steerPosition;
+    // lazySet publishes the new count only after the values above are written.
+    m_writeCount.lazySet(write + 1);
+    return true;
+  }
+
+  /**
+   * Copy every waiting sample into the given arrays and remove them from the buffer.
+   * Only the main loop should call this.
+   *
+   * @return The number of samples copied. Never more than the length of the arrays.
+   */
+  public int drainTo(double[] timestamps, double[] drivePositions, double[] steerPositions) {
+    long read = m_readCount.get();
+    long available = m_writeCount.get() - read;
+    int count = (int) Math.min(available, timestamps.length);
+    for (int i = 0; i < count; i++) {
+      int slot = (int) ((read + i) & m_mask);
+      timestamps[i] = m_timestamps[slot];
+      drivePositions[i] = m_drivePositions[slot];
+      steerPositions[i] = m_steerPositions[slot];
+    }
+    m_readCount.lazySet(read + count);
+    return count;
+  }
+
+  /** The number of samples the buffer can hold. */
+  public int getCapacity() {
+    return m_capacity;
+  }
+
+  /** The number of samples dropped because the buffer was full. */
+  public long getDroppedSamples() {
+    return m_droppedSamples;
+  }
+}
@@ -0,0 +1,145 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+/**
+ * The robot's recent poses, each stored with the time it was measured, so we can ask "where
+ * was the robot at time t?" for any time in the last second or so.
+ *
+ * <p>A camera picture is processed tens of milliseconds after it was taken. To use it, we need
+ * the pose from the moment the picture was taken, not from now. This history answers that by
+ * finding the two stored poses on either side of the time and blending between them.
+ *
+ * <p>Like {@link OdometrySampleBuffer}, it is a ring of plain arrays made once at startup. Adding
+ * a pose overwrites the oldest one and takes constant time; looking one up is a binary search,
+ * so even at 250 poses a second neither step creates objects or takes long. Main thread only.
+ */
+public class PoseHistory {
+  private final int m_capacity;
+  private final int m_mask;
+
+  private final double[] m_timestamps;
+  private final double[] m_x;
+  private final double[] m_y;
+  private final double[] m_heading;
+
+  // Total number of poses ever added. The newest is at slot (count - 1) & mask.
+  private long m_count;
+
+  /**
+   * Creates a history that holds at least the given number of poses.
+   *
+   * @param minimumCapacity The smallest number of poses to keep.
+   */
+  public PoseHistory(int minimumCapacity) {
+    // Round up to a power of two so "index & mask" can replace the slower "index % capacity".
+    int capacity = Integer.highestOneBit(Math.max(2, minimumCapacity - 1)) << 1;
+    m_capacity = capacity;
+    m_mask = capacity - 1;
+    m_timestamps = new double[capacity];
+    m_x = new double[capacity];
+    m_y = new double[capacity];
+    m_heading = new double[capacity];
+  }
+
+  /**
+   * Add the newest pose. Poses must be added in time order.
+   *
+   * @param timestampSeconds When the pose was measured, in FPGA seconds.
+   * @param x Field x position in meters.
+   * @param y Field y position in meters.
+   * @param headingRadians Heading in radians. Not wrapped, so blending never jumps by 2 pi.
+   * @return False if the pose was not newer than the last one, and was ignored.
+   */
+  public boolean add(double timestampSeconds, double x, double y, double headingRadians) {
+    if (m_count > 0 && timestampSeconds <= getNewestTimestamp()) {
+      return false;
+    }
+    int slot = (int) (m_count & m_mask);
+    m_timestamps[slot] = timestampSeconds;
+    m_x[slot] = x;
+    m_y[slot] = y;
+    m_heading[slot] = headingRadians;
+    m_count++;
+    return true;
+  }
+
+  /** Forget every pose. */
+  public void clear() {
+    m_count = 0;
+  }
+
+  /** The number of poses stored right now. */
+  public int size() {
+    return (int) Math.min(m_count, m_capacity);
+  }
+
+  /** The number of poses the history can hold. */
+  public int getCapacity() {
+    return m_capacity;
+  }
+
+  /** The time of the oldest stored pose, or NaN if there are none. */
+  public double getOldestTimestamp() {
+    return size() == 0 ? Double.NaN : m_timestamps[slot(0)];
+  }
+
+  /** The time of the newest stored pose, or NaN if there are none. */
+  public double getNewestTimestamp() {
+    return size() == 0 ? Double.NaN : m_timestamps[slot(size() - 1)];
+  }
+
+  /**
+   * Work out the pose at a moment by blending the stored poses just before and after it.
+   * Times after the newest pose give the newest pose.
+   *
+   * @param timestampSeconds The moment to look up, in FPGA seconds.
+   * @param poseOut Filled with {x, y, heading}. Must have room for 3 values.
+   * @return False if the time is older than everything stored; poseOut is then unchanged.
+   */
+  public boolean getPoseAt(double timestampSeconds, double[] poseOut) {
+    int size = size();
+    if (size == 0 || timestampSeconds < m_timestamps[slot(0)]) {
+      return false;
+    }
+    if (timestampSeconds >= m_timestamps[slot(size - 1)]) {
+      copyPose(slot(size - 1), poseOut);
+      return true;
+    }
+
+    // Binary search for the first stored pose later than the time. The one before it is
+    // at or before the time, because of the checks above.
+    int low = 1;
+    int high = size - 1;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (m_timestamps[slot(middle)] > timestampSeconds) {
+        high = middle;
+      } else {
+        low = middle + 1;
+      }
+    }
+    int after = slot(low);
+    int before = slot(low - 1);
+
+    double fraction = (timestampSeconds - m_timestamps[before])
+        / (m_timestamps[after] - m_timestamps[before]);
+    poseOut[0] = m_x[before] + fraction * (m_x[after] - m_x[before]);
+    poseOut[1] = m_y[before] + fraction * (m_y[after] - m_y[before]);
+    poseOut[2] = m_heading[before] + fraction * (m_heading[after] - m_heading[before]);
+    return true;
+  }
+
+  private void copyPose(int slot, double[] poseOut) {
+    poseOut[0] = m_x[slot];
+    poseOut[1] = m_y[slot];
+    poseOut[2] = m_heading[slot];
+  }
+
+  /** The array slot of the i-th stored pose, where 0 is the oldest. */
+  private int slot(int index) {
+    return (int) ((m_count - size() + index) & m_mask);
+  }
+}
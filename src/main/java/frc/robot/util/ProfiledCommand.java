@@ -0,0 +1,48 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.WrapperCommand;
+
+/**
+ * A command "wrapper" that runs another command unchanged but times its execute() and
+ * isFinished() methods with the {@link LoopProfiler}.
+ *
+ * <p>A wrapper is like putting a gift inside a box: the scheduler sees the box, but everything
+ * the box is asked to do is passed through to the gift inside. Use
+ * {@link LoopProfiler#profile(Command)} to make one.
+ */
+public class ProfiledCommand extends WrapperCommand {
+  private final LoopProfiler.Section m_executeSection;
+  private final LoopProfiler.Section m_isFinishedSection;
+
+  /**
+   * Creates a new ProfiledCommand.
+   *
+   * @param command The command to run and time.
+   */
+  ProfiledCommand(Command command) {
+    super(command);
+    String name = command.getName();
+    m_executeSection = LoopProfiler.getInstance().section(name + ".execute");
+    m_isFinishedSection = LoopProfiler.getInstance().section(name + ".isFinished");
+  }
+
+  @Override
+  public void execute() {
+    m_executeSection.start();
+    m_command.execute();
+    m_executeSection.stop();
+  }
+
+  @Override
+  public boolean isFinished() {
+    m_isFinishedSection.start();
+    boolean finished = m_command.isFinished();
+    m_isFinishedSection.stop();
+    return finished;
+  }
+}
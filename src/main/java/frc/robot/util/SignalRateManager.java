@@ -0,0 +1,256 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.CANBus;
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.hardware.ParentDevice;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.Constants.SwerveConstants;
+
+/**
+ * Decides how often each CAN device sends each of its values, and turns off the rest.
+ *
+ * <p>Every value a TalonFX reports (position, speed, current, temperature, and dozens we never
+ * read) is sent over the CAN bus at a default rate. With many devices the bus fills up and
+ * the values we really need arrive late. So every signal the code reads is registered here
+ * with a {@link Priority}, which says how often it is needed in each robot {@link Mode}.
+ * {@link #start()} then asks each device to stop sending everything else
+ * ({@code optimizeBusUtilization}).
+ *
+ * <p>Changing rates talks to the devices and can take a while, so it happens on the shared
+ * {@link BackgroundExecutor}. If the mode changes again before the devices were updated, only
+ * the newest mode is sent, so they can never end up with an older mode's rates. Once a second
+ * the bus load and how old each value is get published under "/CAN/".
+ */
+public final class SignalRateManager {
+  private static SignalRateManager s_instance;
+
+  private static final long PUBLISH_PERIOD_NANOS = 1_000_000_000L;
+
+  /** The robot modes, which each need different values at different rates. */
+  public enum Mode {
+    DISABLED,
+    AUTONOMOUS,
+    TELEOP,
+    TEST
+  }
+
+  /** How often a kind of signal is needed, in Hz, for each {@link Mode}. */
+  public enum Priority {
+    // Wheel positions feed odometry, which keeps running even while disabled.
+    ODOMETRY(
+        SwerveConstants.kOdometryFrequencyHz, SwerveConstants.kOdometryFrequencyHz,
+        SwerveConstants.kOdometryFrequencyHz, SwerveConstants.kOdometryFrequencyHz),
+    // Speeds and headings that commands check every loop. In test mode the SysId commands
+    // log speed as fast as the wheel positions.
+    CONTROL(20, 100, 100, SwerveConstants.kOdometryFrequencyHz),
+    // Current and voltage for the dashboard. SysId in test mode logs voltage just as fast.
+    DIAGNOSTIC(10, 50, 50, SwerveConstants.kOdometryFrequencyHz),
+    // Temperatures change slowly.
+    SLOW(4, 4, 4, 4);
+
+    private final double[] m_ratesHz;
+
+    Priority(double disabledHz, double autonomousHz, double teleopHz, double testHz) {
+      m_ratesHz = new double[] {disabledHz, autonomousHz, teleopHz, testHz};
+    }
+
+    /** The update rate in Hz for a mode. */
+    public double getRateHz(Mode mode) {
+      return m_ratesHz[mode.ordinal()];
+    }
+  }
+
+  /** One registered signal. */
+  private static final class Entry {
+    private final Priority m_priority;
+    // The signal the robot code refreshes; we only read how old its value is.
+    private final BaseStatusSignal m_signal;
+    // A copy used to change the rate from the background thread, so the two threads never
+    // use the same signal object.
+    private final BaseStatusSignal m_rateSignal;
+    private final int m_latencyChannel;
+
+    Entry(String name, Priority priority, BaseStatusSignal signal) {
+      m_priority = priority;
+      m_signal = signal;
+      m_rateSignal = signal.clone();
+      m_latencyChannel = Telemetry.getInstance().addDouble("/CAN/LatencyMs/" + name);
+    }
+  }
+
+  private final List<Entry> m_entries = new ArrayList<>();
+  private final List<ParentDevice> m_devices = new ArrayList<>();
+  // For each priority, the rate signals to set together. Built in start().
+  private BaseStatusSignal[][] m_signalsByPriority;
+  // The devices to optimize. Built in start().
+  private ParentDevice[] m_deviceArray;
+  // The mode whose rates still need to be sent, or null.
+  private final AtomicReference<Mode> m_pendingMode = new AtomicReference<>();
+  // True until the first rates have been sent and the other signals turned off.
+  private final AtomicBoolean m_optimizePending = new AtomicBoolean();
+  // True while a background task is sending rates.
+  private final AtomicBoolean m_scheduled = new AtomicBoolean();
+  private Mode m_mode = Mode.DISABLED;
+  private boolean m_started;
+
+  // The roboRIO's CAN bus, where every device is. Made in start().
+  private CANBus m_bus;
+  private final int m_utilizationChannel =
+      Telemetry.getInstance().addDouble("/CAN/BusUtilizationPercent");
+  private final int m_txFullChannel = Telemetry.getInstance().addDouble("/CAN/TxFullCount");
+  private long m_lastPublishNanos = System.nanoTime();
+
+  private SignalRateManager() {}
+
+  /** Get the one shared manager. */
+  public static synchronized SignalRateManager getInstance() {
+    if (s_instance == null) {
+      s_instance = new SignalRateManager();
+    }
+    return s_instance;
+  }
+
+  /**
+   * Declare a signal the robot code reads. Call at startup, before {@link #start()}.
+   *
+   * @param name A short name for the dashboard, like "TalonFX7/Position".
+   * @param priority How often the signal is needed in each mode.
+   * @param signal The signal.
+   */
+  public synchronized void register(String name, Priority priority, BaseStatusSignal signal) {
+    m_entries.add(new Entry(name, priority, signal));
+  }
+
+  /**
+   * Declare a device whose unregistered signals should be turned off. Call at startup, before
+   * {@link #start()}.
+   */
+  public synchronized void registerDevice(ParentDevice device) {
+    m_devices.add(device);
+  }
+
+  /**
+   * Set every registered signal to its rate for the current mode, then turn off everything
+   * else. Call once, after every device has been built.
+   */
+  public synchronized void start() {
+    if (m_started) {
+      return;
+    }
+    m_started = true;
+    m_bus = new CANBus();
+    m_signalsByPriority = new BaseStatusSignal[Priority.values().length][];
+    for (Priority priority : Priority.values()) {
+      List<BaseStatusSignal> signals = new ArrayList<>();
+      for (Entry entry : m_entries) {
+        if (entry.m_priority == priority) {
+          signals.add(entry.m_rateSignal);
+        }
+      }
+      m_signalsByPriority[priority.ordinal()] = signals.toArray(new BaseStatusSignal[0]);
+    }
+
+    m_deviceArray = m_devices.toArray(new ParentDevice[0]);
+    m_optimizePending.set(true);
+    requestRates(m_mode);
+  }
+
+  /**
+   * Switch every registered signal to the rates for a new mode. Returns right away; the
+   * devices are updated in the background.
+   */
+  public synchronized void setMode(Mode mode) {
+    if (mode == m_mode) {
+      return;
+    }
+    m_mode = mode;
+    if (m_started) {
+      requestRates(mode);
+    }
+  }
+
+  /** Ask for a mode's rates to be sent, starting a background task if none is running. */
+  private void requestRates(Mode mode) {
+    m_pendingMode.set(mode);
+    if (m_scheduled.compareAndSet(false, true)) {
+      BackgroundExecutor.Task<Void> task = BackgroundExecutor.getInstance()
+          .submit("CAN signal rates", BackgroundExecutor.Priority.NORMAL, this::drain);
+      if (task.wasRejected()) {
+        // The rates stay pending and are sent with the next mode change.
+        m_scheduled.set(false);
+      }
+    }
+  }
+
+  /** Send the pending rates until there are none left. Runs in the background. */
+  private void drain() {
+    while (true) {
+      Mode mode;
+      while ((mode = m_pendingMode.getAndSet(null)) != null) {
+        applyRates(mode);
+        if (m_optimizePending.getAndSet(false)) {
+          // Only signals that were given a rate above keep being sent.
+          report("optimizeBusUtilization",
+              ParentDevice.optimizeBusUtilizationForAll(m_deviceArray));
+        }
+      }
+      m_scheduled.set(false);
+      // A mode change may have arrived after the last check. Take it if no other task has
+      // already been started for it.
+      if (m_pendingMode.get() == null || !m_scheduled.compareAndSet(false, true)) {
+        break;
+      }
+    }
+  }
+
+  /** Runs in the background. */
+  private void applyRates(Mode mode) {
+    for (Priority priority : Priority.values()) {
+      BaseStatusSignal[] signals = m_signalsByPriority[priority.ordinal()];
+      if (signals.length > 0) {
+        report(priority + " rate",
+            BaseStatusSignal.setUpdateFrequencyForAll(priority.getRateHz(mode), signals));
+      }
+    }
+  }
+
+  private static void report(String what, StatusCode status) {
+    if (!status.isOK()) {
+      DriverStation.reportWarning("CAN " + what + " failed: " + status.getName(), false);
+    }
+  }
+
+  /**
+   * Once a second, publish the bus load and the age of every registered value.
+   * Main robot thread only.
+   */
+  public void publishIfDue() {
+    long now = System.nanoTime();
+    if (!m_started || now - m_lastPublishNanos < PUBLISH_PERIOD_NANOS) {
+      return;
+    }
+    m_lastPublishNanos = now;
+
+    Telemetry telemetry = Telemetry.getInstance();
+    CANBus.CANBusStatus status = m_bus.getStatus();
+    if (status.Status.isOK()) {
+      telemetry.put(m_utilizationChannel, status.BusUtilization * 100.0);
+      telemetry.put(m_txFullChannel, status.TxFullCount);
+    }
+    for (int i = 0; i < m_entries.size(); i++) {
+      Entry entry = m_entries.get(i);
+      telemetry.put(entry.m_latencyChannel, entry.m_signal.getTimestamp().getLatency() * 1000);
+    }
+  }
+}
@@ -0,0 +1,168 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+/**
+ * Converts between "how the whole robot should move" (chassis speeds) and "what each wheel
+ * should do" (module speed and angle).
+ *
+ * <p>WPILib's {@code SwerveDriveKinematics} does the same math, but it creates new
+ * {@code SwerveModuleState} and {@code ChassisSpeeds} objects on every call. Creating objects
+ * 50 to 250 times a second makes the garbage collector run more often, which can make the loop
+ * late. This class does all of its work in arrays that are created once, in the constructor.
+ *
+ * <p>Units: speeds in meters per second, turning in radians per second, wheel angles in
+ * rotations (0.25 = 90 degrees counterclockwise). Positive x is forward, positive y is left.
+ */
+public class SwerveKinematics {
+  private final int m_moduleCount;
+  private final double[] m_moduleX;
+  private final double[] m_moduleY;
+
+  // The "pseudo-inverse" matrix used to turn wheel velocities back into chassis speeds.
+  // It has 3 rows (vx, vy, omega) and 2 columns per module, stored row by row.
+  private final double[] m_forwardMatrix;
+  // Scratch space for forward kinematics: the x and y velocity of each wheel.
+  private final double[] m_wheelVelocities;
+
+  /**
+   * Creates the kinematics for modules at the given positions from the center of the robot.
+   *
+   * @param moduleX Each module's forward distance from the robot center, in meters.
+   * @param moduleY Each module's leftward distance from the robot center, in meters.
+   */
+  public SwerveKinematics(double[] moduleX, double[] moduleY) {
+    if (moduleX.length != moduleY.length || moduleX.length < 2) {
+      throw new IllegalArgumentException("Need matching x and y positions for at least 2 modules");
+    }
+    m_moduleCount = moduleX.length;
+    m_moduleX = moduleX.clone();
+    m_moduleY = moduleY.clone();
+    m_wheelVelocities = new double[2 * m_moduleCount];
+    m_forwardMatrix = buildForwardMatrix();
+  }
+
+  /** The number of modules this kinematics object was built for. */
+  public int getModuleCount() {
+    return m_moduleCount;
+  }
+
+  /**
+   * Work out the speed and angle for every module (inverse kinematics).
+   *
+   * @param vx Forward speed of the robot in meters per second.
+   * @param vy Leftward speed of the robot in meters per second.
+   * @param omega Counterclockwise turning speed in radians per second.
+   * @param speedsOut Filled with each module's wheel speed in meters per second.
+   * @param anglesOut Filled with each module's wheel angle in rotations. If a module's speed is
+   *     zero its angle is left unchanged, so the wheels do not snap back to straight.
+   */
+  public void toModuleStates(
+      double vx, double vy, double omega, double[] speedsOut, double[] anglesOut) {
+    for (int i = 0; i < m_moduleCount; i++) {
+      // Each wheel moves with the robot plus a sideways push from the robot's rotation.
+      double wheelVx = vx - omega * m_moduleY[i];
+      double wheelVy = vy + omega * m_moduleX[i];
+      double speed = Math.hypot(wheelVx, wheelVy);
+      speedsOut[i] = speed;
+      if (speed > 1e-6) {
+        anglesOut[i] = Math.atan2(wheelVy, wheelVx) / (2 * Math.PI);
+      }
+    }
+  }
+
+  /**
+   * Scale all wheel speeds down together if any of them is faster than the motors can go.
+   * Scaling all of them keeps the robot moving in the requested direction.
+   *
+   * @param speeds The module speeds in meters per second. Changed in place.
+   * @param maxSpeed The fastest a single wheel can go, in meters per second.
+   */
+  public void desaturate(double[] speeds, double maxSpeed) {
+    double fastest = 0;
+    for (int i = 0; i < m_moduleCount; i++) {
+      fastest = Math.max(fastest, Math.abs(speeds[i]));
+    }
+    if (fastest > maxSpeed) {
+      double scale = maxSpeed / fastest;
+      for (int i = 0; i < m_moduleCount; i++) {
+        speeds[i] *= scale;
+      }
+    }
+  }
+
+  /**
+   * Work out how the whole robot is moving from the measured module states (forward kinematics).
+   *
+   * @param speeds Each module's measured wheel speed in meters per second.
+   * @param anglesRotations Each module's measured wheel angle in rotations.
+   * @param chassisOut Filled with {vx, vy, omega} in meters per second and radians per second.
+   */
+  public void toChassisSpeeds(double[] speeds, double[] anglesRotations, double[] chassisOut) {
+    for (int i = 0; i < m_moduleCount; i++) {
+      double angle = anglesRotations[i] * 2 * Math.PI;
+      m_wheelVelocities[2 * i] = speeds[i] * Math.cos(angle);
+      m_wheelVelocities[2 * i + 1] = speeds[i] * Math.sin(angle);
+    }
+    int columns = 2 * m_moduleCount;
+    for (int row = 0; row < 3; row++) {
+      double sum = 0;
+      for (int column = 0; column < columns; column++) {
+        sum += m_forwardMatrix[row * columns + column] * m_wheelVelocities[column];
+      }
+      chassisOut[row] = sum;
+    }
+  }
+
+  /**
+   * Build the least-squares matrix (A^T A)^-1 A^T once. Matrix A describes the inverse
+   * kinematics: each module adds the rows [1, 0, -y] and [0, 1, x].
+   */
+  private double[] buildForwardMatrix() {
+    // A^T A is only 3x3, so we can write it out by hand.
+    double sumX = 0;
+    double sumY = 0;
+    double sumSquares = 0;
+    for (int i = 0; i < m_moduleCount; i++) {
+      sumX += m_moduleX[i];
+      sumY += m_moduleY[i];
+      sumSquares += m_moduleX[i] * m_moduleX[i] + m_moduleY[i] * m_moduleY[i];
+    }
+    double n = m_moduleCount;
+    double[][] ata = {
+      {n, 0, -sumY},
+      {0, n, sumX},
+      {-sumY, sumX, sumSquares}
+    };
+    double[][] inverse = invert3x3(ata);
+
+    int columns = 2 * m_moduleCount;
+    double[] result = new double[3 * columns];
+    for (int row = 0; row < 3; row++) {
+      for (int i = 0; i < m_moduleCount; i++) {
+        // Row (2i) of A is [1, 0, -y]; row (2i + 1) is [0, 1, x].
+        result[row * columns + 2 * i] = inverse[row][0] - inverse[row][2] * m_moduleY[i];
+        result[row * columns + 2 * i + 1] = inverse[row][1] + inverse[row][2] * m_moduleX[i];
+      }
+    }
+    return result;
+  }
+
+  private static double[][] invert3x3(double[][] m) {
+    double a = m[0][0], b = m[0][1], c = m[0][2];
+    double d = m[1][0], e = m[1][1], f = m[1][2];
+    double g = m[2][0], h = m[2][1], k = m[2][2];
+    double determinant = a * (e * k - f * h) - b * (d * k - f * g) + c * (d * h - e * g);
+    if (Math.abs(determinant) < 1e-12) {
+      throw new IllegalArgumentException("Module positions must not all be in a straight line");
+    }
+    double inv = 1.0 / determinant;
+    return new double[][] {
+      {(e * k - f * h) * inv, (c * h - b * k) * inv, (b * f - c * e) * inv},
+      {(f * g - d * k) * inv, (a * k - c * g) * inv, (c * d - a * f) * inv},
+      {(d * h - e * g) * inv, (b * g - a * h) * inv, (a * e - b * d) * inv}
+    };
+  }
+}
@@ -0,0 +1,259 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+
+/**
+ * Sends numbers to the dashboard (NetworkTables) and the log file (DataLog) without slowing
+ * down the robot loop.
+ *
+ * <p>{@code SmartDashboard.putNumber("name", value)} looks up the name every time it is called,
+ * on the main robot thread. With hundreds of values that adds up. Here, each value is
+ * registered once at startup and gets a number called a "channel". In the loop we only write
+ * (channel, value) into a ring buffer, which is very cheap. A background thread then empties
+ * the buffer in batches and does the slower publishing work.
+ *
+ * <p>The background thread only takes values up to the last {@link #endLoop()}. An array such
+ * as a module's state is put one element at a time, so without that it could be published
+ * halfway through a loop, mixing this loop's numbers with the last one's.
+ *
+ * <p>Only the main robot thread may call {@link #put(int, double)} and {@link #endLoop()}.
+ * Registering channels is allowed from anywhere, but should happen at startup.
+ */
+public final class Telemetry {
+  private static Telemetry s_instance;
+
+  // Room for this many values waiting to be published (about 16 loops of 500 values).
+  private static final int BUFFER_SIZE = 8192;
+  private static final int MASK = BUFFER_SIZE - 1;
+  // How long the background thread rests between batches.
+  private static final long FLUSH_PERIOD_NANOS = 10_000_000L;
+
+  // The ring buffer: one slot holds one (channel, value, timestamp) entry.
+  private final int[] m_channels = new int[BUFFER_SIZE];
+  private final double[] m_values = new double[BUFFER_SIZE];
+  private final long[] m_timestamps = new long[BUFFER_SIZE];
+  private final AtomicLong m_writeCount = new AtomicLong();
+  // The write count at the last endLoop(). The background thread reads no further.
+  private final AtomicLong m_committedCount = new AtomicLong();
+  private final AtomicLong m_readCount = new AtomicLong();
+  private long m_droppedValues;
+
+  // Timestamp (microseconds) given to every value put during this loop. 0 means "now".
+  private long m_loopTimestampMicros;
+
+  // Everything that was registered. The array is replaced, never changed, when a channel is
+  // added, so the background thread can read it safely.
+  private volatile Channel[] m_channelTable = new Channel[0];
+  private volatile ArrayChannel[] m_arrays = new ArrayChannel[0];
+
+  private final DataLog m_log = DataLogManager.getLog();
+  private final Thread m_thread;
+
+  /** Where one channel's values go. */
+  private abstract static class Channel {
+    abstract void accept(double value, long timestampMicros);
+  }
+
+  /** A single number with its own topic and log entry. */
+  private static final class DoubleChannel extends Channel {
+    private final DoublePublisher m_publisher;
+    private final DoubleLogEntry m_logEntry;
+
+    DoubleChannel(String name, DataLog log) {
+      m_publisher = NetworkTableInstance.getDefault().getDoubleTopic(name).publish();
+      m_logEntry = new DoubleLogEntry(log, name);
+    }
+
+    @Override
+    void accept(double value, long timestampMicros) {
+      m_publisher.set(value, timestampMicros);
+      m_logEntry.append(value, timestampMicros);
+    }
+  }
+
+  /** Several numbers that are published together as one array topic. */
+  private static final class ArrayChannel {
+    private final DoubleArrayPublisher m_publisher;
+    private final DoubleArrayLogEntry m_logEntry;
+    private final double[] m_staging;
+    private long m_timestampMicros;
+    private boolean m_dirty;
+
+    ArrayChannel(String name, int length, DataLog log) {
+      m_publisher = NetworkTableInstance.getDefault().getDoubleArrayTopic(name).publish();
+      m_logEntry = new DoubleArrayLogEntry(log, name);
+      m_staging = new double[length];
+    }
+
+    void flush() {
+      if (m_dirty) {
+        m_publisher.set(m_staging, m_timestampMicros);
+        m_logEntry.append(m_staging, m_timestampMicros);
+        m_dirty = false;
+      }
+    }
+  }
+
+  /** One element of an {@link ArrayChannel}. */
+  private static final class ArrayElement extends Channel {
+    private final ArrayChannel m_array;
+    private final int m_index;
+
+    ArrayElement(ArrayChannel array, int index) {
+      m_array = array;
+      m_index = index;
+    }
+
+    @Override
+    void accept(double value, long timestampMicros) {
+      if (m_array.m_dirty && m_array.m_timestampMicros != timestampMicros) {
+        // A newer loop's values: send the older loop's array first, so it is not lost.
+        m_array.flush();
+      }
+      m_array.m_staging[m_index] = value;
+      m_array.m_timestampMicros = timestampMicros;
+      m_array.m_dirty = true;
+    }
+  }
+
+  private Telemetry() {
+    m_thread = new Thread(this::run, "Telemetry");
+    m_thread.setDaemon(true);
+    // Lower priority than the robot loop: publishing can wait, control cannot.
+    m_thread.setPriority(Thread.MIN_PRIORITY);
+    m_thread.start();
+  }
+
+  /** Get the one shared telemetry pipeline. */
+  public static synchronized Telemetry getInstance() {
+    if (s_instance == null) {
+      s_instance = new Telemetry();
+    }
+    return s_instance;
+  }
+
+  /**
+   * Register a single number.
+   *
+   * @param name The full topic name, like "/Swerve/Module0/Angle".
+   * @return The channel to pass to {@link #put(int, double)}.
+   */
+  public synchronized int addDouble(String name) {
+    return addChannel(new DoubleChannel(name, m_log));
+  }
+
+  /**
+   * Register a group of numbers published together as one array, like a module's state.
+   *
+   * @param name The full topic name.
+   * @param length How many numbers are in the array.
+   * @return The channel of element 0. Element i uses channel (returned value + i).
+   */
+  public synchronized int addDoubleArray(String name, int length) {
+    ArrayChannel array = new ArrayChannel(name, length, m_log);
+    ArrayChannel[] arrays = Arrays.copyOf(m_arrays, m_arrays.length + 1);
+    arrays[arrays.length - 1] = array;
+    m_arrays = arrays;
+
+    int first = -1;
+    for (int i = 0; i < length; i++) {
+      int channel = addChannel(new ArrayElement(array, i));
+      if (i == 0) {
+        first = channel;
+      }
+    }
+    return first;
+  }
+
+  private int addChannel(Channel channel) {
+    Channel[] table = Arrays.copyOf(m_channelTable, m_channelTable.length + 1);
+    table[table.length - 1] = channel;
+    m_channelTable = table;
+    return table.length - 1;
+  }
+
+  /**
+   * Set the timestamp used for every value put during this loop. Call once at the start of
+   * each loop so all of the loop's values line up in the log.
+   *
+   * @param timestampMicros The FPGA time in microseconds.
+   */
+  public void setLoopTimestamp(long timestampMicros) {
+    m_loopTimestampMicros = timestampMicros;
+  }
+
+  /**
+   * Queue a value to be published. This only copies three numbers into the buffer.
+   * Main robot thread only.
+   *
+   * @param channel The channel from {@link #addDouble} or {@link #addDoubleArray}.
+   * @param value The value to publish.
+   */
+  public void put(int channel, double value) {
+    long write = m_writeCount.get();
+    if (write - m_readCount.get() >= BUFFER_SIZE) {
+      // The background thread is behind. Dropping a dashboard value is better than waiting.
+      m_droppedValues++;
+      return;
+    }
+    int slot = (int) (write & MASK);
+    m_channels[slot] = channel;
+    m_values[slot] = value;
+    m_timestamps[slot] = m_loopTimestampMicros;
+    m_writeCount.lazySet(write + 1);
+  }
+
+  /**
+   * Mark every value put so far as one finished batch that may be published. Call once at the
+   * end of each loop. Main robot thread only.
+   */
+  public void endLoop() {
+    m_committedCount.lazySet(m_writeCount.get());
+  }
+
+  /** How many values were dropped because the buffer was full. */
+  public long getDroppedValues() {
+    return m_droppedValues;
+  }
+
+  private void run() {
+    while (true) {
+      flush();
+      LockSupport.parkNanos(FLUSH_PERIOD_NANOS);
+    }
+  }
+
+  /** Publish every finished loop in the buffer. Runs on the background thread. */
+  private void flush() {
+    // Read the committed count first: any channel used by those entries was registered before
+    // they were written, so the table we read next is guaranteed to contain it. Values put
+    // after the last endLoop() wait for the next flush, so arrays are never sent half-updated.
+    long read = m_readCount.get();
+    long write = m_committedCount.get();
+    Channel[] table = m_channelTable;
+    for (long i = read; i < write; i++) {
+      int slot = (int) (i & MASK);
+      table[m_channels[slot]].accept(m_values[slot], m_timestamps[slot]);
+    }
+    m_readCount.lazySet(write);
+
+    ArrayChannel[] arrays = m_arrays;
+    for (ArrayChannel array : arrays) {
+      array.flush();
+    }
+  }
+}
@@ -0,0 +1,122 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Constants.LoopConstants;
+import frc.robot.subsystems.PoseEstimator;
+import frc.robot.subsystems.SwerveDrivetrain;
+import frc.robot.subsystems.Vision;
+import frc.robot.util.FastControlLoop;
+
+/**
+ * Checks that the robot loop does not make new objects once it is running.
+ *
+ * <p>Every new object is garbage later, and the roboRIO's small heap has to stop and clean
+ * it up. Those pauses show up as loop time jitter. The JVM counts how many bytes each thread
+ * has allocated, so we run many loops and check that the count barely moves.
+ */
+class AllocationTest {
+  // Run this many loops first, so every class is loaded and the JIT has compiled the loop.
+  private static final int WARM_UP_LOOPS = 2000;
+  private static final int MEASURED_LOOPS = 1000;
+  // Our own code should allocate nothing. The slack covers the measuring itself.
+  private static final double MAX_ROBOT_CODE_BYTES_PER_LOOP = 16;
+  // A whole loop also runs WPILib's CommandScheduler, which builds a short name string for
+  // its overrun watchdog for every subsystem and command on every loop.
+  private static final double MAX_FULL_LOOP_BYTES_PER_LOOP = 4096;
+  // The autonomous path takes a few seconds, far less than the loops above. Starting the
+  // command over every second keeps it following the path in every measured loop, instead of
+  // measuring the cheap "already finished" state.
+  private static final int RESTART_LOOPS = 50;
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  @Test
+  void robotCodeDoesNotAllocate() {
+    try (SimHarness harness = new SimHarness()) {
+      harness.startAutonomous();
+      SwerveDrivetrain drivetrain = harness.getRobotContainer().getDrivetrain();
+      PoseEstimator poseEstimator = harness.getRobotContainer().getPoseEstimator();
+      Vision vision = harness.getRobotContainer().getVision();
+      FastControlLoop fastControlLoop = harness.getRobotContainer().getFastControlLoop();
+      Command autonomous = harness.getRobot().getAutonomousCommand();
+
+      // Everything the scheduler would call in one loop, minus the scheduler's own work:
+      // the sensors, pose estimate and camera, the autonomous command on module 0 and the
+      // teleop drive code on the others.
+      double bytesPerLoop = measureBytesPerLoop(autonomous, () -> {
+        for (int i = 0; i < drivetrain.getModuleCount(); i++) {
+          drivetrain.getModule(i).periodic();
+        }
+        drivetrain.periodic();
+        poseEstimator.periodic();
+        vision.periodic();
+        autonomous.execute();
+        autonomous.isFinished();
+        drivetrain.drive(1.0, 0.5, 0.3, true);
+        drivetrain.simulationPeriodic();
+        // The fast loop also moves the simulated wheels and gyro.
+        for (double t = 0; t < TimedRobot.kDefaultPeriod;
+            t += LoopConstants.kFastLoopPeriodSeconds) {
+          fastControlLoop.run();
+        }
+        SimHooks.stepTiming(TimedRobot.kDefaultPeriod);
+      });
+
+      assertFalse(autonomous.isFinished(), "The autonomous command was not measured running");
+      assertTrue(bytesPerLoop <= MAX_ROBOT_CODE_BYTES_PER_LOOP,
+          "Robot code allocated " + bytesPerLoop + " bytes per loop");
+    }
+  }
+
+  @Test
+  void fullLoopStaysWithinAllocationBudget() {
+    try (SimHarness harness = new SimHarness()) {
+      harness.startAutonomous();
+
+      double bytesPerLoop =
+          measureBytesPerLoop(harness.getRobot().getAutonomousCommand(), harness::step);
+
+      assertTrue(harness.isAutonomousCommandRunning(),
+          "The autonomous command was not measured running");
+      assertTrue(bytesPerLoop <= MAX_FULL_LOOP_BYTES_PER_LOOP,
+          "A full robot loop allocated " + bytesPerLoop + " bytes");
+    }
+  }
+
+  /**
+   * Run the loop to warm it up, then measure it. The autonomous command is started over every
+   * {@link #RESTART_LOOPS} loops, and once more right before measuring, so it never finishes.
+   */
+  private static double measureBytesPerLoop(Command autonomous, Runnable loop) {
+    for (int i = 0; i < WARM_UP_LOOPS; i++) {
+      runLoop(i, autonomous, loop);
+    }
+    long before = THREADS.getCurrentThreadAllocatedBytes();
+    for (int i = 0; i < MEASURED_LOOPS; i++) {
+      runLoop(i, autonomous, loop);
+    }
+    long after = THREADS.getCurrentThreadAllocatedBytes();
+    return (double) (after - before) / MEASURED_LOOPS;
+  }
+
+  private static void runLoop(int i, Command autonomous, Runnable loop) {
+    if (i % RESTART_LOOPS == 0) {
+      autonomous.initialize();
+    }
+    loop.run();
+  }
+}
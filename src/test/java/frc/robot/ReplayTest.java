@@ -0,0 +1,115 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Constants.SwerveConstants;
+import frc.robot.replay.InputLogWriter;
+import frc.robot.replay.ReplayEngine;
+import frc.robot.subsystems.PoseEstimator;
+
+/**
+ * Checks that a recorded run replays to exactly the same result.
+ *
+ * <p>The "replay" test replays a log from a real match instead. It is skipped by the normal
+ * {@code test} task; run it with {@code ./gradlew replay -Preplay.log=path/to/inputs.rlog}.
+ */
+class ReplayTest {
+  // Enough for the autonomous routine to finish, with room to spare.
+  private static final double AUTONOMOUS_TIMEOUT_SECONDS = 15.0;
+  // The replay clock is shifted from the recorded one, which can change the last digits of
+  // the time math, but nothing more.
+  private static final double POSE_TOLERANCE = 1e-9;
+
+  @Test
+  void replayMatchesRecordedRun(@TempDir Path tempDir) throws Exception {
+    Path logFile = tempDir.resolve("inputs.rlog");
+    // What the robot code worked out each loop: the pose estimate (x, y, heading) and
+    // whether the autonomous command was still running. The wheel positions themselves come
+    // straight from the log, so comparing them would prove nothing.
+    List<double[]> recordedPoses = new ArrayList<>();
+    List<Boolean> recordedRunning = new ArrayList<>();
+    int recordedFinishLoop = -1;
+
+    // Record: run autonomous on the simulated robot, saving the inputs of every loop.
+    int moduleCount = SwerveConstants.kModuleXMeters.length;
+    try (InputLogWriter log = InputLogWriter.create(logFile, moduleCount);
+        SimHarness harness = new SimHarness(log)) {
+      harness.startAutonomous();
+      int maxLoops = (int) Math.round(AUTONOMOUS_TIMEOUT_SECONDS / TimedRobot.kDefaultPeriod);
+      for (int loop = 0; loop < maxLoops && recordedFinishLoop < 0; loop++) {
+        harness.step();
+        recordedPoses.add(getPose(harness.getRobotContainer()));
+        recordedRunning.add(harness.isAutonomousCommandRunning());
+        if (!harness.isAutonomousCommandRunning()) {
+          recordedFinishLoop = loop;
+        }
+      }
+      assertEquals(0, log.getDroppedLoops());
+    }
+    assertTrue(recordedFinishLoop >= 0, "Autonomous never finished while recording");
+
+    // Replay: the same robot code on the logged inputs must work out the same pose every
+    // loop, and run the autonomous command for exactly the same loops.
+    int replayedFinishLoop = -1;
+    try (ReplayEngine replay = new ReplayEngine(logFile)) {
+      int loop = 0;
+      while (replay.step()) {
+        double[] pose = getPose(replay.getRobot().getRobotContainer());
+        double[] recordedPose = recordedPoses.get(loop);
+        assertEquals(recordedPose[0], pose[0], POSE_TOLERANCE, "X in loop " + loop);
+        assertEquals(recordedPose[1], pose[1], POSE_TOLERANCE, "Y in loop " + loop);
+        assertEquals(recordedPose[2], pose[2], POSE_TOLERANCE, "Heading in loop " + loop);
+        Command autonomous = replay.getRobot().getAutonomousCommand();
+        assertEquals(recordedRunning.get(loop), autonomous.isScheduled(), "Loop " + loop);
+        if (replayedFinishLoop < 0 && !autonomous.isScheduled()) {
+          replayedFinishLoop = loop;
+        }
+        loop++;
+      }
+      assertEquals(recordedPoses.size(), loop);
+    }
+    assertEquals(recordedFinishLoop, replayedFinishLoop);
+  }
+
+  private static double[] getPose(RobotContainer container) {
+    PoseEstimator estimator = container.getPoseEstimator();
+    return new double[] {estimator.getX(), estimator.getY(), estimator.getHeadingRadians()};
+  }
+
+  @Test
+  @Tag("replay")
+  void replayLogFile() throws Exception {
+    String file = System.getProperty("replay.log");
+    Assumptions.assumeTrue(file != null, "Pass the log with -Preplay.log=path/to/inputs.rlog");
+
+    long start = System.nanoTime();
+    double firstTimestamp = Double.NaN;
+    try (ReplayEngine replay = new ReplayEngine(Paths.get(file))) {
+      while (replay.step()) {
+        if (Double.isNaN(firstTimestamp)) {
+          firstTimestamp = replay.getRecordedTimestamp();
+        }
+      }
+      System.out.printf("Replayed %d loops (%.1f s of robot time) in %.2f s%n",
+          replay.getLoopCount(), replay.getRecordedTimestamp() - firstTimestamp,
+          (System.nanoTime() - start) / 1e9);
+    }
+  }
+}
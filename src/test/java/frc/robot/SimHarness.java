@@ -0,0 +1,167 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.Constants.LoopConstants;
+import frc.robot.replay.InputLogWriter;
+import frc.robot.subsystems.GyroIOSim;
+import frc.robot.subsystems.SwerveModuleIOSim;
+import frc.robot.util.FastControlLoop;
+
+/**
+ * Runs the whole robot program in a unit test, as fast as the computer can go.
+ *
+ * <p>The robot clock is paused, and each call to {@link #step()} runs one 20 ms loop and then
+ * moves the clock forward by exactly 20 ms. The motors and gyro are the pure-Java simulations,
+ * which only move when we step them, 5 ms at a time in each fast control tick. Nothing
+ * depends on real time, so a 15 second autonomous finishes in a fraction of a second and
+ * gives the same answer every run.
+ *
+ * <p>Use it with try-with-resources so the shared command scheduler is cleaned up for the next
+ * test:
+ * <pre>
+ * try (SimHarness harness = new SimHarness()) {
+ *   harness.startAutonomous();
+ *   harness.runUntil(() -&gt; done, 15.0);
+ * }
+ * </pre>
+ */
+public class SimHarness implements AutoCloseable {
+  private final Robot m_robot;
+  private final List<SwerveModuleIOSim> m_moduleIOs = new ArrayList<>();
+  private long m_loopCount;
+
+  /** Start the simulated robot, disabled. */
+  public SimHarness() {
+    this(null);
+  }
+
+  /**
+   * Start the simulated robot, disabled, recording its inputs.
+   *
+   * @param inputLog Where to record every loop's inputs, or null to not record.
+   */
+  public SimHarness(InputLogWriter inputLog) {
+    // 500 ms timeout, 0 = use the simulator HAL.
+    HAL.initialize(500, 0);
+    SimHooks.pauseTiming();
+    DriverStationSim.resetData();
+    DriverStationSim.notifyNewData();
+
+    m_robot = new Robot(new RobotContainer(i -> {
+      SwerveModuleIOSim io = new SwerveModuleIOSim();
+      m_moduleIOs.add(io);
+      return io;
+    }, new GyroIOSim(), inputLog));
+  }
+
+  /** The robot program under test. */
+  public Robot getRobot() {
+    return m_robot;
+  }
+
+  /** The simulated hardware of swerve module i, to look at the wheel between robot loops. */
+  public SwerveModuleIOSim getModuleIO(int i) {
+    return m_moduleIOs.get(i);
+  }
+
+  /** The container, for reaching the subsystems. */
+  public RobotContainer getRobotContainer() {
+    return m_robot.getRobotContainer();
+  }
+
+  /** True while the command scheduled by autonomousInit() is still running. */
+  public boolean isAutonomousCommandRunning() {
+    return m_robot.getAutonomousCommand() != null && m_robot.getAutonomousCommand().isScheduled();
+  }
+
+  /** Enable the robot in autonomous mode and run autonomousInit(), like the field would. */
+  public void startAutonomous() {
+    enableAutonomous();
+    m_robot.autonomousInit();
+  }
+
+  /**
+   * Enable the robot in autonomous mode and schedule a command of the test's choosing instead
+   * of the robot's own autonomous command.
+   *
+   * @param command The command to run.
+   */
+  public void startAutonomous(Command command) {
+    enableAutonomous();
+    command.schedule();
+  }
+
+  private void enableAutonomous() {
+    DriverStationSim.setAutonomous(true);
+    DriverStationSim.setEnabled(true);
+    DriverStationSim.notifyNewData();
+  }
+
+  /**
+   * Run one robot loop and the fast control ticks that fall inside it, moving the clock
+   * forward by exactly one loop period. Each fast tick also moves the simulated motors 5 ms.
+   */
+  public void step() {
+    // The same order TimedRobot uses: mode periodic, robot periodic, then simulation.
+    m_robot.autonomousPeriodic();
+    m_robot.robotPeriodic();
+    m_robot.simulationPeriodic();
+
+    // Then the fast loop, at the same offset and period that Robot asks TimedRobot for.
+    FastControlLoop fastControlLoop = m_robot.getRobotContainer().getFastControlLoop();
+    double time = 0;
+    for (double tick = LoopConstants.kFastLoopOffsetSeconds;
+        tick < TimedRobot.kDefaultPeriod;
+        tick += LoopConstants.kFastLoopPeriodSeconds) {
+      SimHooks.stepTiming(tick - time);
+      time = tick;
+      fastControlLoop.run();
+    }
+    SimHooks.stepTiming(TimedRobot.kDefaultPeriod - time);
+    m_loopCount++;
+  }
+
+  /**
+   * Step loops until a condition becomes true or the time limit runs out.
+   *
+   * @param condition Checked after every loop.
+   * @param timeoutSeconds The most robot time to simulate.
+   * @return The robot time it took, in seconds, or NaN if the time limit ran out first.
+   */
+  public double runUntil(BooleanSupplier condition, double timeoutSeconds) {
+    long start = m_loopCount;
+    long maxLoops = Math.round(timeoutSeconds / TimedRobot.kDefaultPeriod);
+    while (m_loopCount - start < maxLoops) {
+      step();
+      if (condition.getAsBoolean()) {
+        return (m_loopCount - start) * TimedRobot.kDefaultPeriod;
+      }
+    }
+    return Double.NaN;
+  }
+
+  @Override
+  public void close() {
+    // The scheduler is shared by the whole test run, so leave it empty for the next test.
+    CommandScheduler scheduler = CommandScheduler.getInstance();
+    scheduler.cancelAll();
+    scheduler.unregisterAllSubsystems();
+    scheduler.getActiveButtonLoop().clear();
+    m_robot.close();
+    DriverStationSim.resetData();
+    SimHooks.resumeTiming();
+  }
+}
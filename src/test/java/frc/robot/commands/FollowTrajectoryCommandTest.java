@@ -0,0 +1,52 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import frc.robot.AutoPaths;
+import frc.robot.Constants.SwerveConstants;
+import frc.robot.SimHarness;
+import frc.robot.subsystems.SwerveModule;
+import frc.robot.trajectory.Trajectory;
+import frc.robot.trajectory.TrajectoryGenerator;
+
+/**
+ * Plays back the precomputed S-curve, the routine autonomous normally runs, in the headless
+ * simulator and checks where the wheel ends up.
+ */
+class FollowTrajectoryCommandTest {
+  // The autonomous period is 15 seconds long; the routine has to fit inside it.
+  private static final double AUTONOMOUS_SECONDS = 15.0;
+
+  @Test
+  void followsTheTrajectoryToItsEnd() {
+    try (SimHarness harness = new SimHarness()) {
+      SwerveModule module = harness.getRobotContainer().getDrivetrain().getModule(0);
+      // Made the same way as the deployed file, so the test does not depend on the build.
+      Trajectory trajectory =
+          TrajectoryGenerator.generate(AutoPaths.all().get(AutoPaths.GO_TO_GOAL));
+      FollowTrajectoryCommand command = new FollowTrajectoryCommand(module, trajectory);
+      harness.startAutonomous(command);
+
+      double seconds = harness.runUntil(() -> !command.isScheduled(), AUTONOMOUS_SECONDS);
+
+      assertFalse(Double.isNaN(seconds), "FollowTrajectoryCommand did not finish in autonomous");
+      assertFalse(command.isTimedOut(), "FollowTrajectoryCommand gave up short of the end");
+      assertTrue(seconds < trajectory.getDuration() + 0.5,
+          "FollowTrajectoryCommand took " + seconds + " s for a "
+              + trajectory.getDuration() + " s trajectory");
+      // The follower stops once it is within tolerance of the end, from either side.
+      assertEquals(trajectory.getPosition(trajectory.getDuration()), module.getDrivePosition(),
+          SwerveConstants.kDrivePositionToleranceRotations);
+      // +0.25, -0.25, +0.25: the wheel should end pointing a quarter turn from the start.
+      assertEquals(0.25, module.getRotations(), 0.02);
+    }
+  }
+}
@@ -0,0 +1,45 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import frc.robot.SimHarness;
+import frc.robot.subsystems.SwerveModule;
+
+/**
+ * Runs the live S-curve in the headless simulator and checks where the wheel ends up. The robot
+ * only uses this command when no precomputed trajectory was deployed; see
+ * {@link FollowTrajectoryCommandTest} for the one autonomous normally runs.
+ */
+class GoToGoalCommandTest {
+  // The autonomous period is 15 seconds long; the routine has to fit inside it.
+  private static final double AUTONOMOUS_SECONDS = 15.0;
+
+  @Test
+  void finishesInsideAutonomousAndEndsOnTarget() {
+    try (SimHarness harness = new SimHarness()) {
+      SwerveModule module = harness.getRobotContainer().getDrivetrain().getModule(0);
+      GoToGoalCommand command = new GoToGoalCommand(module);
+      harness.startAutonomous(command);
+
+      double seconds = harness.runUntil(() -> !command.isScheduled(), AUTONOMOUS_SECONDS);
+
+      assertFalse(Double.isNaN(seconds), "GoToGoalCommand did not finish in autonomous");
+      // Three segments of 20 rotations at 10% speed take about 6 seconds without stops.
+      assertTrue(seconds < 8.0, "GoToGoalCommand took " + seconds + " s");
+      // The path ends as soon as it passes 60 rotations, so allow a small overshoot.
+      double drivePosition = module.getDrivePosition();
+      assertTrue(drivePosition >= 60.0 && drivePosition < 61.5,
+          "Drove " + drivePosition + " rotations");
+      // +0.25, -0.25, +0.25: the wheel should end pointing a quarter turn from the start.
+      assertEquals(0.25, module.getRotations(), 0.02);
+    }
+  }
+}
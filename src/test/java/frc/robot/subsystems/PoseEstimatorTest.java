@@ -0,0 +1,99 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.TimedRobot;
+import frc.robot.SimHarness;
+import frc.robot.util.PoseHistory;
+
+/** Drives the simulated robot in an arc and checks the camera keeps the estimate on track. */
+class PoseEstimatorTest {
+  // The simulated camera's frames are 50 ms old. Blending them in without going back to the
+  // moment they were taken would leave the estimate about 5 cm behind at 1 m/s.
+  private static final double MAX_POSITION_ERROR_METERS = 0.02;
+  private static final double MAX_HEADING_ERROR_RADIANS = 0.01;
+  // Slipping wheels keep pushing odometry off, and each frame only pulls the estimate part of
+  // the way back, so it trails the true pose by a little more.
+  private static final double WHEEL_SLIP = 0.05;
+  private static final double MIN_SLIP_DRIFT_METERS = 0.1;
+  private static final double MAX_SLIP_POSITION_ERROR_METERS = 0.04;
+
+  @Test
+  void cameraPullsAWrongPoseBackWhileDriving() {
+    try (SimHarness harness = new SimHarness()) {
+      SwerveDrivetrain drivetrain = harness.getRobotContainer().getDrivetrain();
+      PoseEstimator estimator = harness.getRobotContainer().getPoseEstimator();
+      double[] truth = new double[3];
+
+      driveArc(harness, drivetrain, 1.0);
+      // Tell the estimator something wrong. The camera sees where the simulated robot really
+      // is, and should bring the estimate back there.
+      getTruth(drivetrain, estimator, truth);
+      estimator.resetPose(truth[0] + 1.0, truth[1] - 0.5, truth[2] + 0.3);
+
+      driveArc(harness, drivetrain, 4.0);
+      getTruth(drivetrain, estimator, truth);
+
+      assertTrue(estimator.getAcceptedVisionCount() > 100);
+      assertEquals(0, estimator.getRejectedVisionCount());
+      assertEquals(truth[0], estimator.getX(), MAX_POSITION_ERROR_METERS);
+      assertEquals(truth[1], estimator.getY(), MAX_POSITION_ERROR_METERS);
+      assertEquals(0, MathUtil.angleModulus(estimator.getHeadingRadians() - truth[2]),
+          MAX_HEADING_ERROR_RADIANS);
+    }
+  }
+
+  @Test
+  void cameraRemovesWheelSlipDrift() {
+    try (SimHarness harness = new SimHarness()) {
+      SwerveDrivetrain drivetrain = harness.getRobotContainer().getDrivetrain();
+      PoseEstimator estimator = harness.getRobotContainer().getPoseEstimator();
+      PoseHistory odometry = estimator.getOdometryHistory();
+      double[] truth = new double[3];
+      double[] wheels = new double[3];
+
+      // The encoders count every turn of the wheels, but some of it never moves the robot.
+      for (int i = 0; i < drivetrain.getModuleCount(); i++) {
+        harness.getModuleIO(i).setWheelSlip(WHEEL_SLIP);
+      }
+      driveArc(harness, drivetrain, 5.0);
+      getTruth(drivetrain, estimator, truth);
+      odometry.getPoseAt(odometry.getNewestTimestamp(), wheels);
+
+      // Odometry alone has drifted away from the true pose...
+      assertTrue(Math.hypot(wheels[0] - truth[0], wheels[1] - truth[1]) > MIN_SLIP_DRIFT_METERS,
+          "The slipping wheels did not fool odometry");
+      // ...but the camera keeps the estimate where the robot really is.
+      assertEquals(truth[0], estimator.getX(), MAX_SLIP_POSITION_ERROR_METERS);
+      assertEquals(truth[1], estimator.getY(), MAX_SLIP_POSITION_ERROR_METERS);
+      assertEquals(0, MathUtil.angleModulus(estimator.getHeadingRadians() - truth[2]),
+          MAX_HEADING_ERROR_RADIANS);
+    }
+  }
+
+  /**
+   * Where the simulated robot really was at the time of the newest estimate. The simulated
+   * wheels have moved on since the estimator last looked, so the newest true pose is too new.
+   */
+  private static void getTruth(
+      SwerveDrivetrain drivetrain, PoseEstimator estimator, double[] truthOut) {
+    double estimateTime = estimator.getOdometryHistory().getNewestTimestamp();
+    assertTrue(drivetrain.getSimulatedPoseHistory().getPoseAt(estimateTime, truthOut));
+  }
+
+  private static void driveArc(SimHarness harness, SwerveDrivetrain drivetrain, double seconds) {
+    int loops = (int) Math.round(seconds / TimedRobot.kDefaultPeriod);
+    for (int i = 0; i < loops; i++) {
+      drivetrain.drive(1.0, 0.0, 0.5, false);
+      harness.step();
+    }
+  }
+}
@@ -0,0 +1,70 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.wpilibj.TimedRobot;
+import frc.robot.Constants.LoopConstants;
+import frc.robot.Constants.SwerveConstants;
+import frc.robot.SimHarness;
+
+/** Checks that the fast control loop holds the drive back while the wheel is still turning. */
+class SwerveModuleTest {
+  // Slow enough that the acceleration limit is reached long before the wheel finishes turning,
+  // so it is the steering error that holds the drive back.
+  private static final double SPEED_METERS_PER_SECOND = 0.2;
+  // Nearly a quarter turn, so the wheel starts out pointing almost sideways.
+  private static final double TURN_ROTATIONS = 0.24;
+  private static final int FAST_TICKS_PER_LOOP =
+      (int) Math.round(TimedRobot.kDefaultPeriod / LoopConstants.kFastLoopPeriodSeconds);
+  private static final double EPSILON = 1e-9;
+
+  @Test
+  void driveIsHeldBackWhileTheWheelIsStillTurning() {
+    try (SimHarness harness = new SimHarness()) {
+      SwerveModule module = harness.getRobotContainer().getDrivetrain().getModule(0);
+      SwerveModuleIOSim io = harness.getModuleIO(0);
+      // Registered after the module's own callbacks, so each tick sees the angle the module
+      // just read and the drive speed it just sent.
+      List<double[]> ticks = new ArrayList<>();
+      harness.getRobotContainer().getFastControlLoop().register(() -> ticks.add(
+          new double[] {io.readSteerPosition(), module.getDriveVelocitySetpoint()}));
+
+      double desired = SPEED_METERS_PER_SECOND * SwerveConstants.kDriveRotationsPerMeter;
+      module.setDesiredState(SPEED_METERS_PER_SECOND, TURN_ROTATIONS);
+      harness.step();
+
+      // The wheel turns between robot loops, and the fast loop sees it.
+      assertEquals(FAST_TICKS_PER_LOOP, ticks.size());
+      for (int i = 1; i < ticks.size(); i++) {
+        assertTrue(ticks.get(i)[0] > ticks.get(i - 1)[0], "Steering did not move in tick " + i);
+      }
+
+      boolean heldBackByCosine = false;
+      for (int loop = 0; loop < 50; loop++) {
+        harness.step();
+      }
+      for (double[] tick : ticks) {
+        double bound = desired * Math.max(0, Math.cos(2 * Math.PI * (TURN_ROTATIONS - tick[0])));
+        // Never faster than the part of the speed that pushes the way the wheel points.
+        assertTrue(tick[1] <= bound + EPSILON, "Drive sped ahead of the steering");
+        if (TURN_ROTATIONS - tick[0] > SwerveConstants.kSteerPositionToleranceRotations
+            && Math.abs(tick[1] - bound) < EPSILON) {
+          heldBackByCosine = true;
+        }
+      }
+      assertTrue(heldBackByCosine, "The steering error never limited the drive speed");
+      // Once the wheel points the right way it gets (almost) the whole speed.
+      assertEquals(desired, module.getDriveVelocitySetpoint(), 0.01 * desired);
+    }
+  }
+}
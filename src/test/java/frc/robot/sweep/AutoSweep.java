@@ -0,0 +1,284 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.sweep;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.Constants.SwerveConstants;
+import frc.robot.commands.FollowTrajectoryCommand;
+import frc.robot.commands.GoToGoalCommand;
+import frc.robot.subsystems.SwerveModule;
+import frc.robot.subsystems.SwerveModuleIOSim;
+import frc.robot.trajectory.Trajectory;
+import frc.robot.trajectory.TrajectoryGenerator;
+
+/**
+ * Tries many versions of the autonomous routine in simulation and ranks them.
+ *
+ * <p>Each worker thread of a {@link ForkJoinPool} owns one {@link World}: a swerve module on a
+ * pure-Java {@link SwerveModuleIOSim} with its own clock. A trial resets the world and turns
+ * the trial's S-curve numbers into a {@link Trajectory}, the same way the build does for the
+ * deployed one but kept in memory. It then runs the {@link FollowTrajectoryCommand} that
+ * autonomous uses by calling the command's methods directly, 20 ms of pretend time per loop. A
+ * follower that times out short of the end counts as not finished. Worlds share nothing while
+ * a trial runs, so every core can run trials at once and the same configuration always gives
+ * the same result.
+ *
+ * <p>The one shared thing is WPILib's command bookkeeping, which is not thread-safe. Subsystems
+ * and commands register with it when they are built, so that only happens while holding
+ * {@link #SCHEDULER_LOCK}. The scheduler is never run: the trial drives the command itself.
+ */
+public final class AutoSweep {
+  private static final Object SCHEDULER_LOCK = new Object();
+
+  // The autonomous period is 15 seconds; a trial that has not finished by then failed.
+  private static final double TIMEOUT_SECONDS = 15.0;
+  // After finishing, let the wheel come to rest before measuring where it ended up.
+  private static final double SETTLE_SECONDS = 0.5;
+  // How many seconds of autonomous time one meter / one steering rotation of error "costs".
+  private static final double DRIVE_ERROR_SECONDS_PER_METER = 20.0;
+  private static final double STEER_ERROR_SECONDS_PER_ROTATION = 40.0;
+
+  // Where the hand-tuned routine ends: three segments forward, and +1/-1/+1 quarter turns.
+  private static final double GOAL_DRIVE_ROTATIONS = 3 * GoToGoalCommand.SEGMENT_ROTATIONS;
+  private static final double GOAL_STEER_ROTATIONS = GoToGoalCommand.TURN_ROTATIONS;
+
+  private static final ThreadLocal<World> WORLD = ThreadLocal.withInitial(World::new);
+
+  private AutoSweep() {}
+
+  /** One set of numbers to try. */
+  public static final class Config {
+    final double driveSpeed;
+    final double segmentRotations;
+    final double turnRotations;
+    final double steerKP;
+    final double driveKP;
+    final double noiseStdDevRotations;
+    final long seed;
+
+    /**
+     * @param driveSpeed Fraction of top speed, like the 0.1 in {@link GoToGoalCommand}.
+     * @param segmentRotations Drive rotations per segment.
+     * @param turnRotations Steering rotations per segment.
+     * @param steerKP Steering position gain.
+     * @param driveKP Drive velocity gain.
+     * @param noiseStdDevRotations Sensor noise added to position readings.
+     * @param seed Seed for the noise, so the trial can be repeated exactly.
+     */
+    public Config(
+        double driveSpeed, double segmentRotations, double turnRotations, double steerKP,
+        double driveKP, double noiseStdDevRotations, long seed) {
+      this.driveSpeed = driveSpeed;
+      this.segmentRotations = segmentRotations;
+      this.turnRotations = turnRotations;
+      this.steerKP = steerKP;
+      this.driveKP = driveKP;
+      this.noiseStdDevRotations = noiseStdDevRotations;
+      this.seed = seed;
+    }
+
+    /** The values hand-picked for the field. */
+    public static Config handTuned() {
+      return new Config(
+          GoToGoalCommand.DRIVE_SPEED, GoToGoalCommand.SEGMENT_ROTATIONS,
+          GoToGoalCommand.TURN_ROTATIONS, SwerveConstants.kSteerKP, SwerveConstants.kDriveKP,
+          0, 0);
+    }
+
+    static String csvHeader() {
+      return "driveSpeed,segmentRotations,turnRotations,steerKP,driveKP,noiseStdDev,seed";
+    }
+
+    String toCsv() {
+      return driveSpeed + "," + segmentRotations + "," + turnRotations + "," + steerKP + ","
+          + driveKP + "," + noiseStdDevRotations + "," + seed;
+    }
+  }
+
+  /** How one configuration did. */
+  public static final class Result {
+    final Config config;
+    final boolean finished;
+    final double completionSeconds;
+    final double driveErrorMeters;
+    final double steerErrorRotations;
+
+    Result(
+        Config config, boolean finished, double completionSeconds, double driveErrorMeters,
+        double steerErrorRotations) {
+      this.config = config;
+      this.finished = finished;
+      this.completionSeconds = completionSeconds;
+      this.driveErrorMeters = driveErrorMeters;
+      this.steerErrorRotations = steerErrorRotations;
+    }
+
+    /** Lower is better: the time taken plus a time penalty for missing the goal. */
+    public double getScore() {
+      if (!finished) {
+        return Double.POSITIVE_INFINITY;
+      }
+      return completionSeconds
+          + DRIVE_ERROR_SECONDS_PER_METER * driveErrorMeters
+          + STEER_ERROR_SECONDS_PER_ROTATION * steerErrorRotations;
+    }
+
+    public boolean isFinished() {
+      return finished;
+    }
+
+    public double getCompletionSeconds() {
+      return completionSeconds;
+    }
+
+    public double getDriveErrorMeters() {
+      return driveErrorMeters;
+    }
+
+    public double getSteerErrorRotations() {
+      return steerErrorRotations;
+    }
+
+    static String csvHeader() {
+      return "score,finished,completionSeconds,driveErrorMeters,steerErrorRotations,"
+          + Config.csvHeader();
+    }
+
+    String toCsv() {
+      return getScore() + "," + finished + "," + completionSeconds + "," + driveErrorMeters + ","
+          + steerErrorRotations + "," + config.toCsv();
+    }
+  }
+
+  /** One isolated simulated robot, owned by a single worker thread and reused for each trial. */
+  private static final class World {
+    private final SwerveModuleIOSim m_io;
+    private final SwerveModule m_module;
+    private double m_timeSeconds;
+
+    World() {
+      m_io = new SwerveModuleIOSim(() -> m_timeSeconds);
+      synchronized (SCHEDULER_LOCK) {
+        m_module = new SwerveModule("Sweep/" + Thread.currentThread().getName(), m_io);
+        // This module is only driven by hand, never by the scheduler.
+        CommandScheduler.getInstance().unregisterSubsystem(m_module);
+      }
+    }
+
+    Result run(Config config) {
+      m_timeSeconds = 0;
+      m_io.reset();
+      m_io.setSteerKP(config.steerKP);
+      m_io.setDriveVelocityKP(config.driveKP);
+      m_io.setSensorNoise(new Random(config.seed), config.noiseStdDevRotations);
+      m_module.refreshSensors();
+
+      Trajectory trajectory = TrajectoryGenerator.generate(GoToGoalCommand.createProfile(
+          config.segmentRotations, config.driveSpeed, config.turnRotations));
+      FollowTrajectoryCommand command;
+      synchronized (SCHEDULER_LOCK) {
+        command = new FollowTrajectoryCommand(m_module, trajectory, () -> m_timeSeconds);
+      }
+
+      // The same steps the scheduler would take: sensors first, then the command.
+      boolean finished = false;
+      command.initialize();
+      while (m_timeSeconds < TIMEOUT_SECONDS) {
+        command.execute();
+        if (command.isFinished()) {
+          command.end(false);
+          finished = !command.isTimedOut();
+          break;
+        }
+        step();
+      }
+      double completionSeconds = m_timeSeconds;
+      if (!finished) {
+        command.end(true);
+        return new Result(config, false, completionSeconds, Double.NaN, Double.NaN);
+      }
+
+      for (double settled = 0; settled < SETTLE_SECONDS; settled += TimedRobot.kDefaultPeriod) {
+        step();
+      }
+      double driveErrorMeters = Math.abs(m_module.getDrivePosition() - GOAL_DRIVE_ROTATIONS)
+          / SwerveConstants.kDriveRotationsPerMeter;
+      double steerErrorRotations = Math.abs(m_module.getRotations() - GOAL_STEER_ROTATIONS);
+      return new Result(
+          config, true, completionSeconds, driveErrorMeters, steerErrorRotations);
+    }
+
+    private void step() {
+      m_io.simulationPeriodic(TimedRobot.kDefaultPeriod);
+      m_timeSeconds += TimedRobot.kDefaultPeriod;
+      m_module.refreshSensors();
+    }
+  }
+
+  /**
+   * Run one configuration on the calling thread.
+   *
+   * @param config The numbers to try.
+   * @return How it did.
+   */
+  public static Result runTrial(Config config) {
+    return WORLD.get().run(config);
+  }
+
+  /**
+   * Run many configurations in parallel and sort them best first.
+   *
+   * @param configs The configurations to try.
+   * @param threads How many worker threads (and simulated worlds) to use.
+   * @return The results, lowest score first.
+   */
+  public static List<Result> run(List<Config> configs, int threads)
+      throws InterruptedException, ExecutionException {
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      // A parallel stream started from inside a pool runs on that pool's workers.
+      return pool.submit(() -> configs.parallelStream()
+              .map(AutoSweep::runTrial)
+              .sorted(Comparator.comparingDouble(Result::getScore))
+              .collect(Collectors.toList()))
+          .get();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Make random configurations around the hand-tuned values (Monte Carlo sampling).
+   *
+   * @param count How many to make.
+   * @param seed Seed for the random choices, so a sweep can be repeated.
+   * @return The configurations.
+   */
+  public static List<Config> randomConfigs(int count, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    List<Config> configs = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      configs.add(new Config(
+          random.nextDouble(0.05, 0.6),
+          random.nextDouble(18, 22),
+          random.nextDouble(0.2, 0.3),
+          random.nextDouble(2, 40),
+          random.nextDouble(0, 0.5),
+          random.nextDouble(0, 0.02),
+          random.nextLong()));
+    }
+    return configs;
+  }
+}
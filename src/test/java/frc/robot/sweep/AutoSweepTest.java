@@ -0,0 +1,98 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.sweep;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.hal.HAL;
+
+/**
+ * Checks for the sweep engine, plus the full overnight sweep.
+ *
+ * <p>The full sweep is tagged "sweep" so the normal {@code test} task skips it. Run it with
+ * {@code ./gradlew autoSweep -Psweep.trials=20000}; the ranked results are written to
+ * {@code build/sweep/auto-sweep.csv}.
+ */
+class AutoSweepTest {
+  @BeforeAll
+  static void setUp() {
+    HAL.initialize(500, 0);
+  }
+
+  @Test
+  void handTunedRoutineFinishes() {
+    AutoSweep.Result result = AutoSweep.runTrial(AutoSweep.Config.handTuned());
+
+    assertTrue(result.isFinished());
+    assertTrue(result.getCompletionSeconds() < 8.0);
+    assertTrue(result.getDriveErrorMeters() < 0.1);
+    assertTrue(result.getSteerErrorRotations() < 0.02);
+  }
+
+  @Test
+  void sameConfigGivesSameResultOnAnyWorker() throws Exception {
+    List<AutoSweep.Config> configs = AutoSweep.randomConfigs(16, 42);
+    List<AutoSweep.Result> first = AutoSweep.run(configs, 4);
+    List<AutoSweep.Result> second = AutoSweep.run(configs, 2);
+
+    // The results come back sorted by score, so match them up by configuration. Comparing
+    // sorted lists could hide two configurations swapping scores.
+    Map<AutoSweep.Config, AutoSweep.Result> secondByConfig = new IdentityHashMap<>();
+    for (AutoSweep.Result result : second) {
+      secondByConfig.put(result.config, result);
+    }
+    assertEquals(configs.size(), first.size());
+    assertEquals(configs.size(), secondByConfig.size());
+    for (AutoSweep.Result result : first) {
+      AutoSweep.Result other = secondByConfig.get(result.config);
+      assertEquals(result.getScore(), other.getScore(), result.config.toCsv());
+      assertEquals(
+          result.getCompletionSeconds(), other.getCompletionSeconds(), result.config.toCsv());
+    }
+  }
+
+  @Test
+  @Tag("sweep")
+  void sweep() throws Exception {
+    int trials = Integer.getInteger("sweep.trials", 5000);
+    long seed = Long.getLong("sweep.seed", 1);
+    Path output = Paths.get(System.getProperty("sweep.output", "build/sweep/auto-sweep.csv"));
+
+    List<AutoSweep.Config> configs = AutoSweep.randomConfigs(trials, seed);
+    configs.add(AutoSweep.Config.handTuned());
+    long start = System.nanoTime();
+    List<AutoSweep.Result> results =
+        AutoSweep.run(configs, Runtime.getRuntime().availableProcessors());
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    Files.createDirectories(output.toAbsolutePath().getParent());
+    try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output))) {
+      writer.println(AutoSweep.Result.csvHeader());
+      for (AutoSweep.Result result : results) {
+        writer.println(result.toCsv());
+      }
+    }
+
+    System.out.printf("Ran %d trials in %.1f s. Best 10:%n", configs.size(), seconds);
+    System.out.println(AutoSweep.Result.csvHeader());
+    for (int i = 0; i < Math.min(10, results.size()); i++) {
+      System.out.println(results.get(i).toCsv());
+    }
+    assertTrue(results.get(0).isFinished(), "No configuration finished the routine");
+  }
+}
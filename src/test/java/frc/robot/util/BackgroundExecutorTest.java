@@ -0,0 +1,143 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.util.BackgroundExecutor.Priority;
+import frc.robot.util.BackgroundExecutor.Task;
+
+/** Checks that background work runs by priority and only reaches the main thread when asked. */
+class BackgroundExecutorTest {
+  private static final long TIMEOUT_MILLIS = 5000;
+
+  private BackgroundExecutor m_executor;
+  // Holds the one worker thread busy, so tasks can be lined up behind it.
+  private final CountDownLatch m_release = new CountDownLatch(1);
+
+  @BeforeAll
+  static void setUp() {
+    HAL.initialize(500, 0);
+  }
+
+  @BeforeEach
+  void createExecutor() {
+    m_executor = new BackgroundExecutor(1, 4);
+  }
+
+  @AfterEach
+  void shutdown() {
+    m_release.countDown();
+    m_executor.shutdown();
+  }
+
+  /** Wait until every task has finished on the worker thread. */
+  private void waitForWorkers() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (m_executor.getWaitingTaskCount() > 0) {
+      assertTrue(System.currentTimeMillis() < deadline, "Background work never finished");
+      Thread.sleep(1);
+    }
+  }
+
+  private void blockWorker() {
+    m_executor.submit("Block", Priority.HIGH, () -> {
+      try {
+        m_release.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+  }
+
+  @Test
+  void resultsReachTheMainThreadOnlyWhenDelivered() throws InterruptedException {
+    List<Integer> received = new ArrayList<>();
+    Task<Integer> task = m_executor.submit("Answer", Priority.NORMAL, () -> 42, received::add);
+    Command wait = task.waitCommand();
+    waitForWorkers();
+
+    // The work is finished, but the robot loop has not picked it up yet.
+    assertFalse(task.isDone());
+    assertFalse(wait.isFinished());
+    assertTrue(received.isEmpty());
+
+    m_executor.deliverResults();
+    assertTrue(task.isDone());
+    assertTrue(wait.isFinished());
+    assertEquals(List.of(42), received);
+    assertEquals(42, task.getResult().intValue());
+  }
+
+  @Test
+  void higherPriorityWorkStartsFirst() throws InterruptedException {
+    List<String> order = new ArrayList<>();
+    blockWorker();
+    m_executor.submit("Log", Priority.LOW, () -> order.add("low"));
+    m_executor.submit("Rates", Priority.NORMAL, () -> order.add("normal"));
+    m_executor.submit("Config", Priority.HIGH, () -> order.add("high"));
+    m_release.countDown();
+    waitForWorkers();
+
+    assertEquals(List.of("high", "normal", "low"), order);
+  }
+
+  @Test
+  void workPastTheLimitIsTurnedAway() throws InterruptedException {
+    blockWorker();
+    for (int i = 0; i < 3; i++) {
+      assertFalse(m_executor.submit("Fill", Priority.LOW, () -> { }).wasRejected());
+    }
+    Task<Void> extra = m_executor.submit("Extra", Priority.HIGH, () -> { });
+    assertTrue(extra.wasRejected());
+
+    m_release.countDown();
+    waitForWorkers();
+    m_executor.deliverResults();
+    assertTrue(extra.isFailed());
+  }
+
+  @Test
+  void failuresAreDeliveredInsteadOfThrown() throws InterruptedException {
+    Task<Object> task = m_executor.submit("Broken", Priority.LOW, () -> {
+      throw new IllegalStateException("no file");
+    }, null);
+    waitForWorkers();
+    m_executor.deliverResults();
+
+    assertTrue(task.isFailed());
+    assertTrue(task.getError() instanceof IllegalStateException);
+  }
+
+  @Test
+  void errorsAreDeliveredToo() throws InterruptedException {
+    Task<Object> task = m_executor.submit("Overflow", Priority.LOW, () -> {
+      throw new StackOverflowError();
+    }, null);
+    Command wait = task.waitCommand();
+    waitForWorkers();
+    m_executor.deliverResults();
+
+    // The task still frees its slot and reaches the main thread, so nothing waits forever.
+    assertEquals(0, m_executor.getWaitingTaskCount());
+    assertTrue(task.isFailed());
+    assertTrue(task.getError() instanceof StackOverflowError);
+    assertTrue(wait.isFinished());
+  }
+}
@@ -0,0 +1,114 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.hal.HAL;
+
+/** Runs the manager on a pretend clock, so loops can be made as slow as we like. */
+class LoopBudgetManagerTest {
+  private static final long MILLIS = 1_000_000L;
+  private static final long PERIOD_NANOS = 20 * MILLIS;
+
+  // The pretend clock, and how long the critical task pretends to take.
+  private long m_now;
+  private long m_criticalWork;
+  private int m_criticalRuns;
+  private int m_deferrableRuns;
+  private LoopBudgetManager m_manager;
+
+  @BeforeAll
+  static void setUp() {
+    HAL.initialize(500, 0);
+  }
+
+  @BeforeEach
+  void createManager() {
+    m_manager = new LoopBudgetManager(() -> m_now, 0.020);
+    m_manager.registerCritical("Test.critical", () -> {
+      m_criticalRuns++;
+      m_now += m_criticalWork;
+    });
+    m_manager.registerDeferrable("Test.telemetry", () -> m_deferrableRuns++);
+  }
+
+  /** Run loops that start exactly one period apart. */
+  private void runLoops(int count) {
+    for (int i = 0; i < count; i++) {
+      m_now = (m_now / PERIOD_NANOS + 1) * PERIOD_NANOS;
+      m_manager.run();
+    }
+  }
+
+  @Test
+  void slowLoopsHoldBackDeferrableWorkButNeverCriticalWork() {
+    m_criticalWork = 16 * MILLIS;
+    runLoops(100);
+
+    assertEquals(100, m_criticalRuns);
+    assertEquals(4, m_manager.getLevel());
+    // One run per level on the way up, then nothing.
+    assertTrue(m_deferrableRuns <= 4, "Deferrable work ran " + m_deferrableRuns + " times");
+  }
+
+  @Test
+  void deferrableWorkComesBackWhenThereIsRoom() {
+    m_criticalWork = 16 * MILLIS;
+    runLoops(20);
+    m_criticalWork = 1 * MILLIS;
+    // One second of quiet loops lowers the level by one step.
+    runLoops(4 * 50);
+
+    assertEquals(0, m_manager.getLevel());
+    m_deferrableRuns = 0;
+    runLoops(50);
+    assertEquals(50, m_deferrableRuns);
+  }
+
+  @Test
+  void steadyLoopsAtHalfTheBudgetStillRecover() {
+    m_criticalWork = 16 * MILLIS;
+    runLoops(20);
+    // Busy, but well under the high-water mark every loop.
+    m_criticalWork = 10 * MILLIS;
+    runLoops(4 * 50);
+
+    assertEquals(0, m_manager.getLevel());
+    m_deferrableRuns = 0;
+    runLoops(50);
+    assertEquals(50, m_deferrableRuns);
+  }
+
+  @Test
+  void deferrableWorkStopsWhenTheLoopIsNearlyOutOfTime() {
+    int[] laterRuns = new int[1];
+    m_manager.registerDeferrable("Test.slow", () -> m_now += 15 * MILLIS);
+    m_manager.registerDeferrable("Test.later", () -> laterRuns[0]++);
+    m_criticalWork = 2 * MILLIS;
+    runLoops(1);
+
+    assertEquals(1, m_criticalRuns);
+    assertEquals(1, m_deferrableRuns);
+    assertEquals(0, laterRuns[0]);
+    assertEquals(1, m_manager.getSkippedTaskCount());
+  }
+
+  @Test
+  void aLateLoopCountsAsAnOverrun() {
+    m_criticalWork = 1 * MILLIS;
+    runLoops(1);
+    m_now += 3 * PERIOD_NANOS;
+    runLoops(1);
+
+    assertEquals(1, m_manager.getOverrunCount());
+    assertEquals(1, m_manager.getLevel());
+  }
+}
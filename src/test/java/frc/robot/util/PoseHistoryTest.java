@@ -0,0 +1,59 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class PoseHistoryTest {
+  @Test
+  void blendsBetweenTheNeighboringPoses() {
+    PoseHistory history = new PoseHistory(8);
+    history.add(1.0, 0.0, 0.0, 0.0);
+    history.add(2.0, 1.0, 2.0, 0.5);
+    history.add(3.0, 3.0, 2.0, 1.0);
+
+    double[] pose = new double[3];
+    assertTrue(history.getPoseAt(1.5, pose));
+    assertArrayEquals(new double[] {0.5, 1.0, 0.25}, pose, 1e-12);
+    assertTrue(history.getPoseAt(2.75, pose));
+    assertArrayEquals(new double[] {2.5, 2.0, 0.875}, pose, 1e-12);
+    // Exactly on a stored pose, and after the newest one.
+    assertTrue(history.getPoseAt(2.0, pose));
+    assertArrayEquals(new double[] {1.0, 2.0, 0.5}, pose, 1e-12);
+    assertTrue(history.getPoseAt(9.0, pose));
+    assertArrayEquals(new double[] {3.0, 2.0, 1.0}, pose, 1e-12);
+  }
+
+  @Test
+  void forgetsTheOldestPosesWhenFull() {
+    PoseHistory history = new PoseHistory(4);
+    for (int i = 0; i < 10; i++) {
+      history.add(i, i, -i, 0);
+    }
+
+    assertEquals(4, history.size());
+    assertEquals(6.0, history.getOldestTimestamp());
+    assertEquals(9.0, history.getNewestTimestamp());
+    double[] pose = new double[3];
+    assertFalse(history.getPoseAt(5.5, pose));
+    assertTrue(history.getPoseAt(7.25, pose));
+    assertEquals(7.25, pose[0], 1e-12);
+    assertEquals(-7.25, pose[1], 1e-12);
+  }
+
+  @Test
+  void ignoresPosesOutOfTimeOrder() {
+    PoseHistory history = new PoseHistory(4);
+    assertTrue(history.add(1.0, 0, 0, 0));
+    assertFalse(history.add(1.0, 5, 5, 5));
+    assertFalse(history.add(0.5, 5, 5, 5));
+    assertEquals(1, history.size());
+  }
+}